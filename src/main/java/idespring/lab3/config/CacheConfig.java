@@ -1,128 +1,295 @@
 package idespring.lab3.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
 @Component
 public class CacheConfig<K, V> {
-    private final ConcurrentHashMap<K, CacheEntry<V>> cache = new ConcurrentHashMap<>();
+    static final long DEFAULT_ENTITY_BYTES = 128;
+    private static final String SHARED_REGION = "shared";
+    private static final String REGION_PROPERTY_PREFIX = "cache.regions.";
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
+
     private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+    private final ThreadPoolExecutor refreshExecutor;
     private final long maxAgeInMillis;
     private final int maxSize;
+    private final long maxWeight;
+    private final long entityBytes;
+    private final Environment environment;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final CacheInvalidationTransport transport;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Set<CacheTag> pendingBroadcast = ConcurrentHashMap.newKeySet();
+    private final List<CacheInvalidationTransport.Listener> remoteListeners =
+            new CopyOnWriteArrayList<>();
 
-    private final LinkedList<K> accessOrder = new LinkedList<>();
-
-    private final Object lock = new Object();
+    private final Map<String, CacheRegion<?, ?>> regions = new ConcurrentHashMap<>();
+    private final CacheTagIndex tagIndex = new CacheTagIndex();
+    private final CacheRegion<K, V> shared;
 
     public CacheConfig(@Value("${cache.maxAge}") long maxAgeInMillis,
-                       @Value("${cache.maxSize}") int maxSize) {
+                       @Value("${cache.maxSize}") int maxSize,
+                       @Value("${cache.maxWeight:67108864}") long maxWeight,
+                       @Value("${cache.entityBytes:128}") long entityBytes,
+                       @Value("${cache.refresh.threads:2}") int refreshThreads,
+                       @Value("${cache.refresh.queueSize:64}") int refreshQueueSize,
+                       @Value("${cache.cluster.flushMillis:50}") long flushMillis,
+                       Environment environment,
+                       ObjectProvider<MeterRegistry> meterRegistry,
+                       CacheInvalidationTransport transport) {
         this.maxAgeInMillis = maxAgeInMillis;
         this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+        this.entityBytes = entityBytes;
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.transport = transport;
+        this.refreshExecutor = newRefreshExecutor(refreshThreads, refreshQueueSize);
+        this.shared = region(SHARED_REGION);
 
         executor.scheduleAtFixedRate(this::cleanExpiredEntries,
                 maxAgeInMillis / 2,
                 maxAgeInMillis / 2,
                 TimeUnit.MILLISECONDS);
+
+        transport.subscribe(new RemoteInvalidationListener());
+        executor.scheduleWithFixedDelay(this::flushBroadcast,
+                flushMillis, flushMillis, TimeUnit.MILLISECONDS);
     }
 
-    public void put(K key, V value) {
-        CacheEntry<V> entry = new CacheEntry<>(value);
-
-        synchronized (lock) {
-            if (cache.containsKey(key)) {
-                accessOrder.remove(key);
-            } else if (cache.size() >= maxSize) {
-                K oldestKey = accessOrder.poll();
-                if (oldestKey != null) {
-                    cache.remove(oldestKey);
-                }
-            }
+    /**
+     * Registers a listener for invalidations published by other nodes, and for the
+     * transport losing messages, after the matching entries are dropped here. For
+     * in-memory state outside the cache regions that other nodes' writes make stale.
+     */
+    public void addRemoteListener(CacheInvalidationTransport.Listener listener) {
+        remoteListeners.add(listener);
+    }
 
-            accessOrder.addLast(key);
-            cache.put(key, entry);
-        }
+    public <R, T> CacheRegion<R, T> region(String name) {
+        return region(name, null);
+    }
 
-        executor.schedule(() -> remove(key), maxAgeInMillis, TimeUnit.MILLISECONDS);
+    public <R, T> CacheRegion<R, T> region(String name, CacheTagger<R, T> tagger) {
+        return region(name, tagger, null);
     }
 
-    public V get(K key) {
-        CacheEntry<V> entry = cache.get(key);
-        if (entry == null) {
-            return null;
+    @SuppressWarnings("unchecked")
+    public <R, T> CacheRegion<R, T> region(String name, CacheTagger<R, T> tagger,
+                                           CacheWeigher<? super R, ? super T> weigher) {
+        return (CacheRegion<R, T>) regions.computeIfAbsent(name,
+                regionName -> createRegion(regionName, tagger, weigher, false));
+    }
+
+    /**
+     * Creates a region that refreshes entries ahead of expiry. A hit past
+     * {@code cache.regions.<name>.refreshAfter} (three quarters of the region's maxAge
+     * by default) is served from cache while the value reloads in the background.
+     */
+    public <R, T> CacheRegion<R, T> refreshingRegion(String name, CacheTagger<R, T> tagger) {
+        return refreshingRegion(name, tagger, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <R, T> CacheRegion<R, T> refreshingRegion(String name, CacheTagger<R, T> tagger,
+                                                     CacheWeigher<? super R, ? super T> weigher) {
+        return (CacheRegion<R, T>) regions.computeIfAbsent(name,
+                regionName -> createRegion(regionName, tagger, weigher, true));
+    }
+
+    /**
+     * Drops every entry carrying one of {@code tags} once the current transaction commits,
+     * or at once outside one, and only then queues the tags for the other nodes. Dropping
+     * them or broadcasting before the commit would let a reader load the old row in
+     * between and cache it under the new invalidation epoch; a rolled-back write is never
+     * broadcast at all.
+     */
+    public void invalidate(CacheTag... tags) {
+        List<CacheTag> invalidated = List.of(tags);
+        TransactionHooks.afterCommit(() -> {
+            int removed = invalidateLocally(invalidated);
+            logger.debug("Invalidated {} cache entries for tags {}", removed, invalidated);
+            pendingBroadcast.addAll(invalidated);
+        });
+    }
+
+    private int invalidateLocally(Collection<CacheTag> tags) {
+        int removed = 0;
+        for (CacheTag tag : tags) {
+            removed += tagIndex.invalidate(tag);
+            if (CacheTag.ALL.equals(tag)) {
+                removed += size();
+                clearAll();
+            }
         }
+        return removed;
+    }
 
-        entry.updateAccessTime();
-        synchronized (lock) {
-            accessOrder.remove(key);
-            accessOrder.addLast(key);
+    /**
+     * Sends the tags invalidated by transactions committed since the last flush to the
+     * other nodes in one message.
+     * A write burst that touches the same tags repeatedly collapses into a single entry
+     * per tag.
+     */
+    private void flushBroadcast() {
+        if (pendingBroadcast.isEmpty()) {
+            return;
+        }
+        List<CacheTag> batch = new ArrayList<>();
+        Iterator<CacheTag> pending = pendingBroadcast.iterator();
+        while (pending.hasNext()) {
+            batch.add(pending.next());
+            pending.remove();
         }
+        try {
+            transport.publish(nodeId, batch);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to broadcast {} cache invalidations", batch.size(), e);
+        }
+    }
+
+    private void clearAll() {
+        for (CacheRegion<?, ?> region : regions.values()) {
+            region.clear();
+        }
+    }
 
-        return entry.getValue();
+    public CacheStats stats(String name) {
+        CacheRegion<?, ?> region = regions.get(name);
+        return region != null ? region.stats() : null;
     }
 
-    public void remove(K key) {
-        synchronized (lock) {
-            cache.remove(key);
-            accessOrder.remove(key);
+    public List<CacheStats> stats() {
+        List<CacheStats> stats = new ArrayList<>();
+        for (CacheRegion<?, ?> region : regions.values()) {
+            stats.add(region.stats());
         }
+        return stats;
     }
 
-    public int size() {
-        return cache.size();
+    CacheRegion<?, ?> existingRegion(String name) {
+        return regions.get(name);
     }
 
-    public void shutdown() {
-        executor.shutdown();
+    Collection<CacheRegion<?, ?>> regions() {
+        return regions.values();
     }
 
-    private void cleanExpiredEntries() {
-        long now = System.currentTimeMillis();
-        List<K> expiredKeys = new ArrayList<>();
+    public void put(K key, V value) {
+        shared.put(key, value);
+    }
 
-        for (Map.Entry<K, CacheEntry<V>> entry : cache.entrySet()) {
-            if (now - entry.getValue().getCreationTime() > maxAgeInMillis) {
-                expiredKeys.add(entry.getKey());
-            }
-        }
+    public V get(K key) {
+        return shared.get(key);
+    }
 
-        for (K key : expiredKeys) {
-            remove(key);
-        }
+    public V getOrLoad(K key, Function<? super K, ? extends V> loader) {
+        return shared.getOrLoad(key, loader);
     }
 
-    private static class CacheEntry<V> {
-        private final V value;
-        private final long creationTime;
-        private long lastAccessTime;
+    public void remove(K key) {
+        shared.remove(key);
+    }
 
-        public CacheEntry(V value) {
-            this.value = value;
-            this.creationTime = System.currentTimeMillis();
-            this.lastAccessTime = this.creationTime;
+    public int size() {
+        int size = 0;
+        for (CacheRegion<?, ?> region : regions.values()) {
+            size += region.size();
         }
+        return size;
+    }
 
-        public V getValue() {
-            return value;
+    public void shutdown() {
+        flushBroadcast();
+        executor.shutdown();
+        refreshExecutor.shutdown();
+    }
+
+    private <R, T> CacheRegion<R, T> createRegion(String name, CacheTagger<R, T> tagger,
+                                                  CacheWeigher<? super R, ? super T> weigher,
+                                                  boolean refreshAhead) {
+        String prefix = REGION_PROPERTY_PREFIX + name;
+        long regionMaxAge = environment.getProperty(prefix + ".maxAge", Long.class,
+                maxAgeInMillis);
+        int regionMaxSize = environment.getProperty(prefix + ".maxSize", Integer.class,
+                maxSize);
+        long regionMaxWeight = environment.getProperty(prefix + ".maxWeight", Long.class,
+                maxWeight);
+        long regionRefreshAfter = environment.getProperty(prefix + ".refreshAfter", Long.class,
+                refreshAhead ? regionMaxAge * 3 / 4 : 0L);
+        if (weigher == null) {
+            long regionEntityBytes = environment.getProperty(prefix + ".entityBytes", Long.class,
+                    entityBytes);
+            weigher = CacheWeigher.perEntity(regionEntityBytes);
         }
+        CacheRegion<R, T> region = new CacheRegion<>(name, regionMaxAge, regionMaxSize,
+                regionMaxWeight, regionRefreshAfter, refreshExecutor, tagger, tagIndex, weigher);
+        meterRegistry.ifAvailable(region::bindTo);
+        return region;
+    }
 
-        public long getCreationTime() {
-            return creationTime;
+    private static ThreadPoolExecutor newRefreshExecutor(int threads, int queueSize) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor refreshExecutor = new ThreadPoolExecutor(threads, threads,
+                30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "cache-refresh-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        refreshExecutor.allowCoreThreadTimeOut(true);
+        return refreshExecutor;
+    }
+
+    private void cleanExpiredEntries() {
+        for (CacheRegion<?, ?> region : regions.values()) {
+            region.cleanExpiredEntries();
         }
+    }
 
-        public long getLastAccessTime() {
-            return lastAccessTime;
+    private class RemoteInvalidationListener implements CacheInvalidationTransport.Listener {
+        @Override
+        public void onInvalidation(String origin, Collection<CacheTag> tags) {
+            if (nodeId.equals(origin)) {
+                return;
+            }
+            int removed = invalidateLocally(tags);
+            logger.debug("Invalidated {} cache entries for {} remote tags from {}",
+                    removed, tags.size(), origin);
+            for (CacheInvalidationTransport.Listener listener : remoteListeners) {
+                listener.onInvalidation(origin, tags);
+            }
         }
 
-        public void updateAccessTime() {
-            this.lastAccessTime = System.currentTimeMillis();
+        @Override
+        public void onMessagesLost() {
+            logger.info("Cache invalidations may have been missed, clearing all regions");
+            clearAll();
+            remoteListeners.forEach(CacheInvalidationTransport.Listener::onMessagesLost);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,23 @@
+package idespring.lab3.config;
+
+import java.util.Collection;
+
+/**
+ * Carries tag invalidations between application nodes. Each node publishes the tags it
+ * invalidated locally and drops the matching entries when a peer's message arrives.
+ */
+public interface CacheInvalidationTransport {
+    void publish(String origin, Collection<CacheTag> tags);
+
+    void subscribe(Listener listener);
+
+    interface Listener {
+        void onInvalidation(String origin, Collection<CacheTag> tags);
+
+        /**
+         * Called when the transport may have dropped messages, e.g. after reconnecting.
+         * Listeners should assume anything they hold could be stale.
+         */
+        void onMessagesLost();
+    }
+}
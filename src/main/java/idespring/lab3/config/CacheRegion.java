@@ -0,0 +1,771 @@
+package idespring.lab3.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class CacheRegion<K, V> {
+    private static final int MAX_SEGMENTS = 64;
+    private static final Logger logger = LoggerFactory.getLogger(CacheRegion.class);
+
+    private final String name;
+    private final long maxAgeInMillis;
+    private final int maxSize;
+    private final long maxWeight;
+    private final long refreshAfterMillis;
+    private final Executor refreshExecutor;
+    private final CacheTagger<K, V> tagger;
+    private final CacheTagIndex tagIndex;
+    private final CacheWeigher<? super K, ? super V> weigher;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+    private final Map<K, CompletableFuture<V>> loads = new ConcurrentHashMap<>();
+    private final ReentrantLock weightEviction = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadTimeNanos = new LongAdder();
+    private final LongAdder weightedSize = new LongAdder();
+    private final LoadTimeHistogram loadTimeHistogram = new LoadTimeHistogram();
+
+    private Timer loadSuccessTimer;
+    private Timer loadFailureTimer;
+
+    public CacheRegion(String name, long maxAgeInMillis, int maxSize) {
+        this(name, maxAgeInMillis, maxSize, 0, 0, null, null, null,
+                CacheWeigher.perEntity(CacheConfig.DEFAULT_ENTITY_BYTES));
+    }
+
+    CacheRegion(String name, long maxAgeInMillis, int maxSize, long maxWeight,
+                long refreshAfterMillis, Executor refreshExecutor,
+                CacheTagger<K, V> tagger, CacheTagIndex tagIndex,
+                CacheWeigher<? super K, ? super V> weigher) {
+        this.name = name;
+        this.maxAgeInMillis = maxAgeInMillis;
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+        this.refreshAfterMillis = refreshExecutor != null ? refreshAfterMillis : 0;
+        this.refreshExecutor = refreshExecutor;
+        this.tagger = tagger;
+        this.tagIndex = tagIndex;
+        this.weigher = weigher;
+
+        int segmentCount = segmentCount(maxSize);
+        this.segments = newSegments(this, segmentCount, maxSize);
+        this.segmentMask = segmentCount - 1;
+    }
+
+    public void put(K key, V value) {
+        long now = System.currentTimeMillis();
+        store(key, value, now, now);
+    }
+
+    /**
+     * Puts an entry read back from a cache snapshot. It keeps its original creation time,
+     * so it expires and refreshes on the same schedule it would have had without the
+     * restart, and is skipped if that schedule already ran out.
+     */
+    @SuppressWarnings("unchecked")
+    void restore(Object key, Object value, long creationTime) {
+        long now = System.currentTimeMillis();
+        if (now < creationTime + maxAgeInMillis) {
+            store((K) key, (V) value, creationTime, now);
+        }
+    }
+
+    private void store(K key, V value, long creationTime, long now) {
+        long weight = weigher.weigh(key, value);
+        if (maxWeight > 0 && weight > maxWeight) {
+            remove(key);
+            evictions.increment();
+            return;
+        }
+
+        CacheTag[] tags = tagsOf(key, value);
+        long refreshAt = refreshAfterMillis > 0
+                ? creationTime + refreshAfterMillis : Long.MAX_VALUE;
+        segmentFor(key).put(key, new CacheEntry<>(key, value, tags, weight,
+                creationTime, refreshAt, creationTime + maxAgeInMillis), now);
+        puts.increment();
+
+        if (maxWeight > 0 && weightedSize.sum() > maxWeight) {
+            evictToWeight();
+        }
+    }
+
+    public V get(K key) {
+        CacheEntry<K, V> entry = lookup(key, System.currentTimeMillis());
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.getValue();
+    }
+
+    /**
+     * Returns the cached value or loads it. Concurrent callers that miss on the same key
+     * wait for the first caller's load instead of running the loader themselves. Failed
+     * loads and {@code null} results are not cached, and neither is a value loaded while
+     * a tag invalidation ran, since it may already be stale.
+     *
+     * <p>In regions with refresh-ahead enabled, a hit on an entry past its refresh time
+     * still returns the cached value and schedules a reload on the refresh executor.
+     */
+    public V getOrLoad(K key, Function<? super K, ? extends V> loader) {
+        long now = System.currentTimeMillis();
+        CacheEntry<K, V> entry = lookup(key, now);
+        if (entry != null) {
+            hits.increment();
+            if (entry.needsRefresh(now)) {
+                refresh(key, entry.getValue(), loader);
+            }
+            return entry.getValue();
+        }
+        misses.increment();
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loads.putIfAbsent(key, load);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+
+        try {
+            entry = lookup(key, System.currentTimeMillis());
+            V value = entry != null ? entry.getValue() : loadAndCache(key, loader);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    /**
+     * Returns the cached values of {@code keys} and loads every miss with one call to
+     * {@code loader}, in key order. Keys the loader does not return are left out of the
+     * result. Loaded values are cached under the same rules as {@link #getOrLoad}, but a
+     * bulk load does not wait for or register single-key loads of the same keys.
+     */
+    public Map<K, V> getAllOrLoad(Collection<? extends K> keys,
+                                  Function<? super List<K>, ? extends Map<K, V>> loader) {
+        long now = System.currentTimeMillis();
+        Map<K, V> found = new HashMap<>();
+        Set<K> missing = new LinkedHashSet<>();
+        for (K key : keys) {
+            if (found.containsKey(key) || missing.contains(key)) {
+                continue;
+            }
+            CacheEntry<K, V> entry = lookup(key, now);
+            if (entry != null) {
+                hits.increment();
+                found.put(key, entry.getValue());
+            } else {
+                misses.increment();
+                missing.add(key);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long epoch = invalidationEpoch();
+            Map<K, V> loaded = timedLoad(List.copyOf(missing), loader);
+            for (Map.Entry<K, V> entry : loaded.entrySet()) {
+                if (entry.getValue() != null) {
+                    found.put(entry.getKey(), entry.getValue());
+                    if (epoch == invalidationEpoch()) {
+                        put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            if (epoch != invalidationEpoch()) {
+                loaded.keySet().forEach(this::remove);
+            }
+        }
+
+        Map<K, V> result = new LinkedHashMap<>();
+        for (K key : keys) {
+            V value = found.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    public void remove(K key) {
+        segmentFor(key).remove(key);
+    }
+
+    private CacheEntry<K, V> lookup(K key, long now) {
+        CacheEntry<K, V> entry = segmentFor(key).get(key, now);
+        if (entry != null) {
+            entry.updateAccessTime(now);
+        }
+        return entry;
+    }
+
+    private V loadAndCache(K key, Function<? super K, ? extends V> loader) {
+        long epoch = invalidationEpoch();
+        V value = timedLoad(key, loader);
+        if (value != null && epoch == invalidationEpoch()) {
+            put(key, value);
+            if (epoch != invalidationEpoch()) {
+                remove(key);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Reloads a soft-expired entry in the background. The reload registers itself as the
+     * in-flight load for the key, so it never overlaps a foreground load or another
+     * refresh, and a caller that misses meanwhile waits for it. When the executor is
+     * saturated the refresh is dropped and the entry simply runs on to its hard expiry.
+     */
+    private void refresh(K key, V stale, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        if (loads.putIfAbsent(key, load) != null) {
+            return;
+        }
+
+        try {
+            refreshExecutor.execute(() -> runRefresh(key, loader, load));
+            refreshes.increment();
+        } catch (RejectedExecutionException e) {
+            logger.debug("Refresh queue full, skipping refresh of {} in region {}", key, name);
+            loads.remove(key, load);
+            load.complete(stale);
+        }
+    }
+
+    private void runRefresh(K key, Function<? super K, ? extends V> loader,
+                            CompletableFuture<V> load) {
+        try {
+            V value = loadAndCache(key, loader);
+            if (value == null) {
+                remove(key);
+            }
+            load.complete(value);
+        } catch (RuntimeException | Error e) {
+            logger.warn("Failed to refresh {} in region {}", key, name, e);
+            load.completeExceptionally(e);
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    private long invalidationEpoch() {
+        return tagIndex == null ? 0 : tagIndex.epoch();
+    }
+
+    private static <V> V await(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void removeTagged(Object key) {
+        remove((K) key);
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(name, size(), maxSize, maxAgeInMillis, refreshAfterMillis,
+                hits.sum(), misses.sum(), puts.sum(), refreshes.sum(),
+                loadSuccesses.sum(), loadFailures.sum(), loadTimeNanos.sum(),
+                loadTimeHistogram.snapshot(),
+                evictions.sum(), expirations.sum(), weightedSize.sum(), maxWeight);
+    }
+
+    void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tags("cache", name, "result", "hit").register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tags("cache", name, "result", "miss").register(registry);
+        FunctionCounter.builder("cache.puts", puts, LongAdder::sum)
+                .tag("cache", name).register(registry);
+        FunctionCounter.builder("cache.refreshes", refreshes, LongAdder::sum)
+                .tag("cache", name).register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tags("cache", name, "cause", "size").register(registry);
+        FunctionCounter.builder("cache.evictions", expirations, LongAdder::sum)
+                .tags("cache", name, "cause", "expired").register(registry);
+        Gauge.builder("cache.size", this, CacheRegion::size)
+                .tag("cache", name).register(registry);
+        Gauge.builder("cache.estimated.bytes", weightedSize, LongAdder::sum)
+                .tag("cache", name).baseUnit("bytes").register(registry);
+        loadSuccessTimer = Timer.builder("cache.load.duration")
+                .tags("cache", name, "result", "success")
+                .publishPercentileHistogram()
+                .register(registry);
+        loadFailureTimer = Timer.builder("cache.load.duration")
+                .tags("cache", name, "result", "failure")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Brings the region back under its byte budget. Segments are evicted independently,
+     * so each round drops the head of whichever segment holds the least recently used
+     * entry; that keeps eviction close to region-wide LRU without a global list.
+     */
+    private void evictToWeight() {
+        if (!weightEviction.tryLock()) {
+            return;
+        }
+        try {
+            while (weightedSize.sum() > maxWeight) {
+                Segment<K, V> victim = null;
+                long oldestAccess = Long.MAX_VALUE;
+                for (Segment<K, V> segment : segments) {
+                    long headAccess = segment.headAccessTime();
+                    if (headAccess < oldestAccess) {
+                        oldestAccess = headAccess;
+                        victim = segment;
+                    }
+                }
+                if (victim == null || !victim.evictHead()) {
+                    return;
+                }
+            }
+        } finally {
+            weightEviction.unlock();
+        }
+    }
+
+    private <A, R> R timedLoad(A key, Function<? super A, ? extends R> loader) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            R value = loader.apply(key);
+            success = true;
+            return value;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            loadTimeNanos.add(elapsed);
+            loadTimeHistogram.record(elapsed);
+            (success ? loadSuccesses : loadFailures).increment();
+            Timer timer = success ? loadSuccessTimer : loadFailureTimer;
+            if (timer != null) {
+                timer.record(elapsed, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private CacheTag[] tagsOf(K key, V value) {
+        if (tagger == null || tagIndex == null) {
+            return null;
+        }
+        Collection<CacheTag> tags = tagger.tags(key, value);
+        return tags == null || tags.isEmpty() ? null : tags.toArray(new CacheTag[0]);
+    }
+
+    private void onAdded(CacheEntry<K, V> entry) {
+        weightedSize.add(entry.weight);
+        if (entry.tags != null) {
+            tagIndex.track(entry.tags, this, entry.key);
+        }
+    }
+
+    private void onRemoved(CacheEntry<K, V> entry, RemovalCause cause) {
+        weightedSize.add(-entry.weight);
+        if (entry.tags != null) {
+            tagIndex.untrack(entry.tags, this, entry.key);
+        }
+        if (cause == RemovalCause.SIZE) {
+            evictions.increment();
+        } else if (cause == RemovalCause.EXPIRED) {
+            expirations.increment();
+        }
+    }
+
+    /**
+     * Visits up to {@code limit} of the most recently used entries, oldest creation time
+     * first, so that restoring them in visiting order keeps each segment's write list in
+     * expiry order.
+     */
+    void forEachHotEntry(int limit, EntryVisitor<K, V> visitor) {
+        List<CacheEntry<K, V>> hot = new ArrayList<>();
+        for (Segment<K, V> segment : segments) {
+            segment.collectRecent(limit, hot);
+        }
+        hot.sort(Comparator.comparingLong(CacheEntry<K, V>::getLastAccessTime).reversed());
+        List<CacheEntry<K, V>> selected = hot.subList(0, Math.min(limit, hot.size()));
+        selected.sort(Comparator.comparingLong(CacheEntry<K, V>::getCreationTime));
+        long now = System.currentTimeMillis();
+        for (CacheEntry<K, V> entry : selected) {
+            if (!entry.isExpired(now)) {
+                visitor.visit(entry.key, entry.value, entry.tags, entry.getCreationTime());
+            }
+        }
+    }
+
+    interface EntryVisitor<K, V> {
+        void visit(K key, V value, CacheTag[] tags, long creationTime);
+    }
+
+    void cleanExpiredEntries() {
+        long now = System.currentTimeMillis();
+        for (Segment<K, V> segment : segments) {
+            segment.expire(now);
+        }
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return segments[h & segmentMask];
+    }
+
+    private static int segmentCount(int maxSize) {
+        int wanted = Math.min(MAX_SEGMENTS, Runtime.getRuntime().availableProcessors() * 4);
+        int count = 1;
+        while (count < wanted && count * 2 <= maxSize) {
+            count <<= 1;
+        }
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Segment<K, V>[] newSegments(CacheRegion<K, V> region,
+                                                      int count, int maxSize) {
+        Segment<K, V>[] result = (Segment<K, V>[]) new Segment<?, ?>[count];
+        for (int i = 0; i < count; i++) {
+            int capacity = maxSize / count + (i < maxSize % count ? 1 : 0);
+            result[i] = new Segment<>(region, Math.max(1, capacity));
+        }
+        return result;
+    }
+
+    private enum RemovalCause {
+        EXPLICIT, REPLACED, SIZE, EXPIRED
+    }
+
+    /**
+     * One stripe of the cache. Each segment keeps its own hash map and an intrusive
+     * doubly linked list in access order, so a hit only relinks one node under the
+     * segment lock instead of scanning a global list under a global monitor.
+     *
+     * <p>A second intrusive list keeps entries in expiry order. Every entry lives for
+     * the same {@code maxAge}, so for ordinary puts this is write order and an entry is
+     * simply appended; an entry restored from a snapshot keeps its original creation time
+     * and is linked in behind the last entry that expires no later than it does. Expiring
+     * is then a matter of popping the head of that list while it is overdue.
+     */
+    private static final class Segment<K, V> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<K, CacheEntry<K, V>> map = new HashMap<>();
+        private final CacheRegion<K, V> region;
+        private final int capacity;
+
+        private CacheEntry<K, V> head;
+        private CacheEntry<K, V> tail;
+        private CacheEntry<K, V> writeHead;
+        private CacheEntry<K, V> writeTail;
+        private volatile int size;
+
+        Segment(CacheRegion<K, V> region, int capacity) {
+            this.region = region;
+            this.capacity = capacity;
+        }
+
+        CacheEntry<K, V> get(K key, long now) {
+            lock.lock();
+            try {
+                CacheEntry<K, V> entry = map.get(key);
+                if (entry == null) {
+                    return null;
+                }
+                if (entry.isExpired(now)) {
+                    removeEntry(entry, RemovalCause.EXPIRED);
+                    return null;
+                }
+                if (entry != tail) {
+                    unlink(entry);
+                    linkLast(entry);
+                }
+                return entry;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(K key, CacheEntry<K, V> entry, long now) {
+            lock.lock();
+            try {
+                expire(now);
+                CacheEntry<K, V> previous = map.put(key, entry);
+                if (previous != null) {
+                    unlink(previous);
+                    unlinkWrite(previous);
+                    region.onRemoved(previous, RemovalCause.REPLACED);
+                } else if (map.size() > capacity && head != null) {
+                    removeEntry(head, RemovalCause.SIZE);
+                }
+                linkLast(entry);
+                linkByExpiry(entry);
+                size = map.size();
+                region.onAdded(entry);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(K key) {
+            lock.lock();
+            try {
+                CacheEntry<K, V> entry = map.get(key);
+                if (entry != null) {
+                    removeEntry(entry, RemovalCause.EXPLICIT);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void expire(long now) {
+            lock.lock();
+            try {
+                while (writeHead != null && writeHead.isExpired(now)) {
+                    removeEntry(writeHead, RemovalCause.EXPIRED);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void collectRecent(int limit, List<CacheEntry<K, V>> into) {
+            lock.lock();
+            try {
+                int collected = 0;
+                for (CacheEntry<K, V> entry = tail; entry != null && collected < limit;
+                        entry = entry.prev) {
+                    into.add(entry);
+                    collected++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long headAccessTime() {
+            lock.lock();
+            try {
+                return head != null ? head.getLastAccessTime() : Long.MAX_VALUE;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean evictHead() {
+            lock.lock();
+            try {
+                if (head == null) {
+                    return false;
+                }
+                removeEntry(head, RemovalCause.SIZE);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                for (CacheEntry<K, V> entry = head; entry != null; entry = entry.next) {
+                    region.onRemoved(entry, RemovalCause.EXPLICIT);
+                }
+                map.clear();
+                head = null;
+                tail = null;
+                writeHead = null;
+                writeTail = null;
+                size = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void removeEntry(CacheEntry<K, V> entry, RemovalCause cause) {
+            map.remove(entry.key);
+            unlink(entry);
+            unlinkWrite(entry);
+            size = map.size();
+            region.onRemoved(entry, cause);
+        }
+
+        private void linkLast(CacheEntry<K, V> entry) {
+            entry.prev = tail;
+            entry.next = null;
+            if (tail == null) {
+                head = entry;
+            } else {
+                tail.next = entry;
+            }
+            tail = entry;
+        }
+
+        private void unlink(CacheEntry<K, V> entry) {
+            if (entry.prev == null) {
+                head = entry.next;
+            } else {
+                entry.prev.next = entry.next;
+            }
+            if (entry.next == null) {
+                tail = entry.prev;
+            } else {
+                entry.next.prev = entry.prev;
+            }
+            entry.prev = null;
+            entry.next = null;
+        }
+
+        private void linkByExpiry(CacheEntry<K, V> entry) {
+            CacheEntry<K, V> before = writeTail;
+            while (before != null && before.expiresAt > entry.expiresAt) {
+                before = before.writePrev;
+            }
+            CacheEntry<K, V> after = before == null ? writeHead : before.writeNext;
+            entry.writePrev = before;
+            entry.writeNext = after;
+            if (before == null) {
+                writeHead = entry;
+            } else {
+                before.writeNext = entry;
+            }
+            if (after == null) {
+                writeTail = entry;
+            } else {
+                after.writePrev = entry;
+            }
+        }
+
+        private void unlinkWrite(CacheEntry<K, V> entry) {
+            if (entry.writePrev == null) {
+                writeHead = entry.writeNext;
+            } else {
+                entry.writePrev.writeNext = entry.writeNext;
+            }
+            if (entry.writeNext == null) {
+                writeTail = entry.writePrev;
+            } else {
+                entry.writeNext.writePrev = entry.writePrev;
+            }
+            entry.writePrev = null;
+            entry.writeNext = null;
+        }
+    }
+
+    private static class CacheEntry<K, V> {
+        private final K key;
+        private final V value;
+        private final CacheTag[] tags;
+        private final long weight;
+        private final long creationTime;
+        private final long refreshAt;
+        private final long expiresAt;
+        private volatile long lastAccessTime;
+
+        private CacheEntry<K, V> prev;
+        private CacheEntry<K, V> next;
+        private CacheEntry<K, V> writePrev;
+        private CacheEntry<K, V> writeNext;
+
+        public CacheEntry(K key, V value, CacheTag[] tags, long weight,
+                          long creationTime, long refreshAt, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.tags = tags;
+            this.weight = weight;
+            this.creationTime = creationTime;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+            this.lastAccessTime = creationTime;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public long getCreationTime() {
+            return creationTime;
+        }
+
+        public long getLastAccessTime() {
+            return lastAccessTime;
+        }
+
+        public boolean needsRefresh(long now) {
+            return now >= refreshAt;
+        }
+
+        public boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+
+        public void updateAccessTime(long now) {
+            this.lastAccessTime = now;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package idespring.lab3.config;
+
+import idespring.lab3.dto.GroupReportDto;
+import idespring.lab3.dto.SubjectReportDto;
+import idespring.lab3.model.snapshot.GroupSnapshot;
+import idespring.lab3.model.snapshot.KeysetPage;
+import idespring.lab3.model.snapshot.MarkSnapshot;
+import idespring.lab3.model.snapshot.PageCursor;
+import idespring.lab3.model.snapshot.StudentSnapshot;
+import idespring.lab3.model.snapshot.StudentSubjectsSnapshot;
+import idespring.lab3.model.snapshot.SubjectSnapshot;
+import idespring.lab3.model.snapshot.SubjectStudentsSnapshot;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tagged binary encoding for cached keys and values. It covers what the regions hold:
+ * boxed primitives, strings, lists and sets, and records built from those, which are
+ * written component by component and rebuilt through their canonical constructor.
+ * Only the record types in {@link #RECORD_TYPES} are written or rebuilt, so a snapshot
+ * file cannot make a load instantiate any other class.
+ */
+final class CacheSnapshotCodec {
+    private static final byte NULL = 0;
+    private static final byte LONG = 1;
+    private static final byte INT = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte STRING = 5;
+    private static final byte LIST = 6;
+    private static final byte SET = 7;
+    private static final byte RECORD = 8;
+    /**
+     * The records cached by the regions, by binary name. The page query keys are private
+     * to their services and so listed by name; a region caching a new record type has to
+     * add it here, or its entries are skipped when a snapshot is written.
+     */
+    static final Set<String> RECORD_TYPES = Set.of(
+            GroupSnapshot.class.getName(),
+            StudentSnapshot.class.getName(),
+            SubjectSnapshot.class.getName(),
+            MarkSnapshot.class.getName(),
+            StudentSubjectsSnapshot.class.getName(),
+            SubjectStudentsSnapshot.class.getName(),
+            KeysetPage.class.getName(),
+            PageCursor.class.getName(),
+            GroupReportDto.class.getName(),
+            SubjectReportDto.class.getName(),
+            "idespring.lab3.service.groupservice.GroupServiceImpl$GroupPageQuery",
+            "idespring.lab3.service.subjectservice.SubjectServiceImpl$SubjectPageQuery",
+            "idespring.lab3.service.studservice.StudentServiceImpl$GroupPageQuery",
+            "idespring.lab3.service.markservice.MarkServiceImpl$MarkPageQuery");
+    /** Canonical constructors of the allowed records, looked up on first use. */
+    private static final Map<String, Constructor<?>> CONSTRUCTORS = new ConcurrentHashMap<>();
+
+    private CacheSnapshotCodec() {}
+
+    static void write(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Long l) {
+            out.writeByte(LONG);
+            out.writeLong(l);
+        } else if (value instanceof Integer i) {
+            out.writeByte(INT);
+            out.writeInt(i);
+        } else if (value instanceof Double d) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(d);
+        } else if (value instanceof Boolean b) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(b);
+        } else if (value instanceof String s) {
+            out.writeByte(STRING);
+            writeString(out, s);
+        } else if (value instanceof List<?> list) {
+            out.writeByte(LIST);
+            writeElements(out, list);
+        } else if (value instanceof Set<?> set) {
+            out.writeByte(SET);
+            writeElements(out, set);
+        } else if (value instanceof Record record) {
+            out.writeByte(RECORD);
+            writeRecord(out, record);
+        } else {
+            throw new IllegalArgumentException("Cannot snapshot " + value.getClass().getName());
+        }
+    }
+
+    static Object read(ByteBuffer in) {
+        byte type = in.get();
+        return switch (type) {
+            case NULL -> null;
+            case LONG -> in.getLong();
+            case INT -> in.getInt();
+            case DOUBLE -> in.getDouble();
+            case BOOLEAN -> in.get() != 0;
+            case STRING -> readString(in);
+            case LIST -> Collections.unmodifiableList(readElements(in, new ArrayList<>()));
+            case SET -> Collections.unmodifiableSet(readElements(in, new LinkedHashSet<>()));
+            case RECORD -> readRecord(in);
+            default -> throw new IllegalArgumentException("Unknown snapshot type " + type);
+        };
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeElements(DataOutputStream out, Collection<?> elements)
+            throws IOException {
+        out.writeInt(elements.size());
+        for (Object element : elements) {
+            write(out, element);
+        }
+    }
+
+    private static <C extends Collection<Object>> C readElements(ByteBuffer in, C into) {
+        int size = in.getInt();
+        for (int i = 0; i < size; i++) {
+            into.add(read(in));
+        }
+        return into;
+    }
+
+    private static void writeRecord(DataOutputStream out, Record record) throws IOException {
+        if (!RECORD_TYPES.contains(record.getClass().getName())) {
+            throw new IllegalArgumentException("Cannot snapshot " + record.getClass().getName());
+        }
+        RecordComponent[] components = record.getClass().getRecordComponents();
+        writeString(out, record.getClass().getName());
+        out.writeShort(components.length);
+        for (RecordComponent component : components) {
+            try {
+                Method accessor = component.getAccessor();
+                accessor.setAccessible(true);
+                write(out, accessor.invoke(record));
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalArgumentException("Cannot read " + component, e);
+            }
+        }
+    }
+
+    private static Object readRecord(ByteBuffer in) {
+        String className = readString(in);
+        if (!RECORD_TYPES.contains(className)) {
+            throw new IllegalArgumentException("Record type not allowed: " + className);
+        }
+        int count = in.getShort();
+        Object[] values = new Object[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = read(in);
+        }
+        Constructor<?> constructor = CONSTRUCTORS.computeIfAbsent(className,
+                CacheSnapshotCodec::canonicalConstructor);
+        if (constructor.getParameterCount() != count) {
+            throw new IllegalArgumentException("Record shape changed: " + className);
+        }
+        try {
+            return constructor.newInstance(values);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot rebuild " + className, e);
+        }
+    }
+
+    private static Constructor<?> canonicalConstructor(String className) {
+        try {
+            Class<?> type = Class.forName(className, false,
+                    CacheSnapshotCodec.class.getClassLoader());
+            if (!type.isRecord()) {
+                throw new IllegalArgumentException("Not a record: " + className);
+            }
+            RecordComponent[] components = type.getRecordComponents();
+            Class<?>[] parameterTypes = new Class<?>[components.length];
+            for (int i = 0; i < components.length; i++) {
+                parameterTypes[i] = components[i].getType();
+            }
+            Constructor<?> constructor = type.getDeclaredConstructor(parameterTypes);
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot rebuild " + className, e);
+        }
+    }
+}
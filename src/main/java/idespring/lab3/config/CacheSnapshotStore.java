@@ -0,0 +1,285 @@
+package idespring.lab3.config;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes the most recently used entries of every region to a local file and loads them
+ * back on startup, so a restarted node does not begin with a cold cache.
+ *
+ * <p>The file is stamped with the per-table change counters Postgres keeps in
+ * {@code pg_stat_user_tables}. On load, an entry is kept only if every table its tags
+ * depend on still has the counter it had when the snapshot was written; entries with no
+ * tags, or with tags this class does not know, are always dropped.
+ */
+@Component
+@ConditionalOnProperty(name = "cache.snapshot.enabled", havingValue = "true")
+public class CacheSnapshotStore {
+    private static final int MAGIC = 0x4C435331;
+    private static final int END_OF_REGION = -1;
+    private static final String TABLE_STAMPS_SQL = "SELECT relname, "
+            + "n_tup_ins + n_tup_upd + n_tup_del AS changes FROM pg_stat_user_tables "
+            + "WHERE schemaname = 'studentmanagement'";
+    private static final Map<String, List<String>> TAG_TABLES = Map.ofEntries(
+            Map.entry("students", List.of("students")),
+            Map.entry("student", List.of("students", "student_subject")),
+            Map.entry("groups", List.of("groups")),
+            Map.entry("group", List.of("groups", "students")),
+            Map.entry("subjects", List.of("subjects")),
+            Map.entry("subject", List.of("subjects", "student_subject")),
+            Map.entry("marks", List.of("marks")),
+            Map.entry("mark-lists", List.of("marks")),
+            Map.entry("student-marks", List.of("marks")),
+            Map.entry("subject-marks", List.of("marks")),
+            Map.entry("group-marks", List.of("marks", "students")));
+    private static final Logger logger = LoggerFactory.getLogger(CacheSnapshotStore.class);
+
+    private final CacheConfig<?, ?> cache;
+    private final JdbcTemplate jdbcTemplate;
+    private final Path path;
+    private final long intervalMillis;
+    private final int maxEntriesPerRegion;
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cache-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    public CacheSnapshotStore(CacheConfig<?, ?> cache, JdbcTemplate jdbcTemplate,
+                              @Value("${cache.snapshot.path:cache-snapshot.bin}") String path,
+                              @Value("${cache.snapshot.intervalMillis:300000}")
+                              long intervalMillis,
+                              @Value("${cache.snapshot.maxEntriesPerRegion:1000}")
+                              int maxEntriesPerRegion) {
+        this.cache = cache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.path = Path.of(path);
+        this.intervalMillis = intervalMillis;
+        this.maxEntriesPerRegion = maxEntriesPerRegion;
+    }
+
+    /**
+     * Runs once every service has created its regions, then starts the periodic writes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAndSchedule() {
+        load();
+        executor.scheduleWithFixedDelay(this::write, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes the final snapshot when the context starts closing. That runs before any
+     * {@code @PreDestroy} callback, so regions that services clear on destroy are still
+     * populated and the datasource is still open for the stamp query.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void writeOnShutdown() {
+        executor.shutdown();
+        write();
+    }
+
+    public synchronized void write() {
+        long start = System.nanoTime();
+        Map<String, Long> stamps = readTableStamps();
+        if (stamps == null) {
+            return;
+        }
+
+        Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+        int written = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(stamps.size());
+            for (Map.Entry<String, Long> stamp : stamps.entrySet()) {
+                CacheSnapshotCodec.writeString(out, stamp.getKey());
+                out.writeLong(stamp.getValue());
+            }
+
+            Collection<CacheRegion<?, ?>> regions = cache.regions();
+            out.writeInt(regions.size());
+            for (CacheRegion<?, ?> region : regions) {
+                written += writeRegion(out, region);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Failed to write cache snapshot to {}", path, e);
+            return;
+        }
+
+        try {
+            Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to replace cache snapshot {}", path, e);
+            return;
+        }
+
+        long end = System.nanoTime();
+        logger.info("Wrote {} cache entries to {} in {} ms", written, path,
+                (end - start) / 1_000_000);
+    }
+
+    private <K, V> int writeRegion(DataOutputStream out, CacheRegion<K, V> region)
+            throws IOException {
+        CacheSnapshotCodec.writeString(out, region.getName());
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        DataOutputStream entryOut = new DataOutputStream(buffer);
+        int[] written = new int[1];
+        region.forEachHotEntry(maxEntriesPerRegion, (key, value, tags, creationTime) -> {
+            if (tags == null) {
+                return;
+            }
+            buffer.reset();
+            try {
+                entryOut.writeLong(creationTime);
+                entryOut.writeShort(tags.length);
+                for (CacheTag tag : tags) {
+                    CacheSnapshotCodec.writeString(entryOut, tag.kind());
+                    entryOut.writeLong(tag.id());
+                }
+                CacheSnapshotCodec.write(entryOut, key);
+                CacheSnapshotCodec.write(entryOut, value);
+            } catch (IOException | IllegalArgumentException e) {
+                logger.debug("Skipping {} in region {}: {}", key, region.getName(),
+                        e.getMessage());
+                return;
+            }
+            try {
+                out.writeInt(buffer.size());
+                buffer.writeTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            written[0]++;
+        });
+        out.writeInt(END_OF_REGION);
+        return written[0];
+    }
+
+    public void load() {
+        if (!Files.isRegularFile(path)) {
+            return;
+        }
+        long start = System.nanoTime();
+        Map<String, Long> currentStamps = readTableStamps();
+        if (currentStamps == null) {
+            return;
+        }
+
+        int restored = 0;
+        int stale = 0;
+        int unreadable = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC) {
+                logger.warn("Ignoring {}: not a cache snapshot", path);
+                return;
+            }
+            in.getLong();
+            int stampCount = in.getInt();
+            Map<String, Long> savedStamps = new HashMap<>();
+            for (int i = 0; i < stampCount; i++) {
+                savedStamps.put(CacheSnapshotCodec.readString(in), in.getLong());
+            }
+
+            int regionCount = in.getInt();
+            for (int r = 0; r < regionCount; r++) {
+                CacheRegion<?, ?> region = cache.existingRegion(
+                        CacheSnapshotCodec.readString(in));
+                int length;
+                while ((length = in.getInt()) != END_OF_REGION) {
+                    ByteBuffer entry = in.slice(in.position(), length);
+                    in.position(in.position() + length);
+                    if (region == null) {
+                        stale++;
+                        continue;
+                    }
+                    try {
+                        long creationTime = entry.getLong();
+                        if (!isFresh(entry, savedStamps, currentStamps)) {
+                            stale++;
+                            continue;
+                        }
+                        Object key = CacheSnapshotCodec.read(entry);
+                        Object value = CacheSnapshotCodec.read(entry);
+                        region.restore(key, value, creationTime);
+                        restored++;
+                    } catch (RuntimeException e) {
+                        unreadable++;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to load cache snapshot from {}", path, e);
+        }
+
+        long end = System.nanoTime();
+        logger.info("Warmed cache from {}: {} restored, {} stale, {} unreadable in {} ms",
+                path, restored, stale, unreadable, (end - start) / 1_000_000);
+    }
+
+    private static boolean isFresh(ByteBuffer entry, Map<String, Long> savedStamps,
+                                   Map<String, Long> currentStamps) {
+        int tagCount = entry.getShort();
+        boolean fresh = tagCount > 0;
+        for (int i = 0; i < tagCount; i++) {
+            String kind = CacheSnapshotCodec.readString(entry);
+            entry.getLong();
+            List<String> tables = TAG_TABLES.get(kind);
+            if (tables == null) {
+                fresh = false;
+                continue;
+            }
+            for (String table : tables) {
+                Long saved = savedStamps.get(table);
+                if (saved == null || !saved.equals(currentStamps.get(table))) {
+                    fresh = false;
+                }
+            }
+        }
+        return fresh;
+    }
+
+    private Map<String, Long> readTableStamps() {
+        try {
+            Map<String, Long> stamps = new HashMap<>();
+            jdbcTemplate.query(TABLE_STAMPS_SQL, (RowCallbackHandler) rs ->
+                    stamps.put(rs.getString("relname"), rs.getLong("changes")));
+            return stamps;
+        } catch (DataAccessException e) {
+            logger.warn("Cannot read table change counters, skipping cache snapshot", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package idespring.lab3.config;
+
+import java.util.Map;
+
+public record CacheStats(String region, int size, int maxSize, long maxAgeInMillis,
+                         long refreshAfterMillis,
+                         long hits, long misses, long puts, long refreshes,
+                         long loadSuccesses, long loadFailures, long totalLoadTimeNanos,
+                         Map<String, Long> loadTimeHistogram,
+                         long sizeEvictions, long expirations,
+                         long estimatedBytes, long maxWeight) {
+    public double getHitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+
+    public double getAverageLoadMillis() {
+        long loads = loadSuccesses + loadFailures;
+        return loads == 0 ? 0.0 : totalLoadTimeNanos / 1_000_000.0 / loads;
+    }
+}
@@ -0,0 +1,44 @@
+package idespring.lab3.config;
+
+public record CacheTag(String kind, long id) {
+    /** Matches every entry in every region; for bulk writes too broad to tag precisely. */
+    public static final CacheTag ALL = new CacheTag("all", 0);
+    public static final CacheTag STUDENTS = new CacheTag("students", 0);
+    public static final CacheTag GROUPS = new CacheTag("groups", 0);
+    public static final CacheTag SUBJECTS = new CacheTag("subjects", 0);
+    public static final CacheTag MARKS = new CacheTag("marks", 0);
+    public static final CacheTag MARK_LISTS = new CacheTag("mark-lists", 0);
+
+    public static CacheTag student(long id) {
+        return new CacheTag("student", id);
+    }
+
+    public static CacheTag group(long id) {
+        return new CacheTag("group", id);
+    }
+
+    public static CacheTag subject(long id) {
+        return new CacheTag("subject", id);
+    }
+
+    public static CacheTag studentMarks(long studentId) {
+        return new CacheTag("student-marks", studentId);
+    }
+
+    public static CacheTag subjectMarks(long subjectId) {
+        return new CacheTag("subject-marks", subjectId);
+    }
+
+    public static CacheTag groupMarks(long groupId) {
+        return new CacheTag("group-marks", groupId);
+    }
+
+    /** Whether a write that invalidated this tag may have changed rows of the marks table. */
+    public boolean coversMarks() {
+        return switch (kind) {
+            case "all", "marks", "mark-lists", "student-marks", "subject-marks", "group-marks" ->
+                    true;
+            default -> false;
+        };
+    }
+}
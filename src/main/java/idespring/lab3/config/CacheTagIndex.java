@@ -0,0 +1,55 @@
+package idespring.lab3.config;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reverse index from a tag to the cached entries that depend on it. Regions keep it
+ * in sync as entries are stored and dropped, so invalidating a tag only touches the
+ * entries that carry it.
+ */
+class CacheTagIndex {
+    private final Map<CacheTag, Set<TaggedKey>> index = new ConcurrentHashMap<>();
+    private final AtomicLong epoch = new AtomicLong();
+
+    void track(CacheTag[] tags, CacheRegion<?, ?> region, Object key) {
+        TaggedKey taggedKey = new TaggedKey(region, key);
+        for (CacheTag tag : tags) {
+            index.computeIfAbsent(tag, t -> ConcurrentHashMap.newKeySet()).add(taggedKey);
+        }
+    }
+
+    void untrack(CacheTag[] tags, CacheRegion<?, ?> region, Object key) {
+        TaggedKey taggedKey = new TaggedKey(region, key);
+        for (CacheTag tag : tags) {
+            index.computeIfPresent(tag, (t, keys) -> {
+                keys.remove(taggedKey);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    int invalidate(CacheTag tag) {
+        epoch.incrementAndGet();
+        Set<TaggedKey> keys = index.remove(tag);
+        if (keys == null) {
+            return 0;
+        }
+        for (TaggedKey taggedKey : keys) {
+            taggedKey.region().removeTagged(taggedKey.key());
+        }
+        return keys.size();
+    }
+
+    long epoch() {
+        return epoch.get();
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    private record TaggedKey(CacheRegion<?, ?> region, Object key) {}
+}
@@ -0,0 +1,8 @@
+package idespring.lab3.config;
+
+import java.util.Collection;
+
+@FunctionalInterface
+public interface CacheTagger<K, V> {
+    Collection<CacheTag> tags(K key, V value);
+}
@@ -0,0 +1,30 @@
+package idespring.lab3.config;
+
+import idespring.lab3.model.snapshot.KeysetPage;
+import java.util.Collection;
+import java.util.Map;
+
+@FunctionalInterface
+public interface CacheWeigher<K, V> {
+    long ENTRY_OVERHEAD_BYTES = 96;
+
+    long weigh(K key, V value);
+
+    static <K, V> CacheWeigher<K, V> fixed(long bytes) {
+        return (key, value) -> ENTRY_OVERHEAD_BYTES + bytes;
+    }
+
+    static <K, V> CacheWeigher<K, V> perEntity(long entityBytes) {
+        return (key, value) -> {
+            long entities = 1;
+            if (value instanceof Collection<?> collection) {
+                entities = collection.size();
+            } else if (value instanceof Map<?, ?> map) {
+                entities = map.size();
+            } else if (value instanceof KeysetPage<?> page) {
+                entities = page.items().size();
+            }
+            return ENTRY_OVERHEAD_BYTES + entities * entityBytes;
+        };
+    }
+}
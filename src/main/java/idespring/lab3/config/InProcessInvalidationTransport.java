@@ -0,0 +1,26 @@
+package idespring.lab3.config;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "cache.cluster.transport", havingValue = "in-process",
+        matchIfMissing = true)
+public class InProcessInvalidationTransport implements CacheInvalidationTransport {
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(String origin, Collection<CacheTag> tags) {
+        for (Listener listener : listeners) {
+            listener.onInvalidation(origin, tags);
+        }
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,167 @@
+package idespring.lab3.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Broadcasts invalidations over Postgres {@code LISTEN/NOTIFY} on the application's own
+ * database. A payload is {@code origin;kind:id,kind:id,...}; batches that would exceed
+ * the server's 8000 byte payload limit are split across several notifications.
+ */
+@Component
+@ConditionalOnProperty(name = "cache.cluster.transport", havingValue = "postgres")
+public class PostgresInvalidationTransport implements CacheInvalidationTransport {
+    private static final String NOTIFY_SQL = "SELECT pg_notify(?, ?)";
+    private static final int MAX_PAYLOAD_CHARS = 7900;
+    private static final long RECONNECT_DELAY_MILLIS = 5000;
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final Logger logger =
+            LoggerFactory.getLogger(PostgresInvalidationTransport.class);
+
+    private final DataSource dataSource;
+    private final String channel;
+    private final int pollMillis;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    public PostgresInvalidationTransport(
+            DataSource dataSource,
+            @Value("${cache.cluster.channel:cache_invalidation}") String channel,
+            @Value("${cache.cluster.pollMillis:500}") int pollMillis) {
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid notification channel: " + channel);
+        }
+        this.dataSource = dataSource;
+        this.channel = channel;
+        this.pollMillis = pollMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        listenerThread = new Thread(this::listen, "cache-invalidation-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        listenerThread.interrupt();
+        listenerThread.join(pollMillis * 2L);
+    }
+
+    @Override
+    public void publish(String origin, Collection<CacheTag> tags) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(NOTIFY_SQL)) {
+            for (String payload : encode(origin, tags)) {
+                statement.setString(1, channel);
+                statement.setString(2, payload);
+                statement.execute();
+            }
+        } catch (SQLException e) {
+            logger.warn("Failed to publish {} cache invalidations", tags.size(), e);
+        }
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    private void listen() {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + channel);
+                if (reconnecting) {
+                    listeners.forEach(Listener::onMessagesLost);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollMillis);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Lost cache invalidation channel {}, reconnecting", channel, e);
+                reconnecting = true;
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(String payload) {
+        int separator = payload.indexOf(';');
+        if (separator < 0) {
+            logger.warn("Ignoring malformed cache invalidation payload: {}", payload);
+            return;
+        }
+        String origin = payload.substring(0, separator);
+        List<CacheTag> tags = new ArrayList<>();
+        for (String token : payload.substring(separator + 1).split(",")) {
+            int colon = token.lastIndexOf(':');
+            if (colon > 0) {
+                tags.add(new CacheTag(token.substring(0, colon),
+                        Long.parseLong(token.substring(colon + 1))));
+            }
+        }
+        for (Listener listener : listeners) {
+            listener.onInvalidation(origin, tags);
+        }
+    }
+
+    private static List<String> encode(String origin, Collection<CacheTag> tags) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(origin).append(';');
+        int headerLength = payload.length();
+        for (CacheTag tag : tags) {
+            String token = tag.kind() + ':' + tag.id();
+            if (payload.length() > headerLength
+                    && payload.length() + token.length() + 1 > MAX_PAYLOAD_CHARS) {
+                payloads.add(payload.toString());
+                payload.setLength(headerLength);
+            }
+            if (payload.length() > headerLength) {
+                payload.append(',');
+            }
+            payload.append(token);
+        }
+        if (payload.length() > headerLength) {
+            payloads.add(payload.toString());
+        }
+        return payloads;
+    }
+}
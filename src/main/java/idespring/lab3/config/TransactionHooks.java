@@ -0,0 +1,33 @@
+package idespring.lab3.config;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers work until the surrounding transaction commits, so caches and in-memory stores
+ * never see a write that may still roll back, and a reader that runs before the commit
+ * cannot repopulate them with the old row afterwards. Outside a transaction the work
+ * runs at once, since the write it follows has already been committed.
+ */
+public final class TransactionHooks {
+    private TransactionHooks() {
+    }
+
+    /**
+     * Runs {@code action} after the current transaction commits, or now if there is none.
+     * Actions registered in one transaction run in registration order.
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        action.run();
+                    }
+                });
+    }
+}
@@ -0,0 +1,38 @@
+package idespring.lab3.controller.cachecontroller;
+
+import idespring.lab3.config.CacheConfig;
+import idespring.lab3.config.CacheStats;
+import jakarta.validation.constraints.NotEmpty;
+import java.util.Comparator;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/cache")
+public class CacheController {
+    private final CacheConfig<String, Object> cache;
+
+    @Autowired
+    public CacheController(CacheConfig<String, Object> cache) {
+        this.cache = cache;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<List<CacheStats>> getStats() {
+        List<CacheStats> stats = cache.stats().stream()
+                .sorted(Comparator.comparing(CacheStats::region))
+                .toList();
+        return new ResponseEntity<>(stats, HttpStatus.OK);
+    }
+
+    @GetMapping("/stats/{region}")
+    public ResponseEntity<CacheStats> getRegionStats(@NotEmpty @PathVariable String region) {
+        CacheStats stats = cache.stats(region);
+        return stats != null
+                ? new ResponseEntity<>(stats, HttpStatus.OK)
+                : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+}
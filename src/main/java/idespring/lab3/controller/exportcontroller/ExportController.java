@@ -0,0 +1,52 @@
+package idespring.lab3.controller.exportcontroller;
+
+import idespring.lab3.service.exportservice.ExportFormat;
+import idespring.lab3.service.exportservice.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/export")
+public class ExportController {
+    private final ExportService exportService;
+
+    @Autowired
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    @GetMapping("/marks")
+    public ResponseEntity<?> exportMarks(
+            @RequestParam(required = false, defaultValue = "ndjson") String format) {
+        try {
+            ExportFormat exportFormat = ExportFormat.parse(format);
+            StreamingResponseBody body = out -> exportService.exportMarks(exportFormat, out);
+            return stream(exportFormat, body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/students")
+    public ResponseEntity<?> exportStudents(
+            @RequestParam(required = false, defaultValue = "ndjson") String format) {
+        try {
+            ExportFormat exportFormat = ExportFormat.parse(format);
+            StreamingResponseBody body = out -> exportService.exportStudents(exportFormat, out);
+            return stream(exportFormat, body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    private static ResponseEntity<StreamingResponseBody> stream(ExportFormat format,
+                                                                StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.contentType()))
+                .body(body);
+    }
+}
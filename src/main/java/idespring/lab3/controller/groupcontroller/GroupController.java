@@ -1,7 +1,10 @@
 package idespring.lab3.controller.groupcontroller;
 
-import idespring.lab3.model.Group;
+import idespring.lab3.dto.GroupDto;
+import idespring.lab3.dto.PageDto;
+import idespring.lab3.model.snapshot.PageCursor;
 import idespring.lab3.service.groupservice.GroupService;
+import idespring.lab3.service.searchservice.NameMatch;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
@@ -25,28 +28,69 @@ public class GroupController {
     }
 
     @PostMapping
-    public ResponseEntity<Group> createGroup(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<GroupDto> createGroup(@RequestBody Map<String, Object> request) {
         String name = (String) request.get("name");
         List<Integer> studentIds = (List<Integer>) request.get("studentIds");
 
-        Group group = groupService.addGroup(name, studentIds);
+        GroupDto group = GroupDto.from(groupService.addGroup(name, studentIds));
         return ResponseEntity.status(HttpStatus.CREATED).body(group);
     }
 
     @GetMapping
-    public ResponseEntity<List<Group>> getGroups(
+    public ResponseEntity<?> getGroups(
             @RequestParam(required = false) String namePattern,
-            @RequestParam(required = false) String sort) {
-        List<Group> groups = groupService.readGroups(namePattern, sort);
-        return !groups.isEmpty()
-                ? new ResponseEntity<>(groups, HttpStatus.OK)
-                : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = PageDto.DEFAULT_LIMIT) int limit) {
+        try {
+            PageDto<GroupDto> groups = PageDto.from(groupService.readGroups(namePattern, sort,
+                    PageCursor.decode(cursor), PageDto.checkLimit(limit)), GroupDto::from);
+            return !groups.items().isEmpty()
+                    ? new ResponseEntity<>(groups, HttpStatus.OK)
+                    : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(e.getMessage());
+        }
+    }
+
+    @GetMapping(params = "ids")
+    public ResponseEntity<?> getGroupsByIds(@RequestParam List<Long> ids) {
+        try {
+            List<GroupDto> groups = groupService.findAllByIds(PageDto.checkIds(ids)).stream()
+                    .map(GroupDto::from)
+                    .toList();
+            return !groups.isEmpty()
+                    ? new ResponseEntity<>(groups, HttpStatus.OK)
+                    : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> searchGroups(
+            @NotEmpty @RequestParam String q,
+            @RequestParam(defaultValue = PageDto.DEFAULT_LIMIT) int limit) {
+        try {
+            List<NameMatch> matches = groupService.searchByName(q, PageDto.checkLimit(limit));
+            return !matches.isEmpty()
+                    ? new ResponseEntity<>(matches, HttpStatus.OK)
+                    : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(e.getMessage());
+        }
     }
 
     @GetMapping("/{groupId}")
-    public ResponseEntity<Group> getGroupById(@Positive @NotNull @PathVariable Long groupId) {
+    public ResponseEntity<GroupDto> getGroupById(@Positive @NotNull @PathVariable Long groupId) {
         try {
-            Group group = groupService.findById(groupId);
+            GroupDto group = GroupDto.from(groupService.findById(groupId));
             return new ResponseEntity<>(group, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -54,9 +98,9 @@ public class GroupController {
     }
 
     @GetMapping("/name/{name}")
-    public ResponseEntity<Group> getGroupByName(@NotEmpty @PathVariable String name) {
+    public ResponseEntity<GroupDto> getGroupByName(@NotEmpty @PathVariable String name) {
         try {
-            Group group = groupService.findByName(name);
+            GroupDto group = GroupDto.from(groupService.findByName(name));
             return new ResponseEntity<>(group, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -0,0 +1,68 @@
+package idespring.lab3.controller.importcontroller;
+
+import idespring.lab3.dto.ImportReport;
+import idespring.lab3.service.importservice.ImportService;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+@RestController
+@RequestMapping("/import")
+public class ImportController {
+    private final ImportService importService;
+    private final String localDirectory;
+
+    @Autowired
+    public ImportController(ImportService importService,
+                            @Value("${import.localDir:}") String localDirectory) {
+        this.importService = importService;
+        this.localDirectory = localDirectory;
+    }
+
+    @PostMapping("/{type}")
+    public ResponseEntity<?> importCsv(
+            @PathVariable String type,
+            @RequestParam(required = false) MultipartFile file,
+            @RequestParam(required = false) String path,
+            @RequestParam(required = false, defaultValue = "0") long startLine) {
+        try (Reader reader = openReader(file, path)) {
+            ImportReport report = importService.importCsv(type, reader, startLine);
+            return report.completed()
+                    ? new ResponseEntity<>(report, HttpStatus.OK)
+                    : new ResponseEntity<>(report, HttpStatus.INTERNAL_SERVER_ERROR);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Cannot read import file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Local paths are only accepted inside {@code import.localDir}, and only when it is set.
+     */
+    private Reader openReader(MultipartFile file, String path) throws IOException {
+        if (file != null && !file.isEmpty()) {
+            return new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8);
+        }
+        if (path == null || localDirectory.isEmpty()) {
+            throw new IllegalArgumentException("Upload a file or give a path under the "
+                    + "configured import directory");
+        }
+        Path root = Path.of(localDirectory).toAbsolutePath().normalize();
+        Path resolved = root.resolve(path).normalize();
+        if (!resolved.startsWith(root)) {
+            throw new IllegalArgumentException("Path is outside the import directory");
+        }
+        return Files.newBufferedReader(resolved, StandardCharsets.UTF_8);
+    }
+}
@@ -1,14 +1,27 @@
 package idespring.lab3.controller.markcontroller;
 
+import idespring.lab3.dto.LeaderboardEntryDto;
+import idespring.lab3.dto.MarkBatchItem;
+import idespring.lab3.dto.MarkBatchResult;
+import idespring.lab3.dto.MarkDto;
+import idespring.lab3.dto.MarkStatsDto;
+import idespring.lab3.dto.PageDto;
 import idespring.lab3.exceptions.SubjectNotAssignedException;
 import idespring.lab3.model.Mark;
+import idespring.lab3.model.snapshot.PageCursor;
 import idespring.lab3.service.markservice.MarkService;
+import idespring.lab3.service.markservice.MarkStats;
+import idespring.lab3.service.markservice.RankedStudent;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
-import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -17,6 +30,7 @@ import org.springframework.web.bind.annotation.*;
 @RestController
 @RequestMapping("/marks")
 public class MarkController {
+    private static final String DEFAULT_LEADERBOARD_SIZE = "20";
     private final MarkService markService;
 
     @Autowired
@@ -27,7 +41,8 @@ public class MarkController {
     @PostMapping
     public ResponseEntity<?> createMark(@Valid @RequestBody Mark mark) {
         try {
-            return new ResponseEntity<>(markService.addMark(mark), HttpStatus.CREATED);
+            return new ResponseEntity<>(MarkDto.from(markService.addMark(mark)),
+                    HttpStatus.CREATED);
         } catch (SubjectNotAssignedException e) {
             return ResponseEntity
                     .status(HttpStatus.BAD_REQUEST)
@@ -39,24 +54,87 @@ public class MarkController {
         }
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<?> createMarks(@RequestBody List<MarkBatchItem> marks) {
+        try {
+            MarkBatchResult result = markService.addMarks(marks);
+            return result.inserted() > 0
+                    ? new ResponseEntity<>(result, HttpStatus.CREATED)
+                    : new ResponseEntity<>(result, HttpStatus.BAD_REQUEST);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(e.getMessage());
+        }
+    }
+
     @GetMapping
-    public ResponseEntity<Set<Mark>> getMarks(
+    public ResponseEntity<?> getMarks(
             @RequestParam(required = false) Long studentId,
-            @RequestParam(required = false) Long subjectId) {
-        Set<Mark> marks = new HashSet<>(markService.readMarks(studentId, subjectId));
-        return !marks.isEmpty()
-                ? new ResponseEntity<>(marks, HttpStatus.OK)
-                : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            @RequestParam(required = false) Long subjectId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = PageDto.DEFAULT_LIMIT) int limit) {
+        try {
+            PageDto<MarkDto> marks = PageDto.from(markService.readMarks(studentId, subjectId,
+                    PageCursor.decode(cursor), PageDto.checkLimit(limit)), MarkDto::from);
+            return !marks.items().isEmpty()
+                    ? new ResponseEntity<>(marks, HttpStatus.OK)
+                    : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(e.getMessage());
+        }
     }
 
     @GetMapping("/value/{value}")
-    public ResponseEntity<Set<Mark>> getMarksByValue(@Positive @PathVariable int value) {
-        Set<Mark> marks = new HashSet<>(markService.findByValue(value));
+    public ResponseEntity<Set<MarkDto>> getMarksByValue(@Positive @PathVariable int value) {
+        Set<MarkDto> marks = markService.findByValue(value).stream()
+                .map(MarkDto::from).collect(Collectors.toSet());
         return !marks.isEmpty()
                 ? new ResponseEntity<>(marks, HttpStatus.OK)
                 : new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
 
+    @GetMapping("/distribution")
+    public ResponseEntity<Map<Integer, Long>> getValueDistribution(
+            @RequestParam(required = false) Long subjectId,
+            @RequestParam(required = false) Long groupId) {
+        return new ResponseEntity<>(markService.countByValue(subjectId, groupId),
+                HttpStatus.OK);
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<MarkStatsDto> getStats(
+            @RequestParam(required = false) Long subjectId,
+            @RequestParam(required = false) Long groupId) {
+        MarkStats stats = markService.getStats(subjectId, groupId);
+        return stats.count() > 0
+                ? new ResponseEntity<>(MarkStatsDto.from(stats), HttpStatus.OK)
+                : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
+    @GetMapping("/stats/groups")
+    public ResponseEntity<Map<Long, MarkStatsDto>> getStatsByGroup(
+            @RequestParam(required = false) Long subjectId) {
+        return statsByKey(markService.getStatsByGroup(subjectId));
+    }
+
+    @GetMapping("/stats/subjects")
+    public ResponseEntity<Map<Long, MarkStatsDto>> getStatsBySubject(
+            @RequestParam(required = false) Long groupId) {
+        return statsByKey(markService.getStatsBySubject(groupId));
+    }
+
+    private static ResponseEntity<Map<Long, MarkStatsDto>> statsByKey(
+            Map<Long, MarkStats> stats) {
+        Map<Long, MarkStatsDto> body = new TreeMap<>();
+        stats.forEach((key, value) -> body.put(key, MarkStatsDto.from(value)));
+        return !body.isEmpty()
+                ? new ResponseEntity<>(body, HttpStatus.OK)
+                : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
     @GetMapping("/average/student/{studentId}")
     public ResponseEntity<Double> getAverageMarkByStudent(
             @Positive @NotNull @PathVariable Long studentId) {
@@ -75,6 +153,40 @@ public class MarkController {
                 : new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
 
+    @GetMapping("/leaderboard/subject/{subjectId}")
+    public ResponseEntity<?> getSubjectLeaderboard(
+            @Positive @NotNull @PathVariable Long subjectId,
+            @RequestParam(defaultValue = DEFAULT_LEADERBOARD_SIZE) int limit) {
+        try {
+            return leaderboard(markService.topStudentsBySubject(subjectId,
+                    PageDto.checkLimit(limit)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/leaderboard/group/{groupId}")
+    public ResponseEntity<?> getGroupLeaderboard(
+            @Positive @NotNull @PathVariable Long groupId,
+            @RequestParam(defaultValue = DEFAULT_LEADERBOARD_SIZE) int limit) {
+        try {
+            return leaderboard(markService.topStudentsByGroup(groupId,
+                    PageDto.checkLimit(limit)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    private static ResponseEntity<List<LeaderboardEntryDto>> leaderboard(
+            List<RankedStudent> top) {
+        List<LeaderboardEntryDto> entries = IntStream.range(0, top.size())
+                .mapToObj(i -> LeaderboardEntryDto.from(i + 1, top.get(i)))
+                .toList();
+        return !entries.isEmpty()
+                ? new ResponseEntity<>(entries, HttpStatus.OK)
+                : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
     @DeleteMapping("/delete-specific")
     public ResponseEntity<String> deleteSpecificMark(
             @RequestParam Long studentId,
@@ -0,0 +1,42 @@
+package idespring.lab3.controller.reportcontroller;
+
+import idespring.lab3.dto.GroupReportDto;
+import idespring.lab3.service.reportservice.ReportService;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/reports")
+public class ReportController {
+    private final ReportService reportService;
+
+    @Autowired
+    public ReportController(ReportService reportService) {
+        this.reportService = reportService;
+    }
+
+    @GetMapping("/groups")
+    public ResponseEntity<List<GroupReportDto>> getGroupReports() {
+        List<GroupReportDto> reports = reportService.getGroupReports();
+        return !reports.isEmpty()
+                ? new ResponseEntity<>(reports, HttpStatus.OK)
+                : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
+    @GetMapping("/groups/{groupId}")
+    public ResponseEntity<?> getGroupReport(@Positive @NotNull @PathVariable Long groupId) {
+        try {
+            return new ResponseEntity<>(reportService.getGroupReport(groupId), HttpStatus.OK);
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity
+                    .status(HttpStatus.NOT_FOUND)
+                    .body(e.getMessage());
+        }
+    }
+}
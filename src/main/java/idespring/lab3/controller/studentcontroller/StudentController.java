@@ -1,9 +1,14 @@
 package idespring.lab3.controller.studentcontroller;
 
+import idespring.lab3.dto.PageDto;
+import idespring.lab3.dto.StudentDto;
 import idespring.lab3.model.Student;
+import idespring.lab3.model.snapshot.PageCursor;
+import idespring.lab3.service.searchservice.NameMatch;
 import idespring.lab3.service.studservice.StudentServ;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import java.util.List;
@@ -23,14 +28,16 @@ public class StudentController {
     }
 
     @PostMapping
-    public ResponseEntity<Student> createStudent(@Valid @RequestBody Student student) {
-        return new ResponseEntity<>(studentService.addStudent(student), HttpStatus.CREATED);
+    public ResponseEntity<StudentDto> createStudent(@Valid @RequestBody Student student) {
+        return new ResponseEntity<>(StudentDto.from(studentService.addStudent(student)),
+                HttpStatus.CREATED);
     }
 
     @GetMapping("/{studentId}")
-    public ResponseEntity<Student> getStudentById(@Positive @NotNull @PathVariable Long studentId) {
+    public ResponseEntity<StudentDto> getStudentById(
+            @Positive @NotNull @PathVariable Long studentId) {
         try {
-            Student student = studentService.findById(studentId);
+            StudentDto student = StudentDto.from(studentService.findById(studentId));
             return new ResponseEntity<>(student, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -38,33 +45,88 @@ public class StudentController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Student>> getStudents(
+    public ResponseEntity<?> getStudents(
             @RequestParam(required = false) Integer age,
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge,
             @RequestParam(required = false) String sort,
-            @RequestParam(required = false) Long id) {
-        List<Student> students = studentService.readStudents(age, sort, id);
-        return !students.isEmpty()
-                ? new ResponseEntity<>(students, HttpStatus.OK)
-                : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            @RequestParam(required = false) Long id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = PageDto.DEFAULT_LIMIT) int limit) {
+        try {
+            PageDto<StudentDto> students = PageDto.from(studentService.readStudents(age,
+                    minAge, maxAge, sort, id, PageCursor.decode(cursor),
+                    PageDto.checkLimit(limit)), StudentDto::from);
+            return !students.items().isEmpty()
+                    ? new ResponseEntity<>(students, HttpStatus.OK)
+                    : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (EntityNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(e.getMessage());
+        }
+    }
+
+    @GetMapping(params = "ids")
+    public ResponseEntity<?> getStudentsByIds(@RequestParam List<Long> ids) {
+        try {
+            List<StudentDto> students = studentService.findAllByIds(PageDto.checkIds(ids)).stream()
+                    .map(StudentDto::from)
+                    .toList();
+            return !students.isEmpty()
+                    ? new ResponseEntity<>(students, HttpStatus.OK)
+                    : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> searchStudents(
+            @NotEmpty @RequestParam String q,
+            @RequestParam(defaultValue = PageDto.DEFAULT_LIMIT) int limit) {
+        try {
+            List<NameMatch> matches = studentService.searchByName(q, PageDto.checkLimit(limit));
+            return !matches.isEmpty()
+                    ? new ResponseEntity<>(matches, HttpStatus.OK)
+                    : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(e.getMessage());
+        }
     }
 
     @GetMapping("/group/{groupId}")
-    public ResponseEntity<List<Student>> getStudentsByGroup(
-            @Positive @NotNull @PathVariable Long groupId) {
-        List<Student> students = studentService.findByGroupId(groupId);
-        return !students.isEmpty()
-                ? new ResponseEntity<>(students, HttpStatus.OK)
-                : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    public ResponseEntity<?> getStudentsByGroup(
+            @Positive @NotNull @PathVariable Long groupId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = PageDto.DEFAULT_LIMIT) int limit) {
+        try {
+            PageDto<StudentDto> students = PageDto.from(studentService.findByGroupId(groupId,
+                    PageCursor.decode(cursor), PageDto.checkLimit(limit)), StudentDto::from);
+            return !students.items().isEmpty()
+                    ? new ResponseEntity<>(students, HttpStatus.OK)
+                    : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(e.getMessage());
+        }
     }
 
     @PutMapping("/{studentId}")
-    public ResponseEntity<Student> updateStudent(
+    public ResponseEntity<StudentDto> updateStudent(
             @Positive @NotNull @PathVariable Long studentId,
             @RequestParam(required = false, defaultValue = "unknown") String name,
             @Positive @RequestParam(required = false, defaultValue = "15") int age) {
         try {
             studentService.updateStudent(name, age, studentId);
-            Student updatedStudent = studentService.findById(studentId);
+            StudentDto updatedStudent = StudentDto.from(studentService.findById(studentId));
             return new ResponseEntity<>(updatedStudent, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -1,11 +1,13 @@
 package idespring.lab3.controller.studsubcontroller;
 
-import idespring.lab3.model.Student;
-import idespring.lab3.model.Subject;
+import idespring.lab3.dto.StudentDto;
+import idespring.lab3.dto.StudentWithSubjectsDto;
+import idespring.lab3.dto.SubjectDto;
+import idespring.lab3.dto.SubjectWithStudentsDto;
 import idespring.lab3.service.studentsubjserv.StudentSubjectService;
 import jakarta.persistence.EntityNotFoundException;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -46,18 +48,19 @@ public class StudentSubjectController {
     }
 
     @GetMapping("/{studentId}/subjects")
-    public ResponseEntity<Set<Subject>> getSubjectsByStudent(@PathVariable Long studentId) {
-        Set<Subject> subjects = new HashSet<>(studentSubjectService
-                .getSubjectsByStudent(studentId));
+    public ResponseEntity<Set<SubjectDto>> getSubjectsByStudent(@PathVariable Long studentId) {
+        Set<SubjectDto> subjects = studentSubjectService.getSubjectsByStudent(studentId)
+                .stream().map(SubjectDto::from).collect(Collectors.toSet());
         return !subjects.isEmpty()
                 ? new ResponseEntity<>(subjects, HttpStatus.OK)
                 : new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
 
     @GetMapping("/{subjectId}/students")
-    public ResponseEntity<Set<Student>> getStudentsBySubject(@PathVariable Long subjectId) {
+    public ResponseEntity<Set<StudentDto>> getStudentsBySubject(@PathVariable Long subjectId) {
         try {
-            Set<Student> students = studentSubjectService.getStudentsBySubject(subjectId);
+            Set<StudentDto> students = studentSubjectService.getStudentsBySubject(subjectId)
+                    .stream().map(StudentDto::from).collect(Collectors.toSet());
             return !students.isEmpty()
                     ? new ResponseEntity<>(students, HttpStatus.OK)
                     : new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -67,9 +70,11 @@ public class StudentSubjectController {
     }
 
     @GetMapping("/student/{studentId}/with-subjects")
-    public ResponseEntity<Student> getStudentWithSubjects(@PathVariable Long studentId) {
+    public ResponseEntity<StudentWithSubjectsDto> getStudentWithSubjects(
+            @PathVariable Long studentId) {
         try {
-            Student student = studentSubjectService.findStudentWithSubjects(studentId);
+            StudentWithSubjectsDto student = StudentWithSubjectsDto.from(
+                    studentSubjectService.findStudentWithSubjects(studentId));
             return new ResponseEntity<>(student, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -77,9 +82,11 @@ public class StudentSubjectController {
     }
 
     @GetMapping("/subject/{subjectId}/with-students")
-    public ResponseEntity<Subject> getSubjectWithStudents(@PathVariable Long subjectId) {
+    public ResponseEntity<SubjectWithStudentsDto> getSubjectWithStudents(
+            @PathVariable Long subjectId) {
         try {
-            Subject subject = studentSubjectService.findSubjectWithStudents(subjectId);
+            SubjectWithStudentsDto subject = SubjectWithStudentsDto.from(
+                    studentSubjectService.findSubjectWithStudents(subjectId));
             return new ResponseEntity<>(subject, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
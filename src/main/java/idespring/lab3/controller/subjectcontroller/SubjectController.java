@@ -1,14 +1,17 @@
 package idespring.lab3.controller.subjectcontroller;
 
+import idespring.lab3.dto.PageDto;
+import idespring.lab3.dto.SubjectDto;
 import idespring.lab3.model.Subject;
+import idespring.lab3.model.snapshot.PageCursor;
+import idespring.lab3.service.searchservice.NameMatch;
 import idespring.lab3.service.subjectservice.SubjectService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -25,27 +28,70 @@ public class SubjectController {
     }
 
     @PostMapping
-    public ResponseEntity<Subject> createSubject(@Valid @RequestBody Subject subject) {
+    public ResponseEntity<SubjectDto> createSubject(@Valid @RequestBody Subject subject) {
         if (subjectService.existsByName(subject.getName())) {
             return new ResponseEntity<>(HttpStatus.CONFLICT);
         }
-        return new ResponseEntity<>(subjectService.addSubject(subject), HttpStatus.CREATED);
+        return new ResponseEntity<>(SubjectDto.from(subjectService.addSubject(subject)),
+                HttpStatus.CREATED);
     }
 
     @GetMapping
-    public ResponseEntity<Set<Subject>> getSubjects(
+    public ResponseEntity<?> getSubjects(
             @RequestParam(required = false) String namePattern,
-            @RequestParam(required = false) String sort) {
-        Set<Subject> subjects = new HashSet<>(subjectService.readSubjects(namePattern, sort));
-        return !subjects.isEmpty()
-                ? new ResponseEntity<>(subjects, HttpStatus.OK)
-                : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = PageDto.DEFAULT_LIMIT) int limit) {
+        try {
+            PageDto<SubjectDto> subjects = PageDto.from(subjectService.readSubjects(namePattern, sort,
+                    PageCursor.decode(cursor), PageDto.checkLimit(limit)), SubjectDto::from);
+            return !subjects.items().isEmpty()
+                    ? new ResponseEntity<>(subjects, HttpStatus.OK)
+                    : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(e.getMessage());
+        }
+    }
+
+    @GetMapping(params = "ids")
+    public ResponseEntity<?> getSubjectsByIds(@RequestParam List<Long> ids) {
+        try {
+            List<SubjectDto> subjects = subjectService.findAllByIds(PageDto.checkIds(ids)).stream()
+                    .map(SubjectDto::from)
+                    .toList();
+            return !subjects.isEmpty()
+                    ? new ResponseEntity<>(subjects, HttpStatus.OK)
+                    : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> searchSubjects(
+            @NotEmpty @RequestParam String q,
+            @RequestParam(defaultValue = PageDto.DEFAULT_LIMIT) int limit) {
+        try {
+            List<NameMatch> matches = subjectService.searchByName(q, PageDto.checkLimit(limit));
+            return !matches.isEmpty()
+                    ? new ResponseEntity<>(matches, HttpStatus.OK)
+                    : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(e.getMessage());
+        }
     }
 
     @GetMapping("/{subjectId}")
-    public ResponseEntity<Subject> getSubjectById(@Positive @NotNull @PathVariable Long subjectId) {
+    public ResponseEntity<SubjectDto> getSubjectById(
+            @Positive @NotNull @PathVariable Long subjectId) {
         try {
-            Subject subject = subjectService.findById(subjectId);
+            SubjectDto subject = SubjectDto.from(subjectService.findById(subjectId));
             return new ResponseEntity<>(subject, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -53,9 +99,9 @@ public class SubjectController {
     }
 
     @GetMapping("/name/{name}")
-    public ResponseEntity<Subject> getSubjectByName(@NotEmpty @PathVariable String name) {
+    public ResponseEntity<SubjectDto> getSubjectByName(@NotEmpty @PathVariable String name) {
         try {
-            Subject subject = subjectService.findByName(name);
+            SubjectDto subject = SubjectDto.from(subjectService.findByName(name));
             return new ResponseEntity<>(subject, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
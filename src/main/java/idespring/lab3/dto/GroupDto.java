@@ -0,0 +1,9 @@
+package idespring.lab3.dto;
+
+import idespring.lab3.model.snapshot.GroupSnapshot;
+
+public record GroupDto(long id, String name) {
+    public static GroupDto from(GroupSnapshot group) {
+        return new GroupDto(group.id(), group.name());
+    }
+}
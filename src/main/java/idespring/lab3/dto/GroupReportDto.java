@@ -0,0 +1,6 @@
+package idespring.lab3.dto;
+
+import java.util.List;
+
+public record GroupReportDto(long groupId, long students, long marks, Double failingShare,
+                             List<SubjectReportDto> subjects) {}
@@ -0,0 +1,13 @@
+package idespring.lab3.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a CSV import. Rows up to {@code nextLine} are committed; a failed or
+ * interrupted import is resumed by sending the same file with that line as the start.
+ */
+public record ImportReport(String type, long rowsRead, long rowsImported, long rowsRejected,
+                           long nextLine, boolean completed, String failure,
+                           List<RowError> errors) {
+    public record RowError(long line, String reason) {}
+}
@@ -0,0 +1,10 @@
+package idespring.lab3.dto;
+
+import idespring.lab3.service.markservice.RankedStudent;
+
+public record LeaderboardEntryDto(int rank, long studentId, double average, long marks) {
+    public static LeaderboardEntryDto from(int rank, RankedStudent student) {
+        return new LeaderboardEntryDto(rank, student.studentId(), student.average(),
+                student.count());
+    }
+}
@@ -0,0 +1,3 @@
+package idespring.lab3.dto;
+
+public record MarkBatchItem(Long studentId, Long subjectId, Integer value) {}
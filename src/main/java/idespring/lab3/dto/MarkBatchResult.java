@@ -0,0 +1,7 @@
+package idespring.lab3.dto;
+
+import java.util.List;
+
+public record MarkBatchResult(int received, int inserted, List<RowError> errors) {
+    public record RowError(int index, String reason) {}
+}
@@ -0,0 +1,9 @@
+package idespring.lab3.dto;
+
+import idespring.lab3.model.snapshot.MarkSnapshot;
+
+public record MarkDto(long id, int value, Long studentId, Long subjectId) {
+    public static MarkDto from(MarkSnapshot mark) {
+        return new MarkDto(mark.id(), mark.value(), mark.studentId(), mark.subjectId());
+    }
+}
@@ -0,0 +1,9 @@
+package idespring.lab3.dto;
+
+import idespring.lab3.service.markservice.MarkStats;
+
+public record MarkStatsDto(long count, Double average, int min, int max) {
+    public static MarkStatsDto from(MarkStats stats) {
+        return new MarkStatsDto(stats.count(), stats.average(), stats.min(), stats.max());
+    }
+}
@@ -0,0 +1,31 @@
+package idespring.lab3.dto;
+
+import idespring.lab3.model.snapshot.KeysetPage;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+public record PageDto<T>(List<T> items, String next) {
+    public static final String DEFAULT_LIMIT = "50";
+    public static final int MAX_LIMIT = 1000;
+
+    public static int checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    public static <T extends Collection<?>> T checkIds(T ids) {
+        if (ids.isEmpty() || ids.size() > MAX_LIMIT) {
+            throw new IllegalArgumentException("ids must hold between 1 and " + MAX_LIMIT
+                    + " values");
+        }
+        return ids;
+    }
+
+    public static <S, T> PageDto<T> from(KeysetPage<S> page, Function<? super S, T> mapper) {
+        List<T> items = page.items().stream().<T>map(mapper).toList();
+        return new PageDto<>(items, page.next() != null ? page.next().encode() : null);
+    }
+}
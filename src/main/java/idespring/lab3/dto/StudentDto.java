@@ -0,0 +1,9 @@
+package idespring.lab3.dto;
+
+import idespring.lab3.model.snapshot.StudentSnapshot;
+
+public record StudentDto(long id, String name, int age, Long groupId) {
+    public static StudentDto from(StudentSnapshot student) {
+        return new StudentDto(student.id(), student.name(), student.age(), student.groupId());
+    }
+}
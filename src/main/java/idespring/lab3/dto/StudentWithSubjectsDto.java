@@ -0,0 +1,14 @@
+package idespring.lab3.dto;
+
+import idespring.lab3.model.snapshot.StudentSnapshot;
+import idespring.lab3.model.snapshot.StudentSubjectsSnapshot;
+import java.util.List;
+
+public record StudentWithSubjectsDto(long id, String name, int age, Long groupId,
+                                     List<SubjectDto> subjects) {
+    public static StudentWithSubjectsDto from(StudentSubjectsSnapshot snapshot) {
+        StudentSnapshot student = snapshot.student();
+        return new StudentWithSubjectsDto(student.id(), student.name(), student.age(),
+                student.groupId(), snapshot.subjects().stream().map(SubjectDto::from).toList());
+    }
+}
@@ -0,0 +1,9 @@
+package idespring.lab3.dto;
+
+import idespring.lab3.model.snapshot.SubjectSnapshot;
+
+public record SubjectDto(long id, String name) {
+    public static SubjectDto from(SubjectSnapshot subject) {
+        return new SubjectDto(subject.id(), subject.name());
+    }
+}
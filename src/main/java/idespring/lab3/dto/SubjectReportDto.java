@@ -0,0 +1,4 @@
+package idespring.lab3.dto;
+
+public record SubjectReportDto(long subjectId, long marks, Double mean, Double median,
+                               Double stddev, Double failingShare) {}
@@ -0,0 +1,11 @@
+package idespring.lab3.dto;
+
+import idespring.lab3.model.snapshot.SubjectStudentsSnapshot;
+import java.util.List;
+
+public record SubjectWithStudentsDto(long id, String name, List<StudentDto> students) {
+    public static SubjectWithStudentsDto from(SubjectStudentsSnapshot snapshot) {
+        return new SubjectWithStudentsDto(snapshot.subject().id(), snapshot.subject().name(),
+                snapshot.students().stream().map(StudentDto::from).toList());
+    }
+}
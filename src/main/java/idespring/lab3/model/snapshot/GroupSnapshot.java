@@ -0,0 +1,9 @@
+package idespring.lab3.model.snapshot;
+
+import idespring.lab3.model.Group;
+
+public record GroupSnapshot(long id, String name) {
+    public static GroupSnapshot of(Group group) {
+        return new GroupSnapshot(group.getId(), group.getName());
+    }
+}
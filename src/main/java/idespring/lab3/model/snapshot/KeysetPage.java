@@ -0,0 +1,23 @@
+package idespring.lab3.model.snapshot;
+
+import java.util.List;
+import java.util.function.Function;
+
+public record KeysetPage<T>(List<T> items, PageCursor next) {
+    /**
+     * Builds a page from rows fetched with {@code limit + 1}; the extra row only signals
+     * that another page exists and is dropped.
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int limit,
+                                       Function<? super T, PageCursor> cursor) {
+        if (rows.size() <= limit) {
+            return new KeysetPage<>(List.copyOf(rows), null);
+        }
+        List<T> items = List.copyOf(rows.subList(0, limit));
+        return new KeysetPage<>(items, cursor.apply(items.get(limit - 1)));
+    }
+
+    public static <T> KeysetPage<T> single(T item) {
+        return new KeysetPage<>(List.of(item), null);
+    }
+}
@@ -0,0 +1,11 @@
+package idespring.lab3.model.snapshot;
+
+import idespring.lab3.model.Mark;
+
+public record MarkSnapshot(long id, int value, Long studentId, Long subjectId) {
+    public static MarkSnapshot of(Mark mark) {
+        return new MarkSnapshot(mark.getId(), mark.getValue(),
+                mark.getStudent() != null ? mark.getStudent().getId() : null,
+                mark.getSubjectId());
+    }
+}
@@ -0,0 +1,40 @@
+package idespring.lab3.model.snapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position just past the last row of a page: that row's sort key and its id as
+ * the tiebreaker. {@code name} is null for lists ordered by id alone. Clients only see
+ * the opaque {@link #encode() token}.
+ */
+public record PageCursor(String name, long id) {
+    private static final String BY_ID = "i:";
+    private static final String BY_NAME = "n:";
+
+    public String encode() {
+        String raw = name == null ? BY_ID + id : BY_NAME + id + ":" + name;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (raw.startsWith(BY_ID)) {
+                return new PageCursor(null, Long.parseLong(raw.substring(BY_ID.length())));
+            }
+            if (raw.startsWith(BY_NAME)) {
+                int separator = raw.indexOf(':', BY_NAME.length());
+                long id = Long.parseLong(raw.substring(BY_NAME.length(), separator));
+                return new PageCursor(raw.substring(separator + 1), id);
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            // fall through to the error below
+        }
+        throw new IllegalArgumentException("Invalid page cursor: " + token);
+    }
+}
@@ -0,0 +1,10 @@
+package idespring.lab3.model.snapshot;
+
+import idespring.lab3.model.Student;
+
+public record StudentSnapshot(long id, String name, int age, Long groupId) {
+    public static StudentSnapshot of(Student student) {
+        return new StudentSnapshot(student.getId(), student.getName(), student.getAge(),
+                student.getGroup() != null ? student.getGroup().getId() : null);
+    }
+}
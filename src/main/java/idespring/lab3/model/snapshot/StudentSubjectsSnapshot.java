@@ -0,0 +1,15 @@
+package idespring.lab3.model.snapshot;
+
+import idespring.lab3.model.Student;
+import java.util.List;
+
+public record StudentSubjectsSnapshot(StudentSnapshot student, List<SubjectSnapshot> subjects) {
+    public StudentSubjectsSnapshot {
+        subjects = List.copyOf(subjects);
+    }
+
+    public static StudentSubjectsSnapshot of(Student student) {
+        return new StudentSubjectsSnapshot(StudentSnapshot.of(student),
+                student.getSubjects().stream().map(SubjectSnapshot::of).toList());
+    }
+}
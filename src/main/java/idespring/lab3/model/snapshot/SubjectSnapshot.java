@@ -0,0 +1,9 @@
+package idespring.lab3.model.snapshot;
+
+import idespring.lab3.model.Subject;
+
+public record SubjectSnapshot(long id, String name) {
+    public static SubjectSnapshot of(Subject subject) {
+        return new SubjectSnapshot(subject.getId(), subject.getName());
+    }
+}
@@ -0,0 +1,15 @@
+package idespring.lab3.model.snapshot;
+
+import idespring.lab3.model.Subject;
+import java.util.List;
+
+public record SubjectStudentsSnapshot(SubjectSnapshot subject, List<StudentSnapshot> students) {
+    public SubjectStudentsSnapshot {
+        students = List.copyOf(students);
+    }
+
+    public static SubjectStudentsSnapshot of(Subject subject) {
+        return new SubjectStudentsSnapshot(SubjectSnapshot.of(subject),
+                subject.getStudents().stream().map(StudentSnapshot::of).toList());
+    }
+}
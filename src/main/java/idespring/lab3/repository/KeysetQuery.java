@@ -0,0 +1,77 @@
+package idespring.lab3.repository;
+
+import idespring.lab3.model.snapshot.PageCursor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds a native keyset page query: optional filters, a row-value comparison against the
+ * cursor and {@code LIMIT limit + 1}, so the database seeks straight to the page through
+ * the sort index instead of skipping earlier rows.
+ */
+public final class KeysetQuery {
+    private final String select;
+    private final List<String> conditions = new ArrayList<>();
+    private final List<Object> params = new ArrayList<>();
+    private String orderBy = "id";
+    private int limit = -1;
+
+    public KeysetQuery(String select) {
+        this.select = select;
+    }
+
+    public KeysetQuery where(boolean applies, String condition, Object... values) {
+        if (applies) {
+            conditions.add(condition);
+            Collections.addAll(params, values);
+        }
+        return this;
+    }
+
+    public KeysetQuery orderByName(PageCursor after, boolean descending) {
+        return orderBy("name", after, descending);
+    }
+
+    /**
+     * Orders by name in code point order rather than by the column's collation, for pages
+     * whose cursors are shared with an in-memory index.
+     */
+    public KeysetQuery orderByNameInCodePointOrder(PageCursor after, boolean descending) {
+        return orderBy("name COLLATE \"C\"", after, descending);
+    }
+
+    private KeysetQuery orderBy(String name, PageCursor after, boolean descending) {
+        where(after != null, "(" + name + ", id) " + (descending ? "<" : ">") + " (?, ?)",
+                after != null ? after.name() : null, after != null ? after.id() : null);
+        orderBy = descending ? name + " DESC, id DESC" : name + ", id";
+        return this;
+    }
+
+    public KeysetQuery orderById(PageCursor after) {
+        where(after != null, "id > ?", after != null ? after.id() : null);
+        orderBy = "id";
+        return this;
+    }
+
+    public KeysetQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public String sql() {
+        StringBuilder sql = new StringBuilder(select);
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY ").append(orderBy);
+        if (limit >= 0) {
+            sql.append(" LIMIT ").append(limit + 1);
+        }
+        return sql.toString();
+    }
+
+    public Object[] params() {
+        return params.toArray();
+    }
+}
@@ -0,0 +1,7 @@
+package idespring.lab3.repository;
+
+/** Receives (id, name) rows streamed by the repositories' {@code forEachName}. */
+@FunctionalInterface
+public interface NameVisitor {
+    void visit(long id, String name);
+}
@@ -2,6 +2,7 @@ package idespring.lab3.repository.grouprepo;
 
 import idespring.lab3.model.Group;
 import jakarta.transaction.Transactional;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -12,7 +13,7 @@ import org.springframework.stereotype.Repository;
 
 
 @Repository
-public interface GroupRepository extends JpaRepository<Group, Long> {
+public interface GroupRepository extends JpaRepository<Group, Long>, GroupRepositoryCustom {
 
     @Query(value = "SELECT * FROM studentmanagement.groups WHERE name = :name", nativeQuery = true)
     Optional<Group> findByName(@Param("name") String name);
@@ -34,6 +35,10 @@ public interface GroupRepository extends JpaRepository<Group, Long> {
     @Query(value = "SELECT * FROM studentmanagement.groups ORDER BY name", nativeQuery = true)
     List<Group> findAllByOrderByNameAsc();
 
+    @Query(value = "SELECT id FROM studentmanagement.groups WHERE "
+            + "id IN (:ids)", nativeQuery = true)
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT g FROM Group g LEFT JOIN FETCH g.students s WHERE g.id = :id")
     Optional<Group> findByIdWithStudents(@Param("id") Long id);
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package idespring.lab3.repository.grouprepo;
+
+import idespring.lab3.model.snapshot.GroupSnapshot;
+import idespring.lab3.model.snapshot.PageCursor;
+import idespring.lab3.repository.NameVisitor;
+import java.util.List;
+
+public interface GroupRepositoryCustom {
+    List<GroupSnapshot> findPage(String namePattern, boolean descending, PageCursor after,
+                                int limit);
+
+    /**
+     * Streams every (id, name) in id order. Must run inside a transaction for the rows to
+     * be fetched in chunks rather than all at once.
+     */
+    void forEachName(NameVisitor visitor);
+}
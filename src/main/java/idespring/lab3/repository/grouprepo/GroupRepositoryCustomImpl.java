@@ -0,0 +1,45 @@
+package idespring.lab3.repository.grouprepo;
+
+import idespring.lab3.model.snapshot.GroupSnapshot;
+import idespring.lab3.model.snapshot.PageCursor;
+import idespring.lab3.repository.KeysetQuery;
+import idespring.lab3.repository.NameVisitor;
+import java.sql.PreparedStatement;
+import java.util.List;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+public class GroupRepositoryCustomImpl implements GroupRepositoryCustom {
+    private static final String NAMES_SQL =
+            "SELECT id, name FROM studentmanagement.groups ORDER BY id";
+    private static final int NAME_FETCH_SIZE = 10_000;
+    private static final String SELECT_SQL = "SELECT id, name FROM studentmanagement.groups";
+    private static final RowMapper<GroupSnapshot> GROUP_ROW = (rs, row) ->
+            new GroupSnapshot(rs.getLong("id"), rs.getString("name"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public GroupRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<GroupSnapshot> findPage(String namePattern, boolean descending,
+                                       PageCursor after, int limit) {
+        KeysetQuery query = new KeysetQuery(SELECT_SQL)
+                .where(namePattern != null, "name LIKE CONCAT('%', ?, '%')", namePattern)
+                .orderByName(after, descending)
+                .limit(limit);
+        return jdbcTemplate.query(query.sql(), GROUP_ROW, query.params());
+    }
+
+    @Override
+    public void forEachName(NameVisitor visitor) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(NAMES_SQL);
+            statement.setFetchSize(NAME_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> visitor.visit(rs.getLong(1), rs.getString(2)));
+    }
+}
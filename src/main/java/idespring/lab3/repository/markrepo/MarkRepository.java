@@ -1,26 +1,55 @@
 package idespring.lab3.repository.markrepo;
 
 import idespring.lab3.model.Mark;
-import idespring.lab3.model.Student;
-import idespring.lab3.model.Subject;
-import jakarta.transaction.Transactional;
+import idespring.lab3.model.snapshot.MarkSnapshot;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface MarkRepository extends JpaRepository<Mark, Long> {
+public interface MarkRepository extends JpaRepository<Mark, Long>, MarkRepositoryCustom {
+    /**
+     * Reads only the mark columns into snapshots. Selecting the foreign keys through
+     * {@code m.student.id} needs no join, so the eager student and subject associations,
+     * and the student's group behind them, are never loaded.
+     */
+    String SELECT_SNAPSHOT = "SELECT new idespring.lab3.model.snapshot.MarkSnapshot("
+            + "m.id, m.value, m.student.id, m.subject.id) FROM Mark m ";
 
-    @Query("SELECT m FROM Mark m JOIN m.student s JOIN m.subject sub "
-            + "WHERE s = :student AND sub = :subject")
-    List<Mark> findByStudentAndSubject(@Param("student") Student student,
-                                       @Param("subject") Subject subject);
+    @Query(SELECT_SNAPSHOT + "WHERE m.value = :value")
+    List<MarkSnapshot> findByValue(@Param("value") int value);
 
-    @Query(value = "SELECT * FROM studentmanagement.marks WHERE value = :value", nativeQuery = true)
-    List<Mark> findByValue(@Param("value") int value);
+    @Query(value = "SELECT m.value, COUNT(*) FROM studentmanagement.marks m "
+            + "LEFT JOIN studentmanagement.students s ON s.id = m.studentid "
+            + "WHERE (:subjectId IS NULL OR m.subjectid = :subjectId) "
+            + "AND (:groupId IS NULL OR s.groupid = :groupId) "
+            + "GROUP BY m.value ORDER BY m.value", nativeQuery = true)
+    List<Object[]> countByValue(@Param("subjectId") Long subjectId,
+                                @Param("groupId") Long groupId);
+
+    @Query(value = "SELECT m.subjectid, m.value, COUNT(*) FROM studentmanagement.marks m "
+            + "LEFT JOIN studentmanagement.students s ON s.id = m.studentid "
+            + "WHERE m.subjectid IS NOT NULL AND (:groupId IS NULL OR s.groupid = :groupId) "
+            + "GROUP BY m.subjectid, m.value", nativeQuery = true)
+    List<Object[]> countBySubjectAndValue(@Param("groupId") Long groupId);
+
+    @Query(value = "SELECT s.groupid, m.value, COUNT(*) FROM studentmanagement.marks m "
+            + "JOIN studentmanagement.students s ON s.id = m.studentid "
+            + "WHERE s.groupid IS NOT NULL "
+            + "AND (:subjectId IS NULL OR m.subjectid = :subjectId) "
+            + "GROUP BY s.groupid, m.value", nativeQuery = true)
+    List<Object[]> countByGroupAndValue(@Param("subjectId") Long subjectId);
+
+    @Query(value = "SELECT s.groupid, m.subjectid, m.value, COUNT(*) "
+            + "FROM studentmanagement.marks m "
+            + "JOIN studentmanagement.students s ON s.id = m.studentid "
+            + "WHERE s.groupid IS NOT NULL AND m.subjectid IS NOT NULL "
+            + "AND (:groupId IS NULL OR s.groupid = :groupId) "
+            + "GROUP BY s.groupid, m.subjectid, m.value", nativeQuery = true)
+    List<Object[]> countByGroupSubjectAndValue(@Param("groupId") Long groupId);
 
     @Query(value = "SELECT AVG(value) FROM studentmanagement.marks "
             + "WHERE studentid = :studentId", nativeQuery = true)
@@ -30,25 +59,42 @@ public interface MarkRepository extends JpaRepository<Mark, Long> {
             + "WHERE subjectid = :subjectId", nativeQuery = true)
     Double getAverageMarkBySubjectId(@Param("subjectId") Long subjectId);
 
-    @Query(value = "SELECT * FROM studentmanagement.marks WHERE "
-            + "studentid = :studentId", nativeQuery = true)
-    List<Mark> findByStudentId(@Param("studentId") Long studentId);
+    @Query(value = "SELECT studentid, subjectid, value, COUNT(*) "
+            + "FROM studentmanagement.marks "
+            + "GROUP BY studentid, subjectid, value", nativeQuery = true)
+    List<Object[]> countByStudentSubjectAndValue();
 
-    @Query(value = "SELECT * FROM studentmanagement.marks WHERE "
-            + "subjectid = :subjectId", nativeQuery = true)
-    List<Mark> findBySubjectId(@Param("subjectId") Long subjectId);
+    @Query(value = "SELECT studentid, SUM(value), COUNT(*) FROM studentmanagement.marks "
+            + "WHERE subjectid = :subjectId GROUP BY studentid "
+            + "ORDER BY AVG(value) DESC, COUNT(*) DESC, studentid LIMIT :limit",
+            nativeQuery = true)
+    List<Object[]> findTopStudentsBySubject(@Param("subjectId") long subjectId,
+                                            @Param("limit") int limit);
 
-    @Modifying
-    @Transactional
-    @Query(value = "DELETE FROM studentmanagement.marks "
+    @Query(value = "SELECT m.studentid, SUM(m.value), COUNT(*) FROM studentmanagement.marks m "
+            + "JOIN studentmanagement.students s ON s.id = m.studentid "
+            + "WHERE s.groupid = :groupId GROUP BY m.studentid "
+            + "ORDER BY AVG(m.value) DESC, COUNT(*) DESC, m.studentid LIMIT :limit",
+            nativeQuery = true)
+    List<Object[]> findTopStudentsByGroup(@Param("groupId") long groupId,
+                                          @Param("limit") int limit);
+
+    @Query("SELECT m.id FROM Mark m WHERE m.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Locks the marks a delete by (student, subject, value, optional id) would remove and
+     * returns their ids, so the caller can delete exactly those and report each one.
+     */
+    @Query(value = "SELECT id FROM studentmanagement.marks "
             + "WHERE studentid = :studentId "
-            + "AND (:id IS NULL OR id = :id) "
+            + "AND subjectid = :subjectId "
             + "AND value = :markValue "
-            + "AND subjectid = (SELECT id FROM studentmanagement.subjects "
-            + "WHERE name = :subjectName)",
+            + "AND (:id IS NULL OR id = :id) "
+            + "FOR UPDATE",
             nativeQuery = true)
-    int deleteMarkByStudentIdSubjectNameValueAndOptionalId(@Param("studentId") Long studentId,
-                                                           @Param("subjectName") String subjectName,
-                                                           @Param("markValue") int markValue,
-                                                           @Param("id") Long id);
+    List<Long> lockIdsByStudentSubjectValueAndOptionalId(@Param("studentId") Long studentId,
+                                                         @Param("subjectId") Long subjectId,
+                                                         @Param("markValue") int markValue,
+                                                         @Param("id") Long id);
 }
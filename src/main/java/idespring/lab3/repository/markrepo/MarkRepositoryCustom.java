@@ -0,0 +1,25 @@
+package idespring.lab3.repository.markrepo;
+
+import idespring.lab3.model.Mark;
+import idespring.lab3.model.snapshot.MarkSnapshot;
+import idespring.lab3.model.snapshot.PageCursor;
+import java.util.List;
+
+public interface MarkRepositoryCustom {
+    void insertBatch(List<Mark> marks);
+
+    List<MarkSnapshot> findPage(Long studentId, Long subjectId, PageCursor after, int limit);
+
+    /**
+     * Streams every mark in id order, with 0 standing in for a missing student, subject or
+     * group. The student's group is joined in only when {@code withGroup} is set and is
+     * 0 otherwise. Must run inside a transaction for the rows to be fetched in chunks
+     * rather than all at once.
+     */
+    void forEachMark(boolean withGroup, MarkVisitor visitor);
+
+    @FunctionalInterface
+    interface MarkVisitor {
+        void visit(long id, int value, long studentId, long subjectId, long groupId);
+    }
+}
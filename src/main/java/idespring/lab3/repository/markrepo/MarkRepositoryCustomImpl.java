@@ -0,0 +1,96 @@
+package idespring.lab3.repository.markrepo;
+
+import idespring.lab3.model.Mark;
+import idespring.lab3.model.snapshot.MarkSnapshot;
+import idespring.lab3.model.snapshot.PageCursor;
+import idespring.lab3.repository.KeysetQuery;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+
+public class MarkRepositoryCustomImpl implements MarkRepositoryCustom {
+    private static final String INSERT_SQL = "INSERT INTO studentmanagement.marks "
+            + "(value, studentid, subjectid) VALUES (?, ?, ?)";
+    private static final String SELECT_SQL =
+            "SELECT id, value, studentid, subjectid FROM studentmanagement.marks";
+    private static final String SELECT_WITH_GROUP_SQL =
+            "SELECT m.id, m.value, m.studentid, m.subjectid, s.groupid "
+            + "FROM studentmanagement.marks m "
+            + "LEFT JOIN studentmanagement.students s ON s.id = m.studentid ORDER BY m.id";
+    private static final int STREAM_FETCH_SIZE = 10_000;
+    private static final RowMapper<MarkSnapshot> MARK_ROW = (rs, row) ->
+            new MarkSnapshot(rs.getLong("id"), rs.getInt("value"),
+                    rs.getObject("studentid", Long.class), rs.getObject("subjectid", Long.class));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public MarkRepositoryCustomImpl(JdbcTemplate jdbcTemplate,
+                                    @Value("${marks.batch.jdbcBatchSize:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Inserts the marks with JDBC batching, {@code batchSize} rows per round trip, and
+     * copies the generated ids back onto them.
+     */
+    @Override
+    public void insertBatch(List<Mark> marks) {
+        for (int from = 0; from < marks.size(); from += batchSize) {
+            List<Mark> chunk = marks.subList(from, Math.min(from + batchSize, marks.size()));
+            GeneratedKeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                    connection -> connection.prepareStatement(INSERT_SQL, new String[] {"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            Mark mark = chunk.get(i);
+                            ps.setInt(1, mark.getValue());
+                            ps.setLong(2, mark.getStudent().getId());
+                            ps.setLong(3, mark.getSubjectId());
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return chunk.size();
+                        }
+                    },
+                    keys);
+
+            List<Map<String, Object>> generated = keys.getKeyList();
+            for (int i = 0; i < generated.size() && i < chunk.size(); i++) {
+                chunk.get(i).setId(((Number) generated.get(i).get("id")).longValue());
+            }
+        }
+    }
+
+    @Override
+    public List<MarkSnapshot> findPage(Long studentId, Long subjectId, PageCursor after,
+                                       int limit) {
+        KeysetQuery query = new KeysetQuery(SELECT_SQL)
+                .where(studentId != null, "studentid = ?", studentId)
+                .where(subjectId != null, "subjectid = ?", subjectId)
+                .orderById(after)
+                .limit(limit);
+        return jdbcTemplate.query(query.sql(), MARK_ROW, query.params());
+    }
+
+    @Override
+    public void forEachMark(boolean withGroup, MarkVisitor visitor) {
+        String sql = withGroup ? SELECT_WITH_GROUP_SQL : SELECT_SQL + " ORDER BY id";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> visitor.visit(rs.getLong(1), rs.getInt(2),
+                rs.getLong(3), rs.getLong(4), withGroup ? rs.getLong(5) : 0));
+    }
+}
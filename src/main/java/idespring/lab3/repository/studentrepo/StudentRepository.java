@@ -2,6 +2,8 @@ package idespring.lab3.repository.studentrepo;
 
 import idespring.lab3.model.Student;
 import jakarta.transaction.Transactional;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -48,6 +50,38 @@ public interface StudentRepository extends JpaRepository<Student, Long>, Student
             + "groupid = :groupId", nativeQuery = true)
     Set<Student> findByGroupId(@Param("groupId") Long groupId);
 
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE studentmanagement.students SET groupid = :groupId "
+            + "WHERE id IN (:ids) AND groupid IS NULL", nativeQuery = true)
+    int assignGroup(@Param("ids") Collection<Long> ids, @Param("groupId") Long groupId);
+
+    @Query(value = "SELECT id FROM studentmanagement.students WHERE "
+            + "id IN (:ids)", nativeQuery = true)
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT id, groupid FROM studentmanagement.students WHERE "
+            + "id IN (:ids)", nativeQuery = true)
+    List<Object[]> findGroupIdsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT studentid, subjectid FROM studentmanagement.student_subject "
+            + "WHERE studentid IN (:studentIds)", nativeQuery = true)
+    List<Object[]> findEnrollments(@Param("studentIds") Collection<Long> studentIds);
+
+    @Query(value = "SELECT id, groupid FROM studentmanagement.students "
+            + "WHERE groupid IS NOT NULL", nativeQuery = true)
+    List<Object[]> findGroupAssignments();
+
+    @Query(value = "SELECT groupid, COUNT(*) FROM studentmanagement.students "
+            + "WHERE groupid IS NOT NULL AND (:groupId IS NULL OR groupid = :groupId) "
+            + "GROUP BY groupid", nativeQuery = true)
+    List<Object[]> countByGroup(@Param("groupId") Long groupId);
+
+    @Query(value = "SELECT id, name FROM studentmanagement.students "
+            + "WHERE name ILIKE CONCAT('%', :query, '%') ORDER BY name, id LIMIT :limit",
+            nativeQuery = true)
+    List<Object[]> searchByName(@Param("query") String query, @Param("limit") int limit);
+
     @Query("SELECT s FROM Student s LEFT JOIN FETCH s.subjects WHERE s.id = :id")
     Optional<Student> findByIdWithSubjects(@Param("id") Long id);
 }
\ No newline at end of file
@@ -1,10 +1,41 @@
 package idespring.lab3.repository.studentrepo;
 
 import idespring.lab3.model.Student;
+import idespring.lab3.model.snapshot.PageCursor;
+import idespring.lab3.model.snapshot.StudentSnapshot;
+import idespring.lab3.repository.NameVisitor;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StudentRepositoryCustom {
-    List<Student> findByAgeAndSortByName(int age, String sort);
+    List<StudentSnapshot> findPage(Integer minAge, Integer maxAge, Long groupId,
+                                   boolean descending, PageCursor after, int limit);
 
-    List<Student> sortByName(String sort);
+    void insertBatch(List<Student> students);
+
+    void addSubjectsBatch(List<long[]> enrollments);
+
+    /**
+     * Streams every (student, subject) enrollment, ordered by subject first when
+     * {@code bySubject} is set and by student first otherwise. Must run inside a
+     * transaction for the rows to be fetched in chunks rather than all at once.
+     */
+    void forEachEnrollment(boolean bySubject, EnrollmentVisitor visitor);
+
+    /**
+     * Streams every (id, name) in id order. Must run inside a transaction for the rows to
+     * be fetched in chunks rather than all at once.
+     */
+    void forEachName(NameVisitor visitor);
+
+    /**
+     * Streams every student as a snapshot in id order. Must run inside a transaction for
+     * the rows to be fetched in chunks rather than all at once.
+     */
+    void forEachStudent(Consumer<StudentSnapshot> visitor);
+
+    @FunctionalInterface
+    interface EnrollmentVisitor {
+        void visit(long studentId, long subjectId);
+    }
 }
@@ -1,40 +1,135 @@
 package idespring.lab3.repository.studentrepo;
 
 import idespring.lab3.model.Student;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
+import idespring.lab3.model.snapshot.PageCursor;
+import idespring.lab3.model.snapshot.StudentSnapshot;
+import idespring.lab3.repository.KeysetQuery;
+import idespring.lab3.repository.NameVisitor;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
 
 public class StudentRepositoryCustomImpl implements StudentRepositoryCustom {
+    private static final String INSERT_SQL = "INSERT INTO studentmanagement.students "
+            + "(name, age, groupid) VALUES (?, ?, ?)";
+    private static final String ADD_SUBJECT_SQL = "INSERT INTO studentmanagement.student_subject "
+            + "(studentid, subjectid) VALUES (?, ?) ON CONFLICT DO NOTHING";
+    private static final String ENROLLMENTS_SQL =
+            "SELECT studentid, subjectid FROM studentmanagement.student_subject ORDER BY ";
+    private static final int ENROLLMENT_FETCH_SIZE = 10_000;
+    private static final String NAMES_SQL =
+            "SELECT id, name FROM studentmanagement.students ORDER BY id";
+    private static final int NAME_FETCH_SIZE = 10_000;
+    private static final String SELECT_SQL =
+            "SELECT id, name, age, groupid FROM studentmanagement.students";
+    private static final int STUDENT_FETCH_SIZE = 10_000;
+    private static final RowMapper<StudentSnapshot> STUDENT_ROW = (rs, row) ->
+            new StudentSnapshot(rs.getLong("id"), rs.getString("name"), rs.getInt("age"),
+                    rs.getObject("groupid", Long.class));
 
-    @PersistenceContext
-    private EntityManager em;
+    private final JdbcTemplate jdbcTemplate;
 
+    public StudentRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Inserts the students in one JDBC batch and copies the generated ids back onto them. */
     @Override
-    public List<Student> sortByName(String sort) {
-        String orderBy = "ASC";
-        if ("DESC".equalsIgnoreCase(sort)) {
-            orderBy = "DESC";
+    public void insertBatch(List<Student> students) {
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, new String[] {"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Student student = students.get(i);
+                        ps.setString(1, student.getName());
+                        ps.setInt(2, student.getAge());
+                        ps.setObject(3, student.getGroup() != null
+                                ? student.getGroup().getId() : null, Types.BIGINT);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return students.size();
+                    }
+                },
+                keys);
+
+        List<Map<String, Object>> generated = keys.getKeyList();
+        for (int i = 0; i < generated.size() && i < students.size(); i++) {
+            students.get(i).setId(((Number) generated.get(i).get("id")).longValue());
         }
+    }
 
-        String jpql = "SELECT s FROM Student s ORDER BY s.name " + orderBy;
-        return em.createQuery(jpql, Student.class).getResultList();
+    @Override
+    public void addSubjectsBatch(List<long[]> enrollments) {
+        List<Object[]> rows = new ArrayList<>(enrollments.size());
+        for (long[] enrollment : enrollments) {
+            rows.add(new Object[] {enrollment[0], enrollment[1]});
+        }
+        jdbcTemplate.batchUpdate(ADD_SUBJECT_SQL, rows);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public List<Student> findByAgeAndSortByName(int age, String sort) {
+    public void forEachEnrollment(boolean bySubject, EnrollmentVisitor visitor) {
+        String sql = ENROLLMENTS_SQL
+                + (bySubject ? "subjectid, studentid" : "studentid, subjectid");
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(ENROLLMENT_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> visitor.visit(rs.getLong(1), rs.getLong(2)));
+    }
 
-        String orderBy = "ASC";
-        if ("DESC".equalsIgnoreCase(sort)) {
-            orderBy = "DESC";
+    /**
+     * Reads one page ordered by (name, id) straight into snapshots, fetching
+     * {@code limit + 1} rows so the caller can tell whether another page follows. Age pages
+     * compare names in code point order, the order {@code StudentAgeIndex} keeps, so a
+     * cursor from either stays valid in the other. Group pages are only ever read from
+     * here, so they keep the column's collation and can be served by an index on
+     * (groupid, name, id).
+     */
+    @Override
+    public List<StudentSnapshot> findPage(Integer minAge, Integer maxAge, Long groupId,
+                                          boolean descending, PageCursor after, int limit) {
+        KeysetQuery query = new KeysetQuery(SELECT_SQL)
+                .where(minAge != null, "age >= ?", minAge)
+                .where(maxAge != null, "age <= ?", maxAge)
+                .where(groupId != null, "groupid = ?", groupId);
+        if (groupId != null) {
+            query.orderByName(after, descending);
+        } else {
+            query.orderByNameInCodePointOrder(after, descending);
         }
+        query.limit(limit);
+        return jdbcTemplate.query(query.sql(), STUDENT_ROW, query.params());
+    }
 
-        String sql = "SELECT * FROM studentmanagement.students WHERE age = :age ORDER BY name "
-                + orderBy;
+    @Override
+    public void forEachName(NameVisitor visitor) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(NAMES_SQL);
+            statement.setFetchSize(NAME_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> visitor.visit(rs.getLong(1), rs.getString(2)));
+    }
 
-        return em.createNativeQuery(sql, Student.class)
-                .setParameter("age", age)
-                .getResultList();
+    @Override
+    public void forEachStudent(Consumer<StudentSnapshot> visitor) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_SQL + " ORDER BY id");
+            statement.setFetchSize(STUDENT_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> visitor.accept(STUDENT_ROW.mapRow(rs, 0)));
     }
-}
\ No newline at end of file
+}
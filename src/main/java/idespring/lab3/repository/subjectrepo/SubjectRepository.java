@@ -2,6 +2,7 @@ package idespring.lab3.repository.subjectrepo;
 
 import idespring.lab3.model.Subject;
 import jakarta.transaction.Transactional;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -11,7 +12,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface SubjectRepository extends JpaRepository<Subject, Long> {
+public interface SubjectRepository extends JpaRepository<Subject, Long>, SubjectRepositoryCustom {
 
     @Query(value = "SELECT * FROM studentmanagement.subjects WHERE "
             + "name = :name", nativeQuery = true)
@@ -34,6 +35,10 @@ public interface SubjectRepository extends JpaRepository<Subject, Long> {
     @Query(value = "SELECT * FROM studentmanagement.subjects ORDER BY name", nativeQuery = true)
     List<Subject> findAllByOrderByNameAsc();
 
+    @Query(value = "SELECT id FROM studentmanagement.subjects WHERE "
+            + "id IN (:ids)", nativeQuery = true)
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT s FROM Subject s LEFT JOIN FETCH s.students WHERE s.id = :id")
     Optional<Subject> findByIdWithStudents(@Param("id") Long id);
 
@@ -0,0 +1,17 @@
+package idespring.lab3.repository.subjectrepo;
+
+import idespring.lab3.model.snapshot.SubjectSnapshot;
+import idespring.lab3.model.snapshot.PageCursor;
+import idespring.lab3.repository.NameVisitor;
+import java.util.List;
+
+public interface SubjectRepositoryCustom {
+    List<SubjectSnapshot> findPage(String namePattern, boolean descending, PageCursor after,
+                                int limit);
+
+    /**
+     * Streams every (id, name) in id order. Must run inside a transaction for the rows to
+     * be fetched in chunks rather than all at once.
+     */
+    void forEachName(NameVisitor visitor);
+}
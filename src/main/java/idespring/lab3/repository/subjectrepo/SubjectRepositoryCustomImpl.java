@@ -0,0 +1,45 @@
+package idespring.lab3.repository.subjectrepo;
+
+import idespring.lab3.model.snapshot.SubjectSnapshot;
+import idespring.lab3.model.snapshot.PageCursor;
+import idespring.lab3.repository.KeysetQuery;
+import idespring.lab3.repository.NameVisitor;
+import java.sql.PreparedStatement;
+import java.util.List;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+public class SubjectRepositoryCustomImpl implements SubjectRepositoryCustom {
+    private static final String NAMES_SQL =
+            "SELECT id, name FROM studentmanagement.subjects ORDER BY id";
+    private static final int NAME_FETCH_SIZE = 10_000;
+    private static final String SELECT_SQL = "SELECT id, name FROM studentmanagement.subjects";
+    private static final RowMapper<SubjectSnapshot> SUBJECT_ROW = (rs, row) ->
+            new SubjectSnapshot(rs.getLong("id"), rs.getString("name"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SubjectRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<SubjectSnapshot> findPage(String namePattern, boolean descending,
+                                       PageCursor after, int limit) {
+        KeysetQuery query = new KeysetQuery(SELECT_SQL)
+                .where(namePattern != null, "name LIKE CONCAT('%', ?, '%')", namePattern)
+                .orderByName(after, descending)
+                .limit(limit);
+        return jdbcTemplate.query(query.sql(), SUBJECT_ROW, query.params());
+    }
+
+    @Override
+    public void forEachName(NameVisitor visitor) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(NAMES_SQL);
+            statement.setFetchSize(NAME_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> visitor.visit(rs.getLong(1), rs.getString(2)));
+    }
+}
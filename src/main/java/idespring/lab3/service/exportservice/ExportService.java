@@ -0,0 +1,10 @@
+package idespring.lab3.service.exportservice;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportService {
+    void exportMarks(ExportFormat format, OutputStream out) throws IOException;
+
+    void exportStudents(ExportFormat format, OutputStream out) throws IOException;
+}
@@ -0,0 +1,172 @@
+package idespring.lab3.service.exportservice;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Streams whole tables straight from a JDBC cursor to the response. The PostgreSQL driver
+ * only honours the fetch size inside a transaction, hence {@code @Transactional} here;
+ * each row is written as soon as it is read, so heap use does not grow with the table.
+ */
+@Service
+public class ExportServiceImpl implements ExportService {
+    private static final String MARKS_SQL =
+            "SELECT id, value, studentid, subjectid FROM studentmanagement.marks ORDER BY id";
+    private static final List<String> MARK_COLUMNS =
+            List.of("id", "value", "studentId", "subjectId");
+    private static final String STUDENTS_SQL =
+            "SELECT id, name, age, groupid FROM studentmanagement.students ORDER BY id";
+    private static final List<String> STUDENT_COLUMNS =
+            List.of("id", "name", "age", "groupId");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private static final Logger logger = LoggerFactory.getLogger(ExportServiceImpl.class);
+
+    @Autowired
+    public ExportServiceImpl(DataSource dataSource, ObjectMapper objectMapper,
+                             @Value("${export.fetchSize:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportMarks(ExportFormat format, OutputStream out) throws IOException {
+        final long start = System.nanoTime();
+        long rows = export(MARKS_SQL, MARK_COLUMNS, format, out);
+        long end = System.nanoTime();
+        logger.info("Exported {} marks", rows);
+        logger.info("Execution time for exportMarks: {} ms", (end - start) / 1_000_000);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportStudents(ExportFormat format, OutputStream out) throws IOException {
+        final long start = System.nanoTime();
+        long rows = export(STUDENTS_SQL, STUDENT_COLUMNS, format, out);
+        long end = System.nanoTime();
+        logger.info("Exported {} students", rows);
+        logger.info("Execution time for exportStudents: {} ms", (end - start) / 1_000_000);
+    }
+
+    private long export(String sql, List<String> columns, ExportFormat format,
+                        OutputStream out) throws IOException {
+        RowSink sink = format == ExportFormat.CSV
+                ? new CsvSink(out, columns) : new NdjsonSink(out, columns);
+        long[] rows = new long[1];
+        try {
+            jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                try {
+                    sink.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        sink.finish();
+        return rows[0];
+    }
+
+    private interface RowSink {
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private final class NdjsonSink implements RowSink {
+        private final JsonGenerator generator;
+        private final List<String> columns;
+
+        NdjsonSink(OutputStream out, List<String> columns) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out);
+            this.generator.setRootValueSeparator(null);
+            this.columns = columns;
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < columns.size(); i++) {
+                generator.writeFieldName(columns.get(i));
+                Object value = rs.getObject(i + 1);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof Number number) {
+                    generator.writeNumber(number.longValue());
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static final class CsvSink implements RowSink {
+        private final Writer writer;
+        private final int columnCount;
+
+        CsvSink(OutputStream out, List<String> columns) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.columnCount = columns.size();
+            writer.write(String.join(",", columns));
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            for (int i = 1; i <= columnCount; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                String value = rs.getString(i);
+                if (value != null) {
+                    writer.write(escape(value));
+                }
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        private static String escape(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                    && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
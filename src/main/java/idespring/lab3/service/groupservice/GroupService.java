@@ -1,16 +1,25 @@
 package idespring.lab3.service.groupservice;
 
-import idespring.lab3.model.Group;
+import idespring.lab3.model.snapshot.GroupSnapshot;
+import idespring.lab3.model.snapshot.KeysetPage;
+import idespring.lab3.model.snapshot.PageCursor;
+import idespring.lab3.service.searchservice.NameMatch;
+import java.util.Collection;
 import java.util.List;
 
 public interface GroupService {
-    List<Group> readGroups(String namePattern, String sort);
+    KeysetPage<GroupSnapshot> readGroups(String namePattern, String sort, PageCursor after,
+                                         int limit);
 
-    Group findById(Long id);
+    List<NameMatch> searchByName(String query, int limit);
 
-    Group findByName(String name);
+    GroupSnapshot findById(Long id);
 
-    Group addGroup(String name, List<Integer> studentIds);
+    List<GroupSnapshot> findAllByIds(Collection<Long> ids);
+
+    GroupSnapshot findByName(String name);
+
+    GroupSnapshot addGroup(String name, List<Integer> studentIds);
 
     void deleteGroup(Long id);
 
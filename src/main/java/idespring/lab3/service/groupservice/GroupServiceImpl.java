@@ -1,17 +1,30 @@
 package idespring.lab3.service.groupservice;
 
 import idespring.lab3.config.CacheConfig;
+import idespring.lab3.config.CacheRegion;
+import idespring.lab3.config.CacheTag;
+import idespring.lab3.config.TransactionHooks;
 import idespring.lab3.model.Group;
-import idespring.lab3.model.Student;
+import idespring.lab3.model.snapshot.GroupSnapshot;
+import idespring.lab3.model.snapshot.KeysetPage;
+import idespring.lab3.model.snapshot.PageCursor;
+import idespring.lab3.model.snapshot.StudentSnapshot;
 import idespring.lab3.repository.grouprepo.GroupRepository;
 import idespring.lab3.repository.studentrepo.StudentRepository;
-import idespring.lab3.service.studservice.StudentServiceImpl;
+import idespring.lab3.service.markservice.LeaderboardStore;
+import idespring.lab3.service.markservice.MarkColumnStore;
+import idespring.lab3.service.markservice.MarkAggregateStore;
+import idespring.lab3.service.searchservice.NameMatch;
+import idespring.lab3.service.searchservice.NameSearchIndex;
+import idespring.lab3.service.studservice.StudentAgeIndex;
+import idespring.lab3.service.studservice.StudentServ;
+import idespring.lab3.service.studentsubjserv.EnrollmentIndex;
 import jakarta.annotation.PreDestroy;
 import jakarta.persistence.EntityNotFoundException;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,90 +36,127 @@ import org.springframework.transaction.annotation.Transactional;
 public class GroupServiceImpl implements GroupService {
     private final GroupRepository groupRepository;
     private final StudentRepository studentRepository;
+    private final StudentServ studentService;
+    private final MarkAggregateStore markAggregates;
+    private final EnrollmentIndex enrollmentIndex;
+    private final LeaderboardStore leaderboards;
+    private final MarkColumnStore columnStore;
+    private final NameSearchIndex nameSearch;
+    private final StudentAgeIndex ageIndex;
     private final CacheConfig<String, Object> cache;
+    private final CacheRegion<Long, GroupSnapshot> groupCache;
+    private final CacheRegion<String, GroupSnapshot> groupNameCache;
+    private final CacheRegion<GroupPageQuery, KeysetPage<GroupSnapshot>> groupPageCache;
     private static final Logger logger = LoggerFactory.getLogger(GroupServiceImpl.class);
 
-    private static final String GROUP_ID_PREFIX = "group_";
-    private static final String GROUP_NAME_PREFIX = "name_";
-    private static final String ALL_GROUPS_PREFIX = "allGroups";
-
-    private final Set<String> groupCacheKeys = ConcurrentHashMap.newKeySet();
-    private final StudentServiceImpl studentServiceImpl;
+    private record GroupPageQuery(String namePattern, boolean descending, PageCursor after,
+                                  int limit) {}
 
     @Autowired
     public GroupServiceImpl(GroupRepository groupRepository, StudentRepository studentRepository,
-                            CacheConfig<String, Object> cache,
-                            StudentServiceImpl studentServiceImpl) {
+                            StudentServ studentService,
+                            MarkAggregateStore markAggregates,
+                            EnrollmentIndex enrollmentIndex,
+                            LeaderboardStore leaderboards,
+                            MarkColumnStore columnStore,
+                            NameSearchIndex nameSearch,
+                            StudentAgeIndex ageIndex,
+                            CacheConfig<String, Object> cache) {
         this.groupRepository = groupRepository;
         this.studentRepository = studentRepository;
+        this.studentService = studentService;
+        this.markAggregates = markAggregates;
+        this.enrollmentIndex = enrollmentIndex;
+        this.leaderboards = leaderboards;
+        this.columnStore = columnStore;
+        this.nameSearch = nameSearch;
+        this.ageIndex = ageIndex;
         this.cache = cache;
-        this.studentServiceImpl = studentServiceImpl;
+        this.groupCache = cache.region("groups",
+                (id, group) -> List.of(CacheTag.group(id)));
+        this.groupNameCache = cache.region("groups.byName",
+                (name, group) -> List.of(CacheTag.group(group.id())));
+        this.groupPageCache = cache.refreshingRegion("groups.pages",
+                (query, page) -> List.of(CacheTag.GROUPS));
     }
 
     @Override
-    public List<Group> readGroups(String namePattern, String sort) {
-        String cacheKey = ALL_GROUPS_PREFIX
-                + (namePattern != null ? namePattern : "") + (sort != null ? sort : "");
-
-        groupCacheKeys.add(cacheKey);
-
-        List<Group> cachedGroups = (List<Group>) cache.get(cacheKey);
-        if (cachedGroups != null) {
-            return cachedGroups;
-        }
+    public KeysetPage<GroupSnapshot> readGroups(String namePattern, String sort,
+                                                PageCursor after, int limit) {
+        return groupPageCache.getOrLoad(new GroupPageQuery(namePattern,
+                "desc".equalsIgnoreCase(sort), after, limit), this::loadGroups);
+    }
 
+    private KeysetPage<GroupSnapshot> loadGroups(GroupPageQuery query) {
         final long start = System.nanoTime();
-        logger.info("Fetching groups with namePattern: {}, sort: {}", namePattern, sort);
-
-        List<Group> groups;
-        if (namePattern != null) {
-            groups = groupRepository.findByNameContaining(namePattern);
-        } else if (sort != null && sort.equalsIgnoreCase("asc")) {
-            groups = groupRepository.findAllByOrderByNameAsc();
-        } else {
-            groups = groupRepository.findAll();
-        }
+        logger.info("Fetching groups with namePattern: {}, descending: {}, limit: {}",
+                query.namePattern(), query.descending(), query.limit());
+
+        List<GroupSnapshot> rows = groupRepository.findPage(query.namePattern(),
+                query.descending(), query.after(), query.limit());
 
-        cache.put(cacheKey, groups);
         long end = System.nanoTime();
         logger.info("Execution time for readGroups: {} ms", (end - start) / 1_000_000);
-        return groups;
+        return KeysetPage.of(rows, query.limit(),
+                group -> new PageCursor(group.name(), group.id()));
     }
 
     @Override
-    public Group findById(Long id) {
-        String cacheKey = GROUP_ID_PREFIX + id;
+    public List<NameMatch> searchByName(String query, int limit) {
+        long start = System.nanoTime();
+        logger.info("Searching groups by name: {}, limit: {}", query, limit);
 
-        groupCacheKeys.add(cacheKey);
+        List<NameMatch> matches = nameSearch.isReady()
+                ? nameSearch.searchGroups(query, limit)
+                : groupRepository.findPage(query.trim(), false, null, limit).stream()
+                        .map(group -> new NameMatch(group.id(), group.name()))
+                        .toList();
 
-        Group cachedGroup = (Group) cache.get(cacheKey);
-        if (cachedGroup != null) {
-            return cachedGroup;
-        }
+        long end = System.nanoTime();
+        logger.info("Execution time for searchByName: {} ms", (end - start) / 1_000_000);
+        return matches;
+    }
 
+    @Override
+    public GroupSnapshot findById(Long id) {
+        return groupCache.getOrLoad(id, this::loadById);
+    }
+
+    /** Groups with the given ids in the order asked for, misses loaded in one query. */
+    @Override
+    public List<GroupSnapshot> findAllByIds(Collection<Long> ids) {
+        long start = System.nanoTime();
+        logger.info("Fetching {} groups by id", ids.size());
+
+        List<GroupSnapshot> groups = new ArrayList<>(groupCache.getAllOrLoad(ids,
+                misses -> groupRepository.findAllById(misses).stream()
+                        .map(GroupSnapshot::of)
+                        .collect(Collectors.toMap(GroupSnapshot::id, group -> group)))
+                .values());
+
+        long end = System.nanoTime();
+        logger.info("Execution time for findAllByIds: {} ms", (end - start) / 1_000_000);
+        return groups;
+    }
+
+    private GroupSnapshot loadById(Long id) {
         long start = System.nanoTime();
         logger.info("Fetching group by ID: {}", id);
 
         Group group = groupRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Group not found with id: " + id));
 
-        cache.put(cacheKey, group);
         long end = System.nanoTime();
         logger.info("Execution time for findById: {} ms", (end - start) / 1_000_000);
-        return group;
+        return GroupSnapshot.of(group);
     }
 
     @Override
-    public Group findByName(String name) {
-        String cacheKey = GROUP_NAME_PREFIX + name;
-
-        groupCacheKeys.add(cacheKey);
-
-        Group cachedGroup = (Group) cache.get(cacheKey);
-        if (cachedGroup != null) {
-            return cachedGroup;
-        }
+    public GroupSnapshot findByName(String name) {
+        return groupNameCache.getOrLoad(name, this::loadByName);
+    }
 
+    private GroupSnapshot loadByName(String name) {
         long start = System.nanoTime();
         logger.info("Fetching group by name: {}", name);
 
@@ -114,62 +164,73 @@ public class GroupServiceImpl implements GroupService {
                 .orElseThrow(() ->
                         new EntityNotFoundException("Group not found with name: " + name));
 
-        cache.put(cacheKey, group);
         long end = System.nanoTime();
         logger.info("Execution time for findByName: {} ms", (end - start) / 1_000_000);
-        return group;
+        return GroupSnapshot.of(group);
     }
 
     @Override
     @Transactional
-    public Group addGroup(String name, List<Integer> studentIds) {
+    public GroupSnapshot addGroup(String name, List<Integer> studentIds) {
         final long start = System.nanoTime();
         logger.info("Adding new group: {}", name);
 
-        Group group = new Group(name);
-        if (studentIds != null && !studentIds.isEmpty()) {
-            List<Long> longStudentIds = studentIds.stream().map(Long::valueOf).toList();
-            List<Student> students = studentRepository.findAllById(longStudentIds);
+        List<CacheTag> tags = new ArrayList<>();
+        tags.add(CacheTag.GROUPS);
+        List<Long> assignedIds = studentIds == null ? List.of()
+                : studentIds.stream().map(Long::valueOf).distinct().toList();
+        if (!assignedIds.isEmpty()) {
+            List<StudentSnapshot> students = studentService.findAllByIds(assignedIds);
 
-            if (students.size() != studentIds.size()) {
+            if (students.size() != assignedIds.size()) {
                 Set<Long> foundStudentIds =
-                        students.stream().map(Student::getId).collect(Collectors.toSet());
-                List<Long> nonExistentIds = longStudentIds.stream()
+                        students.stream().map(StudentSnapshot::id).collect(Collectors.toSet());
+                List<Long> nonExistentIds = assignedIds.stream()
                         .filter(id -> !foundStudentIds.contains(id)).toList();
                 throw new
                         EntityNotFoundException("Студенты с ID " + nonExistentIds + " не найдены");
             }
 
-            List<Student> studentsWithGroup = students.stream()
-                    .filter(student -> student.getGroup() != null)
+            List<Long> studentsWithGroupIds = students.stream()
+                    .filter(student -> student.groupId() != null)
+                    .map(StudentSnapshot::id)
                     .toList();
 
-            if (!studentsWithGroup.isEmpty()) {
-                List<Long> studentsWithGroupIds = studentsWithGroup.stream()
-                        .map(Student::getId)
-                        .toList();
+            if (!studentsWithGroupIds.isEmpty()) {
                 throw new IllegalStateException("Студенты с ID " + studentsWithGroupIds
                         + " уже прикреплены к группе");
             }
 
-            for (Student student : students) {
-                student.setGroup(group);
+            for (StudentSnapshot student : students) {
+                tags.add(CacheTag.student(student.id()));
             }
-            group.setStudents(students);
+            tags.add(CacheTag.STUDENTS);
         }
 
-        Group savedGroup = groupRepository.save(group);
-
-        String groupIdKey = GROUP_ID_PREFIX + savedGroup.getId();
-        String groupNameKey = GROUP_NAME_PREFIX + savedGroup.getName();
-
-        cache.put(groupIdKey, savedGroup);
-        cache.put(groupNameKey, savedGroup);
-
-        groupCacheKeys.add(groupIdKey);
-        groupCacheKeys.add(groupNameKey);
+        GroupSnapshot savedGroup = GroupSnapshot.of(groupRepository.save(new Group(name)));
+        if (!assignedIds.isEmpty()) {
+            // A cached snapshot may predate another group's claim, so the update only
+            // takes students that are still unassigned and the whole add rolls back if
+            // any was taken meanwhile.
+            if (studentRepository.assignGroup(assignedIds, savedGroup.id())
+                    != assignedIds.size()) {
+                throw new IllegalStateException("Студенты с ID " + assignedIds
+                        + " уже прикреплены к группе");
+            }
+            leaderboards.recordGroupAssigned(assignedIds, savedGroup.id());
+            columnStore.recordGroupAssigned(assignedIds, savedGroup.id());
+            ageIndex.recordGroupAssigned(assignedIds, savedGroup.id());
+            // The students' marks now belong to this group, which the mark views on
+            // other nodes only learn from this tag.
+            tags.add(CacheTag.groupMarks(savedGroup.id()));
+        }
 
-        invalidateGroupListCaches();
+        nameSearch.recordGroup(savedGroup.id(), savedGroup.name());
+        cache.invalidate(tags.toArray(new CacheTag[0]));
+        TransactionHooks.afterCommit(() -> {
+            groupCache.put(savedGroup.id(), savedGroup);
+            groupNameCache.put(savedGroup.name(), savedGroup);
+        });
 
         long end = System.nanoTime();
         logger.info("Execution time for addGroup: {} ms", (end - start) / 1_000_000);
@@ -193,31 +254,18 @@ public class GroupServiceImpl implements GroupService {
             throw new EntityNotFoundException("Group with ID " + id + " not found");
         }
 
-        Set<Student> students = studentRepository.findByGroupId(id);
-
-        clearStudentsCache(students);
-
-        String groupIdKey = GROUP_ID_PREFIX + id;
-        String groupNameKey = GROUP_NAME_PREFIX + group.getName();
-
-        cache.remove(groupIdKey);
-        cache.remove(groupNameKey);
-
-        groupCacheKeys.remove(groupIdKey);
-        groupCacheKeys.remove(groupNameKey);
-
-        invalidateGroupListCaches();
+        invalidateGroupCaches(id);
 
         groupRepository.deleteById(id);
     }
 
-    private void clearStudentsCache(Set<Student> students) {
-        for (Student student : students) {
-            studentServiceImpl.clearStudentCache(student.getId());
-            studentServiceImpl.clearCachesByAge(student.getAge());
-            studentServiceImpl.clearListCaches();
-        }
-        logger.info("Cleared student cache for {} students", students.size());
+    private void invalidateGroupCaches(Long id) {
+        markAggregates.rebuildAfterCommit();
+        enrollmentIndex.rebuildAfterCommit();
+        nameSearch.rebuildAfterCommit();
+        ageIndex.rebuildAfterCommit();
+        cache.invalidate(CacheTag.group(id), CacheTag.GROUPS, CacheTag.STUDENTS, CacheTag.MARKS);
+        logger.info("Cleared caches depending on group {}", id);
     }
 
     @Transactional
@@ -228,49 +276,16 @@ public class GroupServiceImpl implements GroupService {
             throw new EntityNotFoundException("Group with name " + name + " not found");
         }
 
-        Set<Student> students = studentRepository.findByGroupId(group.getId());
-
-        clearStudentsCache(students);
-
-        String groupIdKey = GROUP_ID_PREFIX + group.getId();
-        String groupNameKey = GROUP_NAME_PREFIX + name;
-
-        cache.remove(groupIdKey);
-        cache.remove(groupNameKey);
-
-        groupCacheKeys.remove(groupIdKey);
-        groupCacheKeys.remove(groupNameKey);
-
-        invalidateGroupListCaches();
+        invalidateGroupCaches(group.getId());
 
         groupRepository.deleteByName(name);
     }
 
-    private void invalidateGroupListCaches() {
-        logger.debug("Invalidating all group list caches");
-
-        Set<String> keysToRemove = new HashSet<>();
-
-        for (String key : groupCacheKeys) {
-            if (key.startsWith(ALL_GROUPS_PREFIX)) {
-                keysToRemove.add(key);
-                cache.remove(key);
-            }
-        }
-
-        groupCacheKeys.removeAll(keysToRemove);
-    }
-
     public void invalidateAllGroupCaches() {
         logger.info("Invalidating all group caches");
-
-        Set<String> keysToRemove = new HashSet<>(groupCacheKeys);
-
-        for (String key : keysToRemove) {
-            cache.remove(key);
-        }
-
-        groupCacheKeys.clear();
+        groupCache.clear();
+        groupNameCache.clear();
+        groupPageCache.clear();
     }
 
     @PreDestroy
@@ -0,0 +1,83 @@
+package idespring.lab3.service.importservice;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads CSV records one at a time without buffering the file. Fields may be quoted, with
+ * {@code ""} for a literal quote, and a quoted field may span lines, as the CSV export
+ * writes them; line breaks inside one come back as {@code \n}.
+ */
+class CsvReader {
+    private final BufferedReader reader;
+    private long lineNumber;
+    private long linesRead;
+
+    CsvReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader buffered
+                ? buffered : new BufferedReader(reader);
+    }
+
+    /** The line the last record returned by {@link #next()} starts on. */
+    long lineNumber() {
+        return lineNumber;
+    }
+
+    /** Lines consumed so far, which is where the last record returned ends. */
+    long linesRead() {
+        return linesRead;
+    }
+
+    String[] next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            linesRead++;
+        } while (line.isBlank());
+        lineNumber = linesRead;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString().trim());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (!quoted) {
+                break;
+            }
+            line = reader.readLine();
+            if (line == null) {
+                throw new IOException("Unterminated quoted field in the record starting on line "
+                        + lineNumber);
+            }
+            linesRead++;
+            field.append('\n');
+        }
+        fields.add(field.toString().trim());
+        return fields.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,9 @@
+package idespring.lab3.service.importservice;
+
+import idespring.lab3.dto.ImportReport;
+import java.io.IOException;
+import java.io.Reader;
+
+public interface ImportService {
+    ImportReport importCsv(String type, Reader reader, long startLine) throws IOException;
+}
@@ -0,0 +1,395 @@
+package idespring.lab3.service.importservice;
+
+import idespring.lab3.config.CacheConfig;
+import idespring.lab3.config.CacheTag;
+import idespring.lab3.dto.ImportReport;
+import idespring.lab3.dto.MarkBatchItem;
+import idespring.lab3.dto.MarkBatchResult;
+import idespring.lab3.model.Group;
+import idespring.lab3.model.Student;
+import idespring.lab3.model.snapshot.StudentSnapshot;
+import idespring.lab3.repository.grouprepo.GroupRepository;
+import idespring.lab3.repository.studentrepo.StudentRepository;
+import idespring.lab3.repository.subjectrepo.SubjectRepository;
+import idespring.lab3.service.markservice.LeaderboardStore;
+import idespring.lab3.service.markservice.MarkService;
+import idespring.lab3.service.searchservice.NameSearchIndex;
+import idespring.lab3.service.studentsubjserv.EnrollmentIndex;
+import idespring.lab3.service.studservice.StudentAgeIndex;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Streams a CSV file into the database in batches of {@code import.batchSize} rows, each
+ * committed in its own transaction, so memory stays flat however long the file is.
+ * Rows that fail validation are reported by line and skipped; a database failure stops
+ * the import and the report says which line to resume from. Each batch collects the
+ * cache tags its rows touch, and those are invalidated once, after the last batch.
+ */
+@Service
+public class ImportServiceImpl implements ImportService {
+    private final StudentRepository studentRepository;
+    private final SubjectRepository subjectRepository;
+    private final GroupRepository groupRepository;
+    private final MarkService markService;
+    private final EnrollmentIndex enrollmentIndex;
+    private final LeaderboardStore leaderboards;
+    private final NameSearchIndex nameSearch;
+    private final StudentAgeIndex ageIndex;
+    private final CacheConfig<String, Object> cache;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxErrors;
+    private static final Logger logger = LoggerFactory.getLogger(ImportServiceImpl.class);
+
+    private enum ImportType {
+        STUDENTS("name", "age"),
+        ENROLLMENTS("studentid", "subjectid"),
+        MARKS("studentid", "subjectid", "value");
+
+        private final List<String> requiredColumns;
+
+        ImportType(String... requiredColumns) {
+            this.requiredColumns = List.of(requiredColumns);
+        }
+    }
+
+    private record CsvRow(long line, String[] fields) {}
+
+    private record BatchOutcome(long imported, List<ImportReport.RowError> errors,
+                                Set<CacheTag> tags) {}
+
+    @Autowired
+    public ImportServiceImpl(StudentRepository studentRepository,
+                             SubjectRepository subjectRepository,
+                             GroupRepository groupRepository,
+                             MarkService markService,
+                             EnrollmentIndex enrollmentIndex,
+                             LeaderboardStore leaderboards,
+                             NameSearchIndex nameSearch,
+                             StudentAgeIndex ageIndex,
+                             CacheConfig<String, Object> cache,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${import.batchSize:1000}") int batchSize,
+                             @Value("${import.maxErrors:1000}") int maxErrors) {
+        this.studentRepository = studentRepository;
+        this.subjectRepository = subjectRepository;
+        this.groupRepository = groupRepository;
+        this.markService = markService;
+        this.enrollmentIndex = enrollmentIndex;
+        this.leaderboards = leaderboards;
+        this.nameSearch = nameSearch;
+        this.ageIndex = ageIndex;
+        this.cache = cache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    @Override
+    public ImportReport importCsv(String type, Reader reader, long startLine)
+            throws IOException {
+        final long start = System.nanoTime();
+        ImportType importType = parseType(type);
+        logger.info("Importing {} from line {}", importType, startLine);
+
+        CsvReader csv = new CsvReader(reader);
+        Map<String, Integer> columns = readHeader(csv.next(), importType);
+
+        long rowsRead = 0;
+        long imported = 0;
+        long rejected = 0;
+        long nextLine = Math.max(startLine, csv.linesRead() + 1);
+        List<ImportReport.RowError> errors = new ArrayList<>();
+        Set<CacheTag> touched = new HashSet<>();
+        String failure = null;
+        List<CsvRow> batch = new ArrayList<>(batchSize);
+        try {
+            String[] fields;
+            while (true) {
+                fields = csv.next();
+                if (fields != null && csv.lineNumber() < startLine) {
+                    continue;
+                }
+                if (fields != null) {
+                    rowsRead++;
+                    batch.add(new CsvRow(csv.lineNumber(), fields));
+                }
+                if (batch.size() == batchSize || (fields == null && !batch.isEmpty())) {
+                    BatchOutcome outcome = transactionTemplate.execute(status ->
+                            writeBatch(importType, columns, batch));
+                    imported += outcome.imported();
+                    rejected += outcome.errors().size();
+                    touched.addAll(outcome.tags());
+                    for (ImportReport.RowError error : outcome.errors()) {
+                        if (errors.size() < maxErrors) {
+                            errors.add(error);
+                        }
+                    }
+                    nextLine = csv.linesRead() + 1;
+                    batch.clear();
+                    logger.info("Imported {} {} rows so far, next line {}",
+                            imported, importType, nextLine);
+                }
+                if (fields == null) {
+                    break;
+                }
+            }
+        } catch (DataAccessException | TransactionException | IOException e) {
+            failure = e.getMessage();
+            logger.warn("Import of {} stopped at line {}", importType, nextLine, e);
+        } finally {
+            if (!touched.isEmpty()) {
+                cache.invalidate(touched.toArray(new CacheTag[0]));
+            }
+        }
+
+        long end = System.nanoTime();
+        logger.info("Execution time for importCsv: {} ms", (end - start) / 1_000_000);
+        return new ImportReport(importType.name().toLowerCase(Locale.ROOT), rowsRead, imported,
+                rejected, nextLine, failure == null, failure, errors);
+    }
+
+    private static ImportType parseType(String type) {
+        try {
+            return ImportType.valueOf(type.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown import type: " + type);
+        }
+    }
+
+    private static Map<String, Integer> readHeader(String[] header, ImportType type) {
+        if (header == null) {
+            throw new IllegalArgumentException("CSV file is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            columns.put(header[i].toLowerCase(Locale.ROOT), i);
+        }
+        for (String column : type.requiredColumns) {
+            if (!columns.containsKey(column)) {
+                throw new IllegalArgumentException("Missing column: " + column);
+            }
+        }
+        return columns;
+    }
+
+    private BatchOutcome writeBatch(ImportType type, Map<String, Integer> columns,
+                                    List<CsvRow> rows) {
+        return switch (type) {
+            case STUDENTS -> writeStudents(columns, rows);
+            case ENROLLMENTS -> writeEnrollments(columns, rows);
+            case MARKS -> writeMarks(columns, rows);
+        };
+    }
+
+    private BatchOutcome writeStudents(Map<String, Integer> columns, List<CsvRow> rows) {
+        List<ImportReport.RowError> errors = new ArrayList<>();
+        List<CsvRow> parsed = new ArrayList<>(rows.size());
+        Set<Long> groupIds = new HashSet<>();
+        for (CsvRow row : rows) {
+            String reason = null;
+            if (field(row, columns, "name") == null) {
+                reason = "name is required";
+            } else if (parsePositiveInt(field(row, columns, "age")) == null) {
+                reason = "age must be a positive integer";
+            } else if (field(row, columns, "groupid") != null
+                    && parseLong(field(row, columns, "groupid")) == null) {
+                reason = "groupId must be a number";
+            }
+            if (reason != null) {
+                errors.add(new ImportReport.RowError(row.line(), reason));
+                continue;
+            }
+            Long groupId = parseLong(field(row, columns, "groupid"));
+            if (groupId != null) {
+                groupIds.add(groupId);
+            }
+            parsed.add(row);
+        }
+
+        Set<Long> existingGroups = groupIds.isEmpty() ? Set.of()
+                : new HashSet<>(groupRepository.findExistingIds(groupIds));
+        List<Student> students = new ArrayList<>(parsed.size());
+        for (CsvRow row : parsed) {
+            Long groupId = parseLong(field(row, columns, "groupid"));
+            if (groupId != null && !existingGroups.contains(groupId)) {
+                errors.add(new ImportReport.RowError(row.line(),
+                        "Group not found with id: " + groupId));
+                continue;
+            }
+            students.add(new Student(field(row, columns, "name"),
+                    parsePositiveInt(field(row, columns, "age")),
+                    groupId != null ? new Group(groupId) : null, new HashSet<>()));
+        }
+
+        Set<CacheTag> tags = new HashSet<>();
+        if (!students.isEmpty()) {
+            studentRepository.insertBatch(students);
+            tags.add(CacheTag.STUDENTS);
+            Map<Long, List<Long>> idsByGroup = new HashMap<>();
+            for (Student student : students) {
+                StudentSnapshot snapshot = StudentSnapshot.of(student);
+                nameSearch.recordStudent(snapshot.id(), snapshot.name());
+                ageIndex.recordStudent(snapshot);
+                if (snapshot.groupId() != null) {
+                    tags.add(CacheTag.group(snapshot.groupId()));
+                    idsByGroup.computeIfAbsent(snapshot.groupId(), group -> new ArrayList<>())
+                            .add(snapshot.id());
+                }
+            }
+            idsByGroup.forEach((groupId, studentIds) ->
+                    leaderboards.recordGroupAssigned(studentIds, groupId));
+        }
+        return new BatchOutcome(students.size(), errors, tags);
+    }
+
+    private BatchOutcome writeEnrollments(Map<String, Integer> columns, List<CsvRow> rows) {
+        List<ImportReport.RowError> errors = new ArrayList<>();
+        List<CsvRow> parsed = new ArrayList<>(rows.size());
+        Set<Long> studentIds = new HashSet<>();
+        Set<Long> subjectIds = new HashSet<>();
+        for (CsvRow row : rows) {
+            Long studentId = parseLong(field(row, columns, "studentid"));
+            Long subjectId = parseLong(field(row, columns, "subjectid"));
+            if (studentId == null || subjectId == null) {
+                errors.add(new ImportReport.RowError(row.line(),
+                        "studentId and subjectId must be numbers"));
+                continue;
+            }
+            studentIds.add(studentId);
+            subjectIds.add(subjectId);
+            parsed.add(row);
+        }
+
+        Set<Long> existingStudents = studentIds.isEmpty() ? Set.of()
+                : new HashSet<>(studentRepository.findExistingIds(studentIds));
+        Set<Long> existingSubjects = subjectIds.isEmpty() ? Set.of()
+                : new HashSet<>(subjectRepository.findExistingIds(subjectIds));
+        List<long[]> enrollments = new ArrayList<>(parsed.size());
+        for (CsvRow row : parsed) {
+            long studentId = parseLong(field(row, columns, "studentid"));
+            long subjectId = parseLong(field(row, columns, "subjectid"));
+            if (!existingStudents.contains(studentId)) {
+                errors.add(new ImportReport.RowError(row.line(),
+                        "Student not found with id: " + studentId));
+            } else if (!existingSubjects.contains(subjectId)) {
+                errors.add(new ImportReport.RowError(row.line(),
+                        "Subject not found with id: " + subjectId));
+            } else {
+                enrollments.add(new long[] {studentId, subjectId});
+            }
+        }
+
+        Set<CacheTag> tags = new HashSet<>();
+        if (!enrollments.isEmpty()) {
+            studentRepository.addSubjectsBatch(enrollments);
+            enrollmentIndex.recordEnrolled(enrollments);
+            for (long[] enrollment : enrollments) {
+                tags.add(CacheTag.student(enrollment[0]));
+                tags.add(CacheTag.subject(enrollment[1]));
+            }
+        }
+        return new BatchOutcome(enrollments.size(), errors, tags);
+    }
+
+    private BatchOutcome writeMarks(Map<String, Integer> columns, List<CsvRow> rows) {
+        List<ImportReport.RowError> errors = new ArrayList<>();
+        List<MarkBatchItem> items = new ArrayList<>(rows.size());
+        List<Long> lines = new ArrayList<>(rows.size());
+        for (CsvRow row : rows) {
+            Long studentId = parseLong(field(row, columns, "studentid"));
+            Long subjectId = parseLong(field(row, columns, "subjectid"));
+            Integer value = parsePositiveInt(field(row, columns, "value"));
+            if (studentId == null || subjectId == null || value == null) {
+                errors.add(new ImportReport.RowError(row.line(),
+                        "studentId, subjectId and a positive value are required"));
+                continue;
+            }
+            items.add(new MarkBatchItem(studentId, subjectId, value));
+            lines.add(row.line());
+        }
+
+        if (items.isEmpty()) {
+            return new BatchOutcome(0, errors, Set.of());
+        }
+        MarkBatchResult result = markService.importMarks(items);
+        Set<Integer> rejectedItems = new HashSet<>();
+        for (MarkBatchResult.RowError error : result.errors()) {
+            errors.add(new ImportReport.RowError(lines.get(error.index()), error.reason()));
+            rejectedItems.add(error.index());
+        }
+        return new BatchOutcome(result.inserted(), errors, markTags(items, rejectedItems));
+    }
+
+    /** The same tags adding the marks one by one would have invalidated. */
+    private Set<CacheTag> markTags(List<MarkBatchItem> items, Set<Integer> rejectedItems) {
+        Set<CacheTag> tags = new HashSet<>();
+        Set<Long> studentIds = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (!rejectedItems.contains(i)) {
+                MarkBatchItem item = items.get(i);
+                tags.add(CacheTag.studentMarks(item.studentId()));
+                tags.add(CacheTag.subjectMarks(item.subjectId()));
+                studentIds.add(item.studentId());
+            }
+        }
+        if (studentIds.isEmpty()) {
+            return tags;
+        }
+        tags.add(CacheTag.MARK_LISTS);
+        for (Object[] row : studentRepository.findGroupIdsByIds(studentIds)) {
+            if (row[1] != null) {
+                tags.add(CacheTag.groupMarks(((Number) row[1]).longValue()));
+            }
+        }
+        return tags;
+    }
+
+    private static String field(CsvRow row, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= row.fields().length || row.fields()[index].isEmpty()) {
+            return null;
+        }
+        return row.fields()[index];
+    }
+
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Integer parsePositiveInt(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            return parsed > 0 ? parsed : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
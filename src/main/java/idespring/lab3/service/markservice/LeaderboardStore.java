@@ -0,0 +1,306 @@
+package idespring.lab3.service.markservice;
+
+import idespring.lab3.config.TransactionHooks;
+import idespring.lab3.model.snapshot.MarkSnapshot;
+import idespring.lab3.repository.studentrepo.StudentRepository;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Students ranked by average mark, per subject and per group. Each leaderboard is a skip
+ * list ordered by {@link RankedStudent}, so reading the top N walks N nodes whatever the
+ * number of marks. The totals behind a position are the ones {@link MarkAggregateStore}
+ * already keeps: whenever it reports a change, the affected positions are re-read from it.
+ * Group assignments are reported by the services that make them.
+ *
+ * <p>The boards are derived again from the aggregates each time those are reloaded, and
+ * the group assignments are re-read with them. Changes that arrive meanwhile are applied
+ * to the current boards and queued, then replayed onto the new boards under the update
+ * lock just before the swap; each re-reads the aggregates, so replaying one twice does no
+ * harm. Until the first derivation finishes {@link #isReady()} is false and callers fall
+ * back to querying.
+ */
+@Component
+public class LeaderboardStore implements MarkChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardStore.class);
+
+    private final MarkAggregateStore markAggregates;
+    private final StudentRepository studentRepository;
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "leaderboards");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private volatile Rankings rankings = new Rankings();
+    private List<Consumer<Rankings>> pending;
+    private final ReloadState reloads = new ReloadState();
+
+    public LeaderboardStore(MarkAggregateStore markAggregates,
+                            StudentRepository studentRepository) {
+        this.markAggregates = markAggregates;
+        this.studentRepository = studentRepository;
+        markAggregates.addListener(this);
+    }
+
+    public boolean isReady() {
+        return reloads.isCurrent() && markAggregates.isReady();
+    }
+
+    public List<RankedStudent> topBySubject(long subjectId, int limit) {
+        Board board = rankings.bySubject.get(subjectId);
+        return board != null ? board.top(limit) : List.of();
+    }
+
+    public List<RankedStudent> topByGroup(long groupId, int limit) {
+        Board board = rankings.byGroup.get(groupId);
+        return board != null ? board.top(limit) : List.of();
+    }
+
+    public void recordGroupAssigned(Collection<Long> studentIds, long groupId) {
+        TransactionHooks.afterCommit(() -> update(current -> {
+            for (Long studentId : studentIds) {
+                current.assignGroup(studentId, groupId, markAggregates.forStudent(studentId));
+            }
+        }));
+    }
+
+    public void rebuildAfterCommit() {
+        TransactionHooks.afterCommit(() -> executor.execute(this::rebuild));
+    }
+
+    @Override
+    public void onMarksChanged(MarkSnapshot mark, int delta) {
+        long studentId = mark.studentId();
+        long subjectId = mark.subjectId();
+        update(current -> current.refresh(studentId, subjectId,
+                markAggregates.forPair(studentId, subjectId),
+                markAggregates.forStudent(studentId)));
+    }
+
+    @Override
+    public void onStudentRemoved(long studentId) {
+        update(current -> current.removeStudent(studentId));
+    }
+
+    @Override
+    public void onSubjectRemoved(long subjectId) {
+        update(current -> current.removeSubject(subjectId, markAggregates::forStudent));
+    }
+
+    @Override
+    public void onRebuildRequested() {
+        reloads.requestReload();
+    }
+
+    @Override
+    public void onAggregatesReloaded() {
+        executor.execute(this::rebuild);
+    }
+
+    /**
+     * Derives every board from the current aggregates and the students' groups, then
+     * swaps them in after replaying the changes that arrived meanwhile. Does nothing
+     * until the aggregates have loaded; each of their reloads calls back here.
+     */
+    public void rebuild() {
+        if (!markAggregates.isReady()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long request = reloads.starting();
+        updateLock.lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            updateLock.unlock();
+        }
+        try {
+            Rankings loaded = new Rankings();
+            for (Object[] row : studentRepository.findGroupAssignments()) {
+                loaded.groupOf.put(((Number) row[0]).longValue(),
+                        ((Number) row[1]).longValue());
+            }
+            markAggregates.forEachPair(loaded::rankInSubject);
+            for (Long studentId : loaded.groupOf.keySet()) {
+                loaded.rankInGroup(studentId, markAggregates.forStudent(studentId));
+            }
+
+            updateLock.lock();
+            try {
+                pending.forEach(change -> change.accept(loaded));
+                rankings = loaded;
+                reloads.loaded(request);
+            } finally {
+                pending = null;
+                updateLock.unlock();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to rebuild leaderboards", e);
+            updateLock.lock();
+            try {
+                pending = null;
+            } finally {
+                updateLock.unlock();
+            }
+        }
+
+        long end = System.nanoTime();
+        logger.info("Execution time for rebuild of leaderboards: {} ms",
+                (end - start) / 1_000_000);
+    }
+
+    private void update(Consumer<Rankings> change) {
+        updateLock.lock();
+        try {
+            change.accept(rankings);
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * The boards and the group of every student. Updates run under the update lock;
+     * boards are read concurrently.
+     */
+    private static final class Rankings {
+        private final Map<Long, Long> groupOf = new ConcurrentHashMap<>();
+        private final Map<Long, Board> bySubject = new ConcurrentHashMap<>();
+        private final Map<Long, Board> byGroup = new ConcurrentHashMap<>();
+
+        void refresh(long studentId, long subjectId, MarkStats pair, MarkStats student) {
+            rankInSubject(studentId, subjectId, pair);
+            rankInGroup(studentId, student);
+        }
+
+        void assignGroup(long studentId, long groupId, MarkStats student) {
+            Long previous = groupOf.put(studentId, groupId);
+            if (previous != null && previous != groupId) {
+                Board board = byGroup.get(previous);
+                if (board != null) {
+                    board.remove(studentId);
+                }
+            }
+            rankInGroup(studentId, student);
+        }
+
+        void removeStudent(long studentId) {
+            for (Board board : bySubject.values()) {
+                board.remove(studentId);
+            }
+            Long group = groupOf.remove(studentId);
+            Board board = group != null ? byGroup.get(group) : null;
+            if (board != null) {
+                board.remove(studentId);
+            }
+        }
+
+        /** Drops a subject's board and re-ranks its students by their remaining marks. */
+        void removeSubject(long subjectId, StudentStats students) {
+            Board board = bySubject.remove(subjectId);
+            if (board == null) {
+                return;
+            }
+            for (RankedStudent ranked : board.entries()) {
+                rankInGroup(ranked.studentId(), students.forStudent(ranked.studentId()));
+            }
+        }
+
+        void rankInSubject(long studentId, long subjectId, MarkStats pair) {
+            if (pair.count() > 0) {
+                board(bySubject, subjectId).put(ranked(studentId, pair));
+            } else {
+                Board board = bySubject.get(subjectId);
+                if (board != null) {
+                    board.remove(studentId);
+                }
+            }
+        }
+
+        void rankInGroup(long studentId, MarkStats student) {
+            Long group = groupOf.get(studentId);
+            if (group == null) {
+                return;
+            }
+            if (student.count() > 0) {
+                board(byGroup, group).put(ranked(studentId, student));
+            } else {
+                Board board = byGroup.get(group);
+                if (board != null) {
+                    board.remove(studentId);
+                }
+            }
+        }
+
+        private static RankedStudent ranked(long studentId, MarkStats stats) {
+            return new RankedStudent(studentId, stats.sum(), stats.count());
+        }
+
+        private static Board board(Map<Long, Board> boards, long id) {
+            return boards.computeIfAbsent(id, key -> new Board());
+        }
+    }
+
+    @FunctionalInterface
+    private interface StudentStats {
+        MarkStats forStudent(long studentId);
+    }
+
+    /**
+     * One leaderboard. An update inserts the new position before removing the old one, so
+     * a concurrent reader may briefly meet both; it skips whichever is no longer current.
+     */
+    private static final class Board {
+        private final ConcurrentSkipListSet<RankedStudent> ranking =
+                new ConcurrentSkipListSet<>();
+        private final Map<Long, RankedStudent> current = new ConcurrentHashMap<>();
+
+        void put(RankedStudent ranked) {
+            RankedStudent previous = current.put(ranked.studentId(), ranked);
+            ranking.add(ranked);
+            if (previous != null && !previous.equals(ranked)) {
+                ranking.remove(previous);
+            }
+        }
+
+        void remove(long studentId) {
+            RankedStudent previous = current.remove(studentId);
+            if (previous != null) {
+                ranking.remove(previous);
+            }
+        }
+
+        Collection<RankedStudent> entries() {
+            return current.values();
+        }
+
+        List<RankedStudent> top(int limit) {
+            List<RankedStudent> top = new ArrayList<>(Math.min(limit, current.size()));
+            for (RankedStudent ranked : ranking) {
+                if (top.size() == limit) {
+                    break;
+                }
+                if (ranked.equals(current.get(ranked.studentId()))) {
+                    top.add(ranked);
+                }
+            }
+            return top;
+        }
+    }
+}
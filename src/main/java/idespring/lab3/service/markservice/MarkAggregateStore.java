@@ -0,0 +1,397 @@
+package idespring.lab3.service.markservice;
+
+import idespring.lab3.config.CacheConfig;
+import idespring.lab3.config.CacheInvalidationTransport;
+import idespring.lab3.config.CacheTag;
+import idespring.lab3.config.TransactionHooks;
+import idespring.lab3.model.snapshot.MarkSnapshot;
+import idespring.lab3.repository.markrepo.MarkRepository;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Running mark statistics per student, per subject and per (student, subject) pair.
+ * Writes adjust the affected aggregates once their transaction commits, so reading an
+ * average never touches the marks table. Each aggregate keeps a count per distinct mark
+ * value, which is what lets min and max survive deletes; mark scales are small, so that
+ * stays constant-size in practice.
+ *
+ * <p>The aggregates are rebuilt from the database at startup and then periodically as a
+ * consistency check. Writes on other nodes are not seen here, so when a peer's cache
+ * invalidation says it changed marks the aggregates, and every view registered as a
+ * {@link MarkChangeListener}, are reloaded. Until the first rebuild finishes, and
+ * between such a message and the reload that follows it, {@link #isReady()} is false
+ * and callers fall back to querying.
+ */
+@Component
+public class MarkAggregateStore {
+    private static final Logger logger = LoggerFactory.getLogger(MarkAggregateStore.class);
+
+    private final MarkRepository markRepository;
+    private final TransactionTemplate snapshotTransaction;
+    private final long checkIntervalMillis;
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "mark-aggregates");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private volatile Aggregates aggregates = new Aggregates();
+    private volatile MarkChangeBuffer<Aggregates> pending;
+    private final ReloadState reloads = new ReloadState();
+    private final List<MarkChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    private record PairKey(long studentId, long subjectId) {}
+
+    public MarkAggregateStore(MarkRepository markRepository,
+                              PlatformTransactionManager transactionManager,
+                              CacheConfig<String, Object> cache,
+                              @Value("${marks.aggregates.checkIntervalMillis:600000}")
+                              long checkIntervalMillis) {
+        this.markRepository = markRepository;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.checkIntervalMillis = checkIntervalMillis;
+        cache.addRemoteListener(new PeerWriteListener());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.execute(this::rebuild);
+        if (checkIntervalMillis > 0) {
+            executor.scheduleWithFixedDelay(this::rebuild, checkIntervalMillis,
+                    checkIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isReady() {
+        return reloads.isCurrent();
+    }
+
+    public void addListener(MarkChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public MarkStats forStudent(long studentId) {
+        return stats(aggregates.byStudent.get(studentId));
+    }
+
+    public MarkStats forSubject(long subjectId) {
+        return stats(aggregates.bySubject.get(subjectId));
+    }
+
+    public MarkStats forPair(long studentId, long subjectId) {
+        return stats(aggregates.byPair.get(new PairKey(studentId, subjectId)));
+    }
+
+    /** Visits the stats of every (student, subject) pair that has marks. */
+    public void forEachPair(PairVisitor visitor) {
+        aggregates.byPair.forEach((key, accumulator) ->
+                visitor.visit(key.studentId(), key.subjectId(), accumulator.stats()));
+    }
+
+    /** Marks without a student or a subject are not aggregated and are skipped. */
+    public void recordAdded(Collection<MarkSnapshot> marks) {
+        TransactionHooks.afterCommit(() -> {
+            for (MarkSnapshot mark : marks) {
+                if (mark.studentId() != null && mark.subjectId() != null) {
+                    apply(mark, 1);
+                    notifyChanged(mark, 1);
+                }
+            }
+        });
+    }
+
+    public void recordRemoved(Collection<MarkSnapshot> marks) {
+        TransactionHooks.afterCommit(() -> {
+            for (MarkSnapshot mark : marks) {
+                if (mark.studentId() != null && mark.subjectId() != null) {
+                    apply(mark, -1);
+                    notifyChanged(mark, -1);
+                }
+            }
+        });
+    }
+
+    public void recordStudentRemoved(long studentId) {
+        TransactionHooks.afterCommit(() -> {
+            update(current -> current.dropPairs(studentId, null));
+            listeners.forEach(listener -> listener.onStudentRemoved(studentId));
+        });
+    }
+
+    public void recordSubjectRemoved(long subjectId) {
+        TransactionHooks.afterCommit(() -> {
+            update(current -> current.dropPairs(null, subjectId));
+            listeners.forEach(listener -> listener.onSubjectRemoved(subjectId));
+        });
+    }
+
+    /**
+     * For deletes that cascade to marks the caller cannot enumerate, such as dropping a
+     * group with its students.
+     */
+    public void rebuildAfterCommit() {
+        TransactionHooks.afterCommit(this::requestRebuild);
+    }
+
+    /** Marks the aggregates and every listening view stale and queues their reloads. */
+    private void requestRebuild() {
+        if (reloads.requestReload()) {
+            executor.execute(this::rebuild);
+        }
+        listeners.forEach(MarkChangeListener::onRebuildRequested);
+    }
+
+    /**
+     * Recomputes every aggregate with one grouped query and swaps the result in. The query
+     * runs in a repeatable-read snapshot without blocking writers; changes committed
+     * meanwhile are buffered and those the snapshot missed are replayed onto the result
+     * before the swap. Any aggregate that then disagrees with the incrementally
+     * maintained one is logged, which is how drift shows up if a write path ever forgets
+     * to report a change. Listeners are told once the new aggregates are in place.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        long request = reloads.starting();
+        MarkChangeBuffer<Aggregates> buffer = new MarkChangeBuffer<>();
+        pending = buffer;
+        boolean reloaded = false;
+        try {
+            reloaded = snapshotTransaction.execute(status -> {
+                Aggregates loaded = load();
+                buffer.replayUnseen(loaded, markRepository);
+
+                rebuildLock.writeLock().lock();
+                try {
+                    buffer.replayUnseen(loaded, markRepository);
+                    if (reloads.hasLoaded()) {
+                        int drifted = loaded.countDrift(aggregates);
+                        if (drifted > 0) {
+                            logger.warn("Mark aggregates drifted from the database: "
+                                    + "{} aggregates fixed", drifted);
+                        }
+                    }
+                    aggregates = loaded;
+                    pending = null;
+                    reloads.loaded(request);
+                } finally {
+                    rebuildLock.writeLock().unlock();
+                }
+                return true;
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Failed to rebuild mark aggregates", e);
+        } finally {
+            pending = null;
+        }
+        if (reloaded) {
+            listeners.forEach(MarkChangeListener::onAggregatesReloaded);
+        }
+
+        long end = System.nanoTime();
+        logger.info("Execution time for rebuild of mark aggregates: {} ms",
+                (end - start) / 1_000_000);
+    }
+
+    private Aggregates load() {
+        Aggregates loaded = new Aggregates();
+        for (Object[] row : markRepository.countByStudentSubjectAndValue()) {
+            loaded.add(((Number) row[0]).longValue(), ((Number) row[1]).longValue(),
+                    ((Number) row[2]).intValue(), ((Number) row[3]).longValue());
+        }
+        return loaded;
+    }
+
+    private void apply(MarkSnapshot mark, int delta) {
+        Consumer<Aggregates> change = target ->
+                target.add(mark.studentId(), mark.subjectId(), mark.value(), delta);
+        rebuildLock.readLock().lock();
+        try {
+            change.accept(aggregates);
+            MarkChangeBuffer<Aggregates> buffer = pending;
+            if (buffer == null) {
+                return;
+            }
+            if (delta > 0) {
+                buffer.markAdded(mark.id(), change);
+            } else {
+                buffer.markRemoved(mark.id(), change);
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private void update(Consumer<Aggregates> change) {
+        rebuildLock.readLock().lock();
+        try {
+            change.accept(aggregates);
+            MarkChangeBuffer<Aggregates> buffer = pending;
+            if (buffer != null) {
+                buffer.other(change);
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private void notifyChanged(MarkSnapshot mark, int delta) {
+        for (MarkChangeListener listener : listeners) {
+            listener.onMarksChanged(mark, delta);
+        }
+    }
+
+    /** Reloads once another node reports a write that may have changed marks. */
+    private class PeerWriteListener implements CacheInvalidationTransport.Listener {
+        @Override
+        public void onInvalidation(String origin, Collection<CacheTag> tags) {
+            if (tags.stream().anyMatch(CacheTag::coversMarks)) {
+                logger.debug("Node {} changed marks, reloading mark aggregates", origin);
+                requestRebuild();
+            }
+        }
+
+        @Override
+        public void onMessagesLost() {
+            requestRebuild();
+        }
+    }
+
+    @FunctionalInterface
+    public interface PairVisitor {
+        void visit(long studentId, long subjectId, MarkStats stats);
+    }
+
+    private static MarkStats stats(Accumulator accumulator) {
+        return accumulator != null ? accumulator.stats() : MarkStats.EMPTY;
+    }
+
+    /** The three aggregate maps, swapped together on rebuild. */
+    private static final class Aggregates {
+        private final Map<Long, Accumulator> byStudent = new ConcurrentHashMap<>();
+        private final Map<Long, Accumulator> bySubject = new ConcurrentHashMap<>();
+        private final Map<PairKey, Accumulator> byPair = new ConcurrentHashMap<>();
+
+        void add(long studentId, long subjectId, int value, long delta) {
+            adjust(byStudent, studentId, value, delta);
+            adjust(bySubject, subjectId, value, delta);
+            adjust(byPair, new PairKey(studentId, subjectId), value, delta);
+        }
+
+        void dropPairs(Long studentId, Long subjectId) {
+            Iterator<Map.Entry<PairKey, Accumulator>> pairs = byPair.entrySet().iterator();
+            while (pairs.hasNext()) {
+                Map.Entry<PairKey, Accumulator> pair = pairs.next();
+                PairKey key = pair.getKey();
+                if (Objects.equals(studentId, key.studentId())
+                        || Objects.equals(subjectId, key.subjectId())) {
+                    pairs.remove();
+                    subtract(byStudent, key.studentId(), pair.getValue());
+                    subtract(bySubject, key.subjectId(), pair.getValue());
+                }
+            }
+        }
+
+        int countDrift(Aggregates current) {
+            return countDrift(current.byStudent, byStudent)
+                    + countDrift(current.bySubject, bySubject)
+                    + countDrift(current.byPair, byPair);
+        }
+
+        private static <K> void adjust(Map<K, Accumulator> aggregates, K key, int value,
+                                       long delta) {
+            aggregates.compute(key, (k, accumulator) -> {
+                Accumulator result = accumulator != null ? accumulator : new Accumulator();
+                result.add(value, delta);
+                return result.isEmpty() ? null : result;
+            });
+        }
+
+        private static <K> void subtract(Map<K, Accumulator> aggregates, K key,
+                                         Accumulator removed) {
+            aggregates.computeIfPresent(key, (k, accumulator) -> {
+                accumulator.subtract(removed);
+                return accumulator.isEmpty() ? null : accumulator;
+            });
+        }
+
+        private static <K> int countDrift(Map<K, Accumulator> current,
+                                          Map<K, Accumulator> rebuilt) {
+            int drifted = 0;
+            for (Map.Entry<K, Accumulator> entry : rebuilt.entrySet()) {
+                if (!entry.getValue().stats().equals(stats(current.get(entry.getKey())))) {
+                    drifted++;
+                }
+            }
+            for (K key : current.keySet()) {
+                if (!rebuilt.containsKey(key)) {
+                    drifted++;
+                }
+            }
+            return drifted;
+        }
+    }
+
+    private static final class Accumulator {
+        private final TreeMap<Integer, Long> valueCounts = new TreeMap<>();
+        private long count;
+        private long sum;
+
+        synchronized void add(int value, long delta) {
+            long remaining = valueCounts.getOrDefault(value, 0L) + delta;
+            if (remaining > 0) {
+                valueCounts.put(value, remaining);
+            } else {
+                valueCounts.remove(value);
+            }
+            count += delta;
+            sum += delta * value;
+        }
+
+        synchronized void subtract(Accumulator other) {
+            List<Map.Entry<Integer, Long>> removed;
+            synchronized (other) {
+                removed = List.copyOf(other.valueCounts.entrySet());
+            }
+            for (Map.Entry<Integer, Long> entry : removed) {
+                add(entry.getKey(), -entry.getValue());
+            }
+        }
+
+        synchronized boolean isEmpty() {
+            return valueCounts.isEmpty();
+        }
+
+        synchronized MarkStats stats() {
+            if (valueCounts.isEmpty()) {
+                return MarkStats.EMPTY;
+            }
+            return new MarkStats(count, sum, valueCounts.firstKey(), valueCounts.lastKey());
+        }
+    }
+}
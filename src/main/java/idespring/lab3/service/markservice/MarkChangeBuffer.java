@@ -0,0 +1,87 @@
+package idespring.lab3.service.markservice;
+
+import idespring.lab3.repository.markrepo.MarkRepository;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Changes committed while a store reloads from a database snapshot, kept so the reload
+ * does not have to hold writers up. A mark change may have committed on either side of
+ * the snapshot; {@link #replayUnseen} looks the marks up in that same snapshot and
+ * replays only what it does not already reflect. Any other change must be idempotent and
+ * is replayed as it is.
+ */
+final class MarkChangeBuffer<T> {
+    private static final int ID_BATCH_SIZE = 1000;
+
+    private final Queue<Change<T>> changes = new ConcurrentLinkedQueue<>();
+
+    private record Change<T>(Long markId, boolean added, Consumer<T> action) {}
+
+    void markAdded(long markId, Consumer<T> action) {
+        changes.add(new Change<>(markId, true, action));
+    }
+
+    void markRemoved(long markId, Consumer<T> action) {
+        changes.add(new Change<>(markId, false, action));
+    }
+
+    void other(Consumer<T> action) {
+        changes.add(new Change<>(null, false, action));
+    }
+
+    /**
+     * Applies the changes recorded so far to {@code target} and forgets them. Must run in
+     * the transaction {@code target} was loaded in, so the lookup sees the same snapshot.
+     *
+     * <p>Each mark is added and removed at most once, which makes the decision independent
+     * of the order the after-commit callbacks happened to run in: an add counts only if
+     * the snapshot does not have the mark and it was not removed again, and a remove
+     * counts only if the snapshot still has the mark.
+     */
+    void replayUnseen(T target, MarkRepository markRepository) {
+        List<Change<T>> drained = new ArrayList<>();
+        for (Change<T> change = changes.poll(); change != null; change = changes.poll()) {
+            drained.add(change);
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        Set<Long> ids = new HashSet<>();
+        Set<Long> removed = new HashSet<>();
+        for (Change<T> change : drained) {
+            if (change.markId() != null) {
+                ids.add(change.markId());
+                if (!change.added()) {
+                    removed.add(change.markId());
+                }
+            }
+        }
+        Set<Long> visible = visibleIds(List.copyOf(ids), markRepository);
+
+        for (Change<T> change : drained) {
+            Long markId = change.markId();
+            boolean unseen = markId == null
+                    || (change.added() ? !visible.contains(markId) && !removed.contains(markId)
+                            : visible.contains(markId));
+            if (unseen) {
+                change.action().accept(target);
+            }
+        }
+    }
+
+    private static Set<Long> visibleIds(List<Long> ids, MarkRepository markRepository) {
+        Set<Long> visible = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += ID_BATCH_SIZE) {
+            visible.addAll(markRepository.findExistingIds(
+                    ids.subList(from, Math.min(ids.size(), from + ID_BATCH_SIZE))));
+        }
+        return visible;
+    }
+}
@@ -0,0 +1,29 @@
+package idespring.lab3.service.markservice;
+
+import idespring.lab3.model.snapshot.MarkSnapshot;
+
+/**
+ * Receives committed mark changes as {@link MarkAggregateStore} applies them, so other
+ * in-memory views of the marks table can follow the same write paths. Every callback
+ * defaults to doing nothing: views that are told about id-carrying writes directly only
+ * need the removals and reloads no write path enumerates.
+ */
+public interface MarkChangeListener {
+    /** {@code delta} is 1 for an added mark and -1 for a removed one. */
+    default void onMarksChanged(MarkSnapshot mark, int delta) {
+    }
+
+    default void onStudentRemoved(long studentId) {
+    }
+
+    default void onSubjectRemoved(long subjectId) {
+    }
+
+    /** A delete cascaded to marks that were not enumerated; reload from the database. */
+    default void onRebuildRequested() {
+    }
+
+    /** The aggregates were replaced by a fresh load; views derived from them re-derive. */
+    default void onAggregatesReloaded() {
+    }
+}
@@ -0,0 +1,646 @@
+package idespring.lab3.service.markservice;
+
+import idespring.lab3.config.TransactionHooks;
+import idespring.lab3.model.snapshot.MarkSnapshot;
+import idespring.lab3.repository.markrepo.MarkRepository;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Every mark held as parallel primitive columns of id, value, student, subject and the
+ * student's group, about 36 bytes a mark against several hundred for a {@code Mark} with
+ * its eager associations. Analytics queries are scans over those columns, split across a
+ * fork-join pool in chunks, that count marks per value into small per-chunk histograms
+ * and allocate nothing per row.
+ *
+ * <p>Writes are reported by the services after commit, and removed students and subjects
+ * and cascading deletes arrive through {@link MarkChangeListener}. Deleted rows are left
+ * as tombstones until a quarter of the columns is dead and then compacted. The store is
+ * reloaded at startup and periodically as a consistency check, from a snapshot that does
+ * not hold writers up (see {@link MarkChangeBuffer}), and until the first load finishes
+ * {@link #isReady()} is false and callers fall back to querying.
+ */
+@Component
+public class MarkColumnStore implements MarkChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(MarkColumnStore.class);
+    private static final long NONE = 0;
+    private static final long ANY = -1;
+    private static final int DELETED = Integer.MIN_VALUE;
+
+    private final MarkRepository markRepository;
+    private final TransactionTemplate snapshotTransaction;
+    private final ForkJoinPool scanPool;
+    private final int scanChunk;
+    private final long checkIntervalMillis;
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private final ReentrantReadWriteLock columnsLock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "mark-columns");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private Columns columns = new Columns(16);
+    private volatile MarkChangeBuffer<Columns> pending;
+    private final ReloadState reloads = new ReloadState();
+
+    /** The column a grouped scan keys its results by. */
+    public enum Dimension { SUBJECT, GROUP }
+
+    public MarkColumnStore(MarkRepository markRepository,
+                           MarkAggregateStore markAggregates,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${marks.columns.parallelism:4}") int parallelism,
+                           @Value("${marks.columns.scanChunk:65536}") int scanChunk,
+                           @Value("${marks.columns.checkIntervalMillis:600000}")
+                           long checkIntervalMillis) {
+        this.markRepository = markRepository;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.scanPool = new ForkJoinPool(parallelism);
+        this.scanChunk = scanChunk;
+        this.checkIntervalMillis = checkIntervalMillis;
+        markAggregates.addListener(this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.execute(this::rebuild);
+        if (checkIntervalMillis > 0) {
+            executor.scheduleWithFixedDelay(this::rebuild, checkIntervalMillis,
+                    checkIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isReady() {
+        return reloads.isCurrent();
+    }
+
+    /** Number of marks per value among those matching the filters; null matches any. */
+    public SortedMap<Integer, Long> distribution(Long subjectId, Long groupId) {
+        Histograms result = scan(new Scan(null, null, subjectId, groupId));
+        long[] counts = result.get(NONE, NONE);
+        return counts != null ? result.distribution(counts) : new TreeMap<>();
+    }
+
+    public MarkStats stats(Long subjectId, Long groupId) {
+        return MarkStats.of(distribution(subjectId, groupId));
+    }
+
+    /**
+     * Stats of the matching marks for each subject or group, leaving out marks with no
+     * subject or whose student has no group.
+     */
+    public Map<Long, MarkStats> statsBy(Dimension by, Long subjectId, Long groupId) {
+        Histograms result = scan(new Scan(by, null, subjectId, groupId));
+        Map<Long, MarkStats> stats = new HashMap<>();
+        result.forEach((key, unused, counts) -> {
+            if (key != NONE) {
+                stats.put(key, MarkStats.of(result.distribution(counts)));
+            }
+        });
+        return stats;
+    }
+
+    /**
+     * Value histograms of each group's marks per subject, for one group or for every
+     * group when {@code groupId} is null, from a single scan. Marks whose student has no
+     * group or that have no subject are left out.
+     */
+    public Map<Long, Map<Long, MarkHistogram>> histogramsByGroupAndSubject(Long groupId) {
+        Histograms result = scan(new Scan(Dimension.GROUP, Dimension.SUBJECT, null, groupId));
+        Map<Long, Map<Long, MarkHistogram>> histograms = new HashMap<>();
+        result.forEach((group, subject, counts) -> {
+            if (group != NONE && subject != NONE) {
+                histograms.computeIfAbsent(group, key -> new HashMap<>())
+                        .put(subject, new MarkHistogram(result.minValue, counts));
+            }
+        });
+        return histograms;
+    }
+
+    public long markCount() {
+        columnsLock.readLock().lock();
+        try {
+            return columns.liveCount();
+        } finally {
+            columnsLock.readLock().unlock();
+        }
+    }
+
+    public long estimatedBytes() {
+        columnsLock.readLock().lock();
+        try {
+            return columns.estimatedBytes();
+        } finally {
+            columnsLock.readLock().unlock();
+        }
+    }
+
+    public void recordAdded(MarkSnapshot mark, Long groupId) {
+        TransactionHooks.afterCommit(() -> apply(mark.id(), true, current -> current.insert(
+                mark.id(), mark.value(), orNone(mark.studentId()), orNone(mark.subjectId()),
+                orNone(groupId))));
+    }
+
+    /** Adds marks whose students' groups are given by {@code groupByStudent}. */
+    public void recordAdded(Collection<MarkSnapshot> marks, Map<Long, Long> groupByStudent) {
+        TransactionHooks.afterCommit(() -> {
+            for (MarkSnapshot mark : marks) {
+                Long groupId = groupByStudent.get(mark.studentId());
+                apply(mark.id(), true, current -> current.insert(mark.id(), mark.value(),
+                        orNone(mark.studentId()), orNone(mark.subjectId()), orNone(groupId)));
+            }
+        });
+    }
+
+    public void recordRemoved(Collection<Long> ids) {
+        TransactionHooks.afterCommit(() -> {
+            for (Long id : ids) {
+                apply(id, false, current -> {
+                    int index = current.indexOf(id);
+                    if (index >= 0) {
+                        current.delete(index);
+                    }
+                });
+            }
+        });
+    }
+
+    public void recordGroupAssigned(Collection<Long> studentIds, long groupId) {
+        long[] students = studentIds.stream().mapToLong(Long::longValue).sorted().toArray();
+        TransactionHooks.afterCommit(() -> update(current -> {
+            for (int i = 0; i < current.size; i++) {
+                if (Arrays.binarySearch(students, current.students[i]) >= 0) {
+                    current.groups[i] = groupId;
+                }
+            }
+        }));
+    }
+
+    @Override
+    public void onStudentRemoved(long studentId) {
+        update(current -> {
+            for (int i = 0; i < current.size; i++) {
+                if (current.students[i] == studentId) {
+                    current.delete(i);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onSubjectRemoved(long subjectId) {
+        update(current -> {
+            for (int i = 0; i < current.size; i++) {
+                if (current.subjects[i] == subjectId) {
+                    current.delete(i);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onRebuildRequested() {
+        if (reloads.requestReload()) {
+            executor.execute(this::rebuild);
+        }
+    }
+
+    /**
+     * Reloads the columns from one streaming pass over the marks joined to their students'
+     * groups, in id order, and logs the memory a mark costs. The pass reads a
+     * repeatable-read snapshot without holding the update lock; writes committed meanwhile
+     * are applied to the current columns and buffered, and those the snapshot missed are
+     * replayed onto the new columns, the last few under the lock just before the swap.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        long request = reloads.starting();
+        MarkChangeBuffer<Columns> buffer = new MarkChangeBuffer<>();
+        pending = buffer;
+        try {
+            snapshotTransaction.executeWithoutResult(status -> {
+                Columns loaded = new Columns(Math.max(16, (int) markCount()));
+                markRepository.forEachMark(true, loaded::append);
+                buffer.replayUnseen(loaded, markRepository);
+
+                updateLock.lock();
+                try {
+                    buffer.replayUnseen(loaded, markRepository);
+                    loaded.compactIfSparse();
+                    loaded.trim();
+                    if (reloads.hasLoaded() && loaded.liveCount() != markCount()) {
+                        logger.warn("Mark column store drifted from the database: "
+                                + "{} held, {} stored", markCount(), loaded.liveCount());
+                    }
+                    columnsLock.writeLock().lock();
+                    try {
+                        columns = loaded;
+                    } finally {
+                        columnsLock.writeLock().unlock();
+                    }
+                    pending = null;
+                    reloads.loaded(request);
+                } finally {
+                    updateLock.unlock();
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Failed to rebuild the mark column store", e);
+        } finally {
+            pending = null;
+        }
+
+        long end = System.nanoTime();
+        long marks = markCount();
+        long bytes = estimatedBytes();
+        logger.info("Mark column store holds {} marks in about {} KB, {} bytes per mark",
+                marks, bytes / 1024, marks > 0 ? bytes / marks : 0);
+        logger.info("Execution time for rebuild of mark column store: {} ms",
+                (end - start) / 1_000_000);
+    }
+
+    private Histograms scan(Scan scan) {
+        columnsLock.readLock().lock();
+        try {
+            ScanTask task = new ScanTask(columns, scan, 0, columns.size, scanChunk);
+            return columns.size <= scanChunk ? task.compute() : scanPool.invoke(task);
+        } finally {
+            columnsLock.readLock().unlock();
+        }
+    }
+
+    /** Applies a change to one mark and, while a reload runs, buffers it for the reload. */
+    private void apply(long markId, boolean added, Consumer<Columns> change) {
+        updateLock.lock();
+        try {
+            applyToColumns(change);
+            MarkChangeBuffer<Columns> buffer = pending;
+            if (buffer == null) {
+                return;
+            }
+            if (added) {
+                buffer.markAdded(markId, change);
+            } else {
+                buffer.markRemoved(markId, change);
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private void update(Consumer<Columns> change) {
+        updateLock.lock();
+        try {
+            applyToColumns(change);
+            MarkChangeBuffer<Columns> buffer = pending;
+            if (buffer != null) {
+                buffer.other(change);
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private void applyToColumns(Consumer<Columns> change) {
+        columnsLock.writeLock().lock();
+        try {
+            change.accept(columns);
+            columns.compactIfSparse();
+        } finally {
+            columnsLock.writeLock().unlock();
+        }
+    }
+
+    private static long orNone(Long id) {
+        return id != null ? id : NONE;
+    }
+
+    /** The mark columns, sorted by id, with a tombstone value for deleted rows. */
+    private static final class Columns {
+        private long[] ids;
+        private int[] values;
+        private long[] students;
+        private long[] subjects;
+        private long[] groups;
+        private int size;
+        private int deleted;
+        private int minValue = Integer.MAX_VALUE;
+        private int maxValue = Integer.MIN_VALUE;
+
+        Columns(int capacity) {
+            ids = new long[capacity];
+            values = new int[capacity];
+            students = new long[capacity];
+            subjects = new long[capacity];
+            groups = new long[capacity];
+        }
+
+        int liveCount() {
+            return size - deleted;
+        }
+
+        long estimatedBytes() {
+            return (long) ids.length * (Long.BYTES * 4 + Integer.BYTES);
+        }
+
+        int indexOf(long id) {
+            return Arrays.binarySearch(ids, 0, size, id);
+        }
+
+        /** Loader path: rows arrive in id order, so they go on the end. */
+        void append(long id, int value, long studentId, long subjectId, long groupId) {
+            grow();
+            set(size++, id, value, studentId, subjectId, groupId);
+        }
+
+        void insert(long id, int value, long studentId, long subjectId, long groupId) {
+            int index = indexOf(id);
+            if (index >= 0) {
+                return;
+            }
+            int at = -index - 1;
+            grow();
+            int tail = size - at;
+            System.arraycopy(ids, at, ids, at + 1, tail);
+            System.arraycopy(values, at, values, at + 1, tail);
+            System.arraycopy(students, at, students, at + 1, tail);
+            System.arraycopy(subjects, at, subjects, at + 1, tail);
+            System.arraycopy(groups, at, groups, at + 1, tail);
+            set(at, id, value, studentId, subjectId, groupId);
+            size++;
+        }
+
+        void delete(int index) {
+            if (values[index] != DELETED) {
+                values[index] = DELETED;
+                deleted++;
+            }
+        }
+
+        void compactIfSparse() {
+            if (deleted == 0 || deleted < size / 4) {
+                return;
+            }
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (values[i] == DELETED) {
+                    continue;
+                }
+                ids[kept] = ids[i];
+                values[kept] = values[i];
+                students[kept] = students[i];
+                subjects[kept] = subjects[i];
+                groups[kept] = groups[i];
+                kept++;
+            }
+            size = kept;
+            deleted = 0;
+        }
+
+        /** Drops the growth slack left by loading, keeping an eighth for new marks. */
+        void trim() {
+            int capacity = Math.max(16, size + size / 8);
+            if (capacity < ids.length) {
+                resize(capacity);
+            }
+        }
+
+        private void set(int index, long id, int value, long studentId, long subjectId,
+                         long groupId) {
+            ids[index] = id;
+            values[index] = value;
+            students[index] = studentId;
+            subjects[index] = subjectId;
+            groups[index] = groupId;
+            minValue = Math.min(minValue, value);
+            maxValue = Math.max(maxValue, value);
+        }
+
+        private void grow() {
+            if (size == ids.length) {
+                resize(size * 2);
+            }
+        }
+
+        private void resize(int capacity) {
+            ids = Arrays.copyOf(ids, capacity);
+            values = Arrays.copyOf(values, capacity);
+            students = Arrays.copyOf(students, capacity);
+            subjects = Arrays.copyOf(subjects, capacity);
+            groups = Arrays.copyOf(groups, capacity);
+        }
+    }
+
+    /**
+     * What a scan counts: marks matching the subject and group filters, null matching any,
+     * keyed by up to two columns. A key left null is always {@link #NONE}.
+     */
+    private record Scan(Dimension by, Dimension thenBy, Long subjectId, Long groupId) {
+        long key(Dimension dimension, Columns columns, int row) {
+            if (dimension == null) {
+                return NONE;
+            }
+            return dimension == Dimension.SUBJECT ? columns.subjects[row] : columns.groups[row];
+        }
+    }
+
+    /**
+     * Counts one slice of the columns into keyed histograms, splitting in halves down to
+     * {@code chunk} rows and merging the halves on the way back up.
+     */
+    private static final class ScanTask extends RecursiveTask<Histograms> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Columns columns;
+        private final transient Scan scan;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        ScanTask(Columns columns, Scan scan, int from, int to, int chunk) {
+            this.columns = columns;
+            this.scan = scan;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected Histograms compute() {
+            if (to - from > chunk) {
+                int middle = (from + to) >>> 1;
+                ScanTask left = new ScanTask(columns, scan, from, middle, chunk);
+                left.fork();
+                Histograms right = new ScanTask(columns, scan, middle, to, chunk).compute();
+                return left.join().merge(right);
+            }
+
+            Histograms result = new Histograms(columns.minValue, columns.maxValue);
+            long subjectId = scan.subjectId() != null ? scan.subjectId() : ANY;
+            long groupId = scan.groupId() != null ? scan.groupId() : ANY;
+            int[] values = columns.values;
+            long[] subjects = columns.subjects;
+            long[] groups = columns.groups;
+            for (int i = from; i < to; i++) {
+                int value = values[i];
+                if (value == DELETED
+                        || subjectId != ANY && subjects[i] != subjectId
+                        || groupId != ANY && groups[i] != groupId) {
+                    continue;
+                }
+                result.add(scan.key(scan.by(), columns, i), scan.key(scan.thenBy(), columns, i),
+                        value);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Value histograms keyed by up to two ids in a small open-addressing table, so
+     * counting a row is a probe and an increment. The last key is remembered, which makes
+     * runs of one student's marks skip even the probe.
+     */
+    private static final class Histograms {
+        private final int minValue;
+        private final int width;
+        private long[] firstKeys = new long[8];
+        private long[] secondKeys = new long[8];
+        private long[][] counts = new long[8][];
+        private int size;
+        private long lastFirst;
+        private long lastSecond;
+        private long[] last;
+
+        Histograms(int minValue, int maxValue) {
+            this.minValue = minValue;
+            this.width = maxValue >= minValue ? maxValue - minValue + 1 : 0;
+        }
+
+        void add(long first, long second, int value) {
+            if (last == null || first != lastFirst || second != lastSecond) {
+                last = forKey(first, second);
+                lastFirst = first;
+                lastSecond = second;
+            }
+            last[value - minValue]++;
+        }
+
+        long[] get(long first, long second) {
+            int mask = counts.length - 1;
+            for (int slot = slot(first, second, mask); counts[slot] != null;
+                    slot = (slot + 1) & mask) {
+                if (firstKeys[slot] == first && secondKeys[slot] == second) {
+                    return counts[slot];
+                }
+            }
+            return null;
+        }
+
+        Histograms merge(Histograms other) {
+            for (int slot = 0; slot < other.counts.length; slot++) {
+                long[] theirs = other.counts[slot];
+                if (theirs != null) {
+                    long[] ours = forKey(other.firstKeys[slot], other.secondKeys[slot]);
+                    for (int i = 0; i < width; i++) {
+                        ours[i] += theirs[i];
+                    }
+                }
+            }
+            return this;
+        }
+
+        void forEach(HistogramVisitor visitor) {
+            for (int slot = 0; slot < counts.length; slot++) {
+                if (counts[slot] != null) {
+                    visitor.visit(firstKeys[slot], secondKeys[slot], counts[slot]);
+                }
+            }
+        }
+
+        SortedMap<Integer, Long> distribution(long[] histogram) {
+            SortedMap<Integer, Long> distribution = new TreeMap<>();
+            for (int i = 0; i < width; i++) {
+                if (histogram[i] > 0) {
+                    distribution.put(minValue + i, histogram[i]);
+                }
+            }
+            return distribution;
+        }
+
+        private long[] forKey(long first, long second) {
+            long[] existing = get(first, second);
+            if (existing != null) {
+                return existing;
+            }
+            if ((size + 1) * 2 > counts.length) {
+                rehash(counts.length * 2);
+            }
+            int mask = counts.length - 1;
+            int slot = slot(first, second, mask);
+            while (counts[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            firstKeys[slot] = first;
+            secondKeys[slot] = second;
+            counts[slot] = new long[width];
+            size++;
+            return counts[slot];
+        }
+
+        private void rehash(int capacity) {
+            long[] oldFirst = firstKeys;
+            long[] oldSecond = secondKeys;
+            long[][] oldCounts = counts;
+            firstKeys = new long[capacity];
+            secondKeys = new long[capacity];
+            counts = new long[capacity][];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldCounts.length; i++) {
+                if (oldCounts[i] != null) {
+                    int slot = slot(oldFirst[i], oldSecond[i], mask);
+                    while (counts[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    firstKeys[slot] = oldFirst[i];
+                    secondKeys[slot] = oldSecond[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        private static int slot(long first, long second, int mask) {
+            long mixed = (first * 31 + second) * 0x9E3779B97F4A7C15L;
+            return (int) (mixed ^ (mixed >>> 32)) & mask;
+        }
+    }
+
+    @FunctionalInterface
+    private interface HistogramVisitor {
+        void visit(long first, long second, long[] histogram);
+    }
+}
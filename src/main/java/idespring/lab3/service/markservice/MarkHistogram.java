@@ -0,0 +1,70 @@
+package idespring.lab3.service.markservice;
+
+/**
+ * Counts of marks per value, {@code counts[i]} holding the marks equal to
+ * {@code minValue + i}. Marks take few distinct values, so order statistics such as the
+ * median come from a walk over the counts rather than a sort of the marks.
+ */
+public record MarkHistogram(int minValue, long[] counts) {
+    public long count() {
+        long count = 0;
+        for (long c : counts) {
+            count += c;
+        }
+        return count;
+    }
+
+    public long countBelow(int value) {
+        long count = 0;
+        for (int i = 0; i < counts.length && minValue + i < value; i++) {
+            count += counts[i];
+        }
+        return count;
+    }
+
+    public Double mean() {
+        long count = 0;
+        long sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            count += counts[i];
+            sum += counts[i] * (minValue + i);
+        }
+        return count == 0 ? null : (double) sum / count;
+    }
+
+    /** The middle mark, or the mean of the two middle marks when the count is even. */
+    public Double median() {
+        long count = count();
+        if (count == 0) {
+            return null;
+        }
+        return (valueAt((count - 1) / 2) + valueAt(count / 2)) / 2.0;
+    }
+
+    /** Population standard deviation. */
+    public Double stddev() {
+        Double mean = mean();
+        if (mean == null) {
+            return null;
+        }
+        double squares = 0;
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            double deviation = minValue + i - mean;
+            squares += counts[i] * deviation * deviation;
+            count += counts[i];
+        }
+        return Math.sqrt(squares / count);
+    }
+
+    private int valueAt(long rank) {
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                return minValue + i;
+            }
+        }
+        throw new IllegalArgumentException("Rank " + rank + " exceeds the histogram");
+    }
+}
@@ -1,12 +1,32 @@
 package idespring.lab3.service.markservice;
 
+import idespring.lab3.dto.MarkBatchItem;
+import idespring.lab3.dto.MarkBatchResult;
 import idespring.lab3.model.Mark;
+import idespring.lab3.model.snapshot.KeysetPage;
+import idespring.lab3.model.snapshot.MarkSnapshot;
+import idespring.lab3.model.snapshot.PageCursor;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
 
 public interface MarkService {
-    List<Mark> readMarks(Long studentId, Long subjectId);
+    KeysetPage<MarkSnapshot> readMarks(Long studentId, Long subjectId, PageCursor after,
+                                       int limit);
 
-    List<Mark> findByValue(int value);
+    List<MarkSnapshot> findByValue(int value);
+
+    /**
+     * Number of marks per value, in ascending value order, among the marks of a subject
+     * and of a group's students; a null filter matches every mark.
+     */
+    SortedMap<Integer, Long> countByValue(Long subjectId, Long groupId);
+
+    MarkStats getStats(Long subjectId, Long groupId);
+
+    Map<Long, MarkStats> getStatsByGroup(Long subjectId);
+
+    Map<Long, MarkStats> getStatsBySubject(Long groupId);
 
     void deleteMarkSpecific(Long studentId, String subjectName, int markValue, Long id);
 
@@ -14,7 +34,19 @@ public interface MarkService {
 
     Double getAverageMarkBySubjectId(Long subjectId);
 
-    Mark addMark(Mark mark);
+    List<RankedStudent> topStudentsBySubject(long subjectId, int limit);
+
+    List<RankedStudent> topStudentsByGroup(long groupId, int limit);
+
+    MarkSnapshot addMark(Mark mark);
+
+    MarkBatchResult addMarks(List<MarkBatchItem> marks);
+
+    /**
+     * Validates and inserts like {@link #addMarks} but leaves cache invalidation to the
+     * caller, for bulk loads that invalidate once at the end.
+     */
+    MarkBatchResult importMarks(List<MarkBatchItem> marks);
 
     void deleteMark(Long id);
 }
\ No newline at end of file
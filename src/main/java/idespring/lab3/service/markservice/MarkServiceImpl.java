@@ -1,21 +1,36 @@
 package idespring.lab3.service.markservice;
 
 import idespring.lab3.config.CacheConfig;
+import idespring.lab3.config.CacheRegion;
+import idespring.lab3.config.CacheTag;
+import idespring.lab3.dto.MarkBatchItem;
+import idespring.lab3.dto.MarkBatchResult;
 import idespring.lab3.exceptions.SubjectNotAssignedException;
 import idespring.lab3.model.Mark;
 import idespring.lab3.model.Student;
 import idespring.lab3.model.Subject;
+import idespring.lab3.model.snapshot.KeysetPage;
+import idespring.lab3.model.snapshot.MarkSnapshot;
+import idespring.lab3.model.snapshot.PageCursor;
 import idespring.lab3.repository.markrepo.MarkRepository;
 import idespring.lab3.repository.studentrepo.StudentRepository;
 import idespring.lab3.repository.subjectrepo.SubjectRepository;
+import idespring.lab3.service.studentsubjserv.EnrollmentIndex;
 import idespring.lab3.service.studentsubjserv.StudentSubjectService;
 import jakarta.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.BiPredicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,98 +40,175 @@ public class MarkServiceImpl implements MarkService {
     private final StudentRepository studentRepository;
     private final SubjectRepository subjectRepository;
     private final StudentSubjectService studentSubjectService;
+    private final EnrollmentIndex enrollmentIndex;
     private final CacheConfig<String, Object> cache;
+    private final CacheRegion<MarkPageQuery, KeysetPage<MarkSnapshot>> markCache;
+    private final MarkAggregateStore markAggregates;
+    private final LeaderboardStore leaderboards;
+    private final MarkValueIndex valueIndex;
+    private final MarkColumnStore columnStore;
+    private final int maxBatchSize;
     private static final Logger logger = LoggerFactory.getLogger(MarkServiceImpl.class);
 
+    private record MarkPageQuery(Long studentId, Long subjectId, PageCursor after, int limit) {}
+
+    private record Enrollment(long studentId, long subjectId) {}
+
     @Autowired
     public MarkServiceImpl(MarkRepository markRepository,
                            StudentRepository studentRepository,
                            SubjectRepository subjectRepository,
                            StudentSubjectService studentSubjectService,
-                           CacheConfig<String, Object> cache) {
+                           EnrollmentIndex enrollmentIndex,
+                           MarkAggregateStore markAggregates,
+                           LeaderboardStore leaderboards,
+                           MarkValueIndex valueIndex,
+                           MarkColumnStore columnStore,
+                           CacheConfig<String, Object> cache,
+                           @Value("${marks.batch.maxSize:10000}") int maxBatchSize) {
         this.markRepository = markRepository;
         this.studentRepository = studentRepository;
         this.subjectRepository = subjectRepository;
         this.studentSubjectService = studentSubjectService;
+        this.enrollmentIndex = enrollmentIndex;
+        this.markAggregates = markAggregates;
+        this.leaderboards = leaderboards;
+        this.valueIndex = valueIndex;
+        this.columnStore = columnStore;
+        this.maxBatchSize = maxBatchSize;
         this.cache = cache;
+        this.markCache = cache.region("marks", MarkServiceImpl::markQueryTags);
     }
 
     @Override
-    public List<Mark> readMarks(Long studentId, Long subjectId) {
-        boolean hasSubject = studentSubjectService.getSubjectsByStudent(studentId)
-                .stream().anyMatch(s ->
-                        s.getId().equals(subjectId));
-        if (!hasSubject) {
+    public KeysetPage<MarkSnapshot> readMarks(Long studentId, Long subjectId, PageCursor after,
+                                              int limit) {
+        if (studentId == null || subjectId == null || !isEnrolled(studentId, subjectId)) {
             throw new SubjectNotAssignedException("Student with ID " + studentId
                     + " does not have subject with ID " + subjectId);
         }
 
-        String cacheKey = "marks-" + (studentId != null ? studentId : "all")
-                + "-" + subjectId;
-        List<Mark> cachedMarks = (List<Mark>) cache.get(cacheKey);
-        if (cachedMarks != null) {
-            return cachedMarks;
-        }
-
-        logger.info("Fetching marks for student: {}, subject: {}", studentId, subjectId);
-        List<Mark> marks;
-        if (studentId != null && subjectId != null) {
-            Student student = studentRepository.findById(studentId)
-                    .orElseThrow(() ->
-                            new EntityNotFoundException("Student not found with id: " + studentId));
-            Subject subject = subjectRepository.findById(subjectId)
-                    .orElseThrow(() ->
-                            new EntityNotFoundException("Subject not found with id: " + subjectId));
-            marks = markRepository.findByStudentAndSubject(student, subject);
-        } else if (studentId != null) {
-            marks = markRepository.findByStudentId(studentId);
-        } else if (subjectId != null) {
-            marks = markRepository.findBySubjectId(subjectId);
+        return markCache.getOrLoad(new MarkPageQuery(studentId, subjectId, after, limit),
+                this::loadMarks);
+    }
+
+    private KeysetPage<MarkSnapshot> loadMarks(MarkPageQuery query) {
+        logger.info("Fetching marks for student: {}, subject: {}, limit: {}",
+                query.studentId(), query.subjectId(), query.limit());
+        List<MarkSnapshot> rows = markRepository.findPage(query.studentId(), query.subjectId(),
+                query.after(), query.limit());
+        return KeysetPage.of(rows, query.limit(), mark -> new PageCursor(null, mark.id()));
+    }
+
+    @Override
+    public List<MarkSnapshot> findByValue(int value) {
+        if (!valueIndex.isReady()) {
+            return markRepository.findByValue(value);
+        }
+        return valueIndex.marksWithValue(value);
+    }
+
+    @Override
+    public SortedMap<Integer, Long> countByValue(Long subjectId, Long groupId) {
+        long start = System.nanoTime();
+        SortedMap<Integer, Long> counts;
+        if (subjectId == null && groupId == null && valueIndex.isReady()) {
+            counts = valueIndex.distribution();
+        } else if (columnStore.isReady()) {
+            counts = columnStore.distribution(subjectId, groupId);
         } else {
-            marks = markRepository.findAll();
+            counts = new TreeMap<>();
+            for (Object[] row : markRepository.countByValue(subjectId, groupId)) {
+                counts.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+            }
         }
+        long end = System.nanoTime();
+        logger.info("Execution time for countByValue: {} ms", (end - start) / 1_000_000);
+        return counts;
+    }
 
-        cache.put(cacheKey, marks);
-        return marks;
+    @Override
+    public MarkStats getStats(Long subjectId, Long groupId) {
+        return MarkStats.of(countByValue(subjectId, groupId));
     }
 
     @Override
-    public List<Mark> findByValue(int value) {
-        String cacheKey = "value-" + value;
-        List<Mark> cachedMarks = (List<Mark>) cache.get(cacheKey);
-        if (cachedMarks != null) {
-            return cachedMarks;
-        }
+    public Map<Long, MarkStats> getStatsByGroup(Long subjectId) {
+        long start = System.nanoTime();
+        Map<Long, MarkStats> stats = columnStore.isReady()
+                ? columnStore.statsBy(MarkColumnStore.Dimension.GROUP, subjectId, null)
+                : statsByKey(markRepository.countByGroupAndValue(subjectId));
+        long end = System.nanoTime();
+        logger.info("Execution time for getStatsByGroup: {} ms", (end - start) / 1_000_000);
+        return stats;
+    }
 
-        List<Mark> marks = markRepository.findByValue(value);
-        cache.put(cacheKey, marks);
-        return marks;
+    @Override
+    public Map<Long, MarkStats> getStatsBySubject(Long groupId) {
+        long start = System.nanoTime();
+        Map<Long, MarkStats> stats = columnStore.isReady()
+                ? columnStore.statsBy(MarkColumnStore.Dimension.SUBJECT, null, groupId)
+                : statsByKey(markRepository.countBySubjectAndValue(groupId));
+        long end = System.nanoTime();
+        logger.info("Execution time for getStatsBySubject: {} ms", (end - start) / 1_000_000);
+        return stats;
+    }
+
+    /** Folds (key, value, count) rows into stats per key. */
+    private static Map<Long, MarkStats> statsByKey(List<Object[]> rows) {
+        Map<Long, SortedMap<Integer, Long>> distributions = new HashMap<>();
+        for (Object[] row : rows) {
+            distributions.computeIfAbsent(((Number) row[0]).longValue(), key -> new TreeMap<>())
+                    .put(((Number) row[1]).intValue(), ((Number) row[2]).longValue());
+        }
+        Map<Long, MarkStats> stats = new HashMap<>();
+        distributions.forEach((key, distribution) -> stats.put(key, MarkStats.of(distribution)));
+        return stats;
     }
 
     @Override
     public Double getAverageMarkByStudentId(Long studentId) {
-        String cacheKey = "avg-student-" + studentId;
-        Double cachedAvg = (Double) cache.get(cacheKey);
-        if (cachedAvg != null) {
-            return cachedAvg;
+        if (!markAggregates.isReady()) {
+            return markRepository.getAverageMarkByStudentId(studentId);
         }
-
-        Double avgMark = markRepository.getAverageMarkByStudentId(studentId);
-        cache.put(cacheKey, avgMark);
-        return avgMark;
+        return markAggregates.forStudent(studentId).average();
     }
 
     @Override
     public Double getAverageMarkBySubjectId(Long subjectId) {
-        String cacheKey = "avg-subject-" + subjectId;
-        Double cachedAvg = (Double) cache.get(cacheKey);
-        if (cachedAvg != null) {
-            return cachedAvg;
+        if (!markAggregates.isReady()) {
+            return markRepository.getAverageMarkBySubjectId(subjectId);
         }
+        return markAggregates.forSubject(subjectId).average();
+    }
+
+    @Override
+    public List<RankedStudent> topStudentsBySubject(long subjectId, int limit) {
+        long start = System.nanoTime();
+        List<RankedStudent> top = leaderboards.isReady()
+                ? leaderboards.topBySubject(subjectId, limit)
+                : ranked(markRepository.findTopStudentsBySubject(subjectId, limit));
+        long end = System.nanoTime();
+        logger.info("Execution time for topStudentsBySubject: {} ms", (end - start) / 1_000_000);
+        return top;
+    }
+
+    @Override
+    public List<RankedStudent> topStudentsByGroup(long groupId, int limit) {
+        long start = System.nanoTime();
+        List<RankedStudent> top = leaderboards.isReady()
+                ? leaderboards.topByGroup(groupId, limit)
+                : ranked(markRepository.findTopStudentsByGroup(groupId, limit));
+        long end = System.nanoTime();
+        logger.info("Execution time for topStudentsByGroup: {} ms", (end - start) / 1_000_000);
+        return top;
+    }
 
-        Double avgMark = markRepository.getAverageMarkBySubjectId(subjectId);
-        cache.put(cacheKey, avgMark);
-        return avgMark;
+    private static List<RankedStudent> ranked(List<Object[]> rows) {
+        return rows.stream()
+                .map(row -> new RankedStudent(((Number) row[0]).longValue(),
+                        ((Number) row[1]).longValue(), ((Number) row[2]).longValue()))
+                .toList();
     }
 
     @Override
@@ -130,22 +222,28 @@ public class MarkServiceImpl implements MarkService {
                         new EntityNotFoundException("Subject not found with name: " + subjectName));
         Long subjectId = subject.getId();
 
-        int deletedCount = markRepository.deleteMarkByStudentIdSubjectNameValueAndOptionalId(
-                studentId, subjectName, markValue, id);
-        if (deletedCount == 0) {
+        List<Long> deletedIds = markRepository.lockIdsByStudentSubjectValueAndOptionalId(
+                studentId, subjectId, markValue, id);
+        if (deletedIds.isEmpty()) {
             throw new EntityNotFoundException("Mark not found with the given criteria.");
         }
-
-        clearCacheForSubject(subjectId);
-        clearCacheForStudent(studentId);
-        if (id != null) {
-            cache.remove("mark-" + id);
+        markRepository.deleteAllByIdInBatch(deletedIds);
+        markAggregates.recordRemoved(deletedIds.stream()
+                .map(deletedId -> new MarkSnapshot(deletedId, markValue, studentId, subjectId))
+                .toList());
+        valueIndex.recordRemoved(deletedIds, markValue);
+        columnStore.recordRemoved(deletedIds);
+
+        Long groupId = null;
+        for (Object[] row : studentRepository.findGroupIdsByIds(List.of(studentId))) {
+            groupId = row[1] != null ? ((Number) row[1]).longValue() : null;
         }
+        clearMarkCaches(studentId, subjectId, groupId);
     }
 
     @Override
     @Transactional
-    public Mark addMark(Mark mark) {
+    public MarkSnapshot addMark(Mark mark) {
         logger.info("Adding mark for student: {}, subject: {}, value: {}",
                 mark.getStudent().getId(), mark.getSubject().getId(), mark.getValue());
 
@@ -156,86 +254,213 @@ public class MarkServiceImpl implements MarkService {
                 .orElseThrow(() -> new EntityNotFoundException("Subject not found with id: "
                         + mark.getSubject().getId()));
 
-        boolean hasSubject = studentSubjectService.getSubjectsByStudent(student.getId())
-                .stream().anyMatch(s ->
-                        s.getId().equals(subject.getId()));
-        if (!hasSubject) {
+        if (!loadEnrollments(Set.of(student.getId())).test(student.getId(), subject.getId())) {
             throw new SubjectNotAssignedException("Student with ID " + student.getId()
                     + " does not have subject with ID " + subject.getId());
         }
 
-        final Mark savedMark = markRepository.save(mark);
+        final MarkSnapshot savedMark = MarkSnapshot.of(markRepository.save(mark));
+        markAggregates.recordAdded(List.of(savedMark));
+        valueIndex.recordAdded(List.of(savedMark));
+        Long groupId = student.getGroup() != null ? student.getGroup().getId() : null;
+        columnStore.recordAdded(savedMark, groupId);
 
-        clearCacheForSubject(subject.getId());
-        clearCacheForStudent(student.getId());
+        clearMarkCaches(student.getId(), subject.getId(), groupId);
 
         return savedMark;
     }
 
     @Override
     @Transactional
-    public void deleteMark(Long id) {
-        logger.info("Deleting mark with id: {}", id);
-
-        Mark mark = markRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Mark not found with id: " + id));
+    public MarkBatchResult addMarks(List<MarkBatchItem> items) {
+        final long start = System.nanoTime();
+        logger.info("Adding batch of {} marks", items.size());
+        if (items.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch exceeds the limit of "
+                    + maxBatchSize + " marks");
+        }
 
-        Long studentId = mark.getStudent().getId();
-        Long subjectId = mark.getSubject().getId();
+        List<MarkSnapshot> inserted = new ArrayList<>();
+        Map<Long, Long> groupByStudent = new HashMap<>();
+        MarkBatchResult result = insertMarks(items, inserted, groupByStudent);
+        if (!inserted.isEmpty()) {
+            clearMarkCaches(inserted, groupByStudent);
+        }
 
-        markRepository.deleteById(id);
+        long end = System.nanoTime();
+        logger.info("Execution time for addMarks: {} ms", (end - start) / 1_000_000);
+        return result;
+    }
 
-        clearCacheForSubject(subjectId);
-        clearCacheForStudent(studentId);
+    @Override
+    @Transactional
+    public MarkBatchResult importMarks(List<MarkBatchItem> items) {
+        return insertMarks(items, new ArrayList<>(), new HashMap<>());
     }
 
-    public void clearCacheForSubject(Long subjectId) {
-        logger.info("Clearing cache for subject with id: {}", subjectId);
+    /**
+     * Inserts the valid items, collecting the new marks into {@code inserted} and the
+     * group of every existing student in the batch into {@code groupByStudent}.
+     */
+    private MarkBatchResult insertMarks(List<MarkBatchItem> items, List<MarkSnapshot> inserted,
+                                        Map<Long, Long> groupByStudent) {
+        Set<Long> studentIds = new HashSet<>();
+        Set<Long> subjectIds = new HashSet<>();
+        for (MarkBatchItem item : items) {
+            if (item != null && item.studentId() != null) {
+                studentIds.add(item.studentId());
+            }
+            if (item != null && item.subjectId() != null) {
+                subjectIds.add(item.subjectId());
+            }
+        }
 
-        List<Mark> subjectMarks = markRepository.findBySubjectId(subjectId);
+        if (!studentIds.isEmpty()) {
+            for (Object[] row : studentRepository.findGroupIdsByIds(studentIds)) {
+                groupByStudent.put(((Number) row[0]).longValue(),
+                        row[1] != null ? ((Number) row[1]).longValue() : null);
+            }
+        }
+        Set<Long> existingStudents = groupByStudent.keySet();
+        Set<Long> existingSubjects = subjectIds.isEmpty() ? Set.of()
+                : new HashSet<>(subjectRepository.findExistingIds(subjectIds));
+        BiPredicate<Long, Long> enrolled = loadEnrollments(existingStudents);
+
+        List<Mark> valid = new ArrayList<>();
+        List<MarkBatchResult.RowError> errors = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            MarkBatchItem item = items.get(i);
+            String reason = rejectReason(item, existingStudents, existingSubjects, enrolled);
+            if (reason != null) {
+                errors.add(new MarkBatchResult.RowError(i, reason));
+                continue;
+            }
+            Mark mark = new Mark(item.value());
+            mark.setStudentId(item.studentId());
+            mark.setSubjectId(item.subjectId());
+            valid.add(mark);
+        }
 
-        Set<Long> affectedStudentIds = subjectMarks.stream()
-                .map(mark -> mark.getStudent().getId())
-                .collect(Collectors.toSet());
+        if (!valid.isEmpty()) {
+            markRepository.insertBatch(valid);
+            for (Mark mark : valid) {
+                inserted.add(MarkSnapshot.of(mark));
+            }
+            markAggregates.recordAdded(inserted);
+            valueIndex.recordAdded(inserted);
+            columnStore.recordAdded(inserted, groupByStudent);
+        }
+        return new MarkBatchResult(items.size(), valid.size(), errors);
+    }
 
-        for (Long studentId : affectedStudentIds) {
-            cache.remove("marks-" + studentId + "-" + subjectId);
-            cache.remove("marks-" + studentId + "-all");
-            cache.remove("avg-student-" + studentId);
+    /**
+     * Checks one enrollment for a read against the in-memory index, or against the student's
+     * subject list while the index is still loading. The index only sees this node's
+     * enrollment changes, so writes check the database instead.
+     */
+    private boolean isEnrolled(long studentId, long subjectId) {
+        if (enrollmentIndex.isReady()) {
+            return enrollmentIndex.isEnrolled(studentId, subjectId);
         }
+        return studentSubjectService.getSubjectsByStudent(studentId).stream()
+                .anyMatch(s -> s.id() == subjectId);
+    }
 
-        cache.remove("marks-all-" + subjectId);
-        cache.remove("marks-all-all");
-        cache.remove("avg-subject-" + subjectId);
+    /** Reads the given students' enrollments from the database, for validating writes. */
+    private BiPredicate<Long, Long> loadEnrollments(Set<Long> studentIds) {
+        Set<Enrollment> enrollments = new HashSet<>();
+        if (!studentIds.isEmpty()) {
+            for (Object[] row : studentRepository.findEnrollments(studentIds)) {
+                enrollments.add(new Enrollment(((Number) row[0]).longValue(),
+                        ((Number) row[1]).longValue()));
+            }
+        }
+        return (studentId, subjectId) -> enrollments.contains(
+                new Enrollment(studentId, subjectId));
+    }
 
-        for (Mark mark : subjectMarks) {
-            cache.remove("mark-" + mark.getId());
-            cache.remove("value-" + mark.getValue());
+    private static String rejectReason(MarkBatchItem item, Set<Long> existingStudents,
+                                       Set<Long> existingSubjects,
+                                       BiPredicate<Long, Long> enrolled) {
+        if (item == null || item.studentId() == null || item.subjectId() == null
+                || item.value() == null) {
+            return "studentId, subjectId and value are required";
+        }
+        if (!existingStudents.contains(item.studentId())) {
+            return "Student not found with id: " + item.studentId();
+        }
+        if (!existingSubjects.contains(item.subjectId())) {
+            return "Subject not found with id: " + item.subjectId();
         }
+        if (!enrolled.test(item.studentId(), item.subjectId())) {
+            return "Student with ID " + item.studentId()
+                    + " does not have subject with ID " + item.subjectId();
+        }
+        return null;
     }
 
-    public void clearCacheForStudent(Long studentId) {
-        logger.info("Clearing cache for student with id: {}", studentId);
+    @Override
+    @Transactional
+    public void deleteMark(Long id) {
+        logger.info("Deleting mark with id: {}", id);
 
-        List<Mark> studentMarks = markRepository.findByStudentId(studentId);
+        Mark mark = markRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Mark not found with id: " + id));
 
-        Set<Long> affectedSubjectIds = studentMarks.stream()
-                .map(mark -> mark.getSubject().getId())
-                .collect(Collectors.toSet());
+        Long studentId = mark.getStudent().getId();
+        Long subjectId = mark.getSubject().getId();
+        Long groupId = mark.getStudent().getGroup() != null
+                ? mark.getStudent().getGroup().getId() : null;
 
-        for (Long subjectId : affectedSubjectIds) {
-            cache.remove("marks-" + studentId + "-" + subjectId);
-            cache.remove("marks-all-" + subjectId);
-            cache.remove("avg-subject-" + subjectId);
+        markRepository.deleteById(id);
+        markAggregates.recordRemoved(List.of(MarkSnapshot.of(mark)));
+        valueIndex.recordRemoved(List.of(id), mark.getValue());
+        columnStore.recordRemoved(List.of(id));
+
+        clearMarkCaches(studentId, subjectId, groupId);
+    }
+
+    /**
+     * Drops the cached reads a mark change makes stale. Call it only after the change has
+     * been reported to {@link MarkColumnStore}: both run after commit in registration
+     * order, and group reports are rebuilt from the store, so invalidating
+     * {@code group-marks} first would let a report reload from the old columns and be
+     * cached again.
+     */
+    private void clearMarkCaches(Long studentId, Long subjectId, Long groupId) {
+        logger.info("Clearing mark caches for student: {}, subject: {}", studentId, subjectId);
+        if (groupId != null) {
+            cache.invalidate(CacheTag.studentMarks(studentId), CacheTag.subjectMarks(subjectId),
+                    CacheTag.groupMarks(groupId), CacheTag.MARK_LISTS);
+        } else {
+            cache.invalidate(CacheTag.studentMarks(studentId), CacheTag.subjectMarks(subjectId),
+                    CacheTag.MARK_LISTS);
         }
+    }
 
-        cache.remove("marks-" + studentId + "-all");
-        cache.remove("marks-all-all");
-        cache.remove("avg-student-" + studentId);
+    /** As above, for a batch; the batch must already be reported to the column store. */
+    private void clearMarkCaches(List<MarkSnapshot> marks, Map<Long, Long> groupByStudent) {
+        Set<CacheTag> tags = new HashSet<>();
+        for (MarkSnapshot mark : marks) {
+            tags.add(CacheTag.studentMarks(mark.studentId()));
+            tags.add(CacheTag.subjectMarks(mark.subjectId()));
+            Long groupId = groupByStudent.get(mark.studentId());
+            if (groupId != null) {
+                tags.add(CacheTag.groupMarks(groupId));
+            }
+        }
+        tags.add(CacheTag.MARK_LISTS);
+        logger.info("Clearing {} mark cache tags", tags.size());
+        cache.invalidate(tags.toArray(new CacheTag[0]));
+    }
 
-        for (Mark mark : studentMarks) {
-            cache.remove("mark-" + mark.getId());
-            cache.remove("value-" + mark.getValue());
+    private static List<CacheTag> markQueryTags(MarkPageQuery query,
+                                                KeysetPage<MarkSnapshot> marks) {
+        if (query.studentId() != null) {
+            return List.of(CacheTag.studentMarks(query.studentId()), CacheTag.MARKS);
+        } else if (query.subjectId() != null) {
+            return List.of(CacheTag.subjectMarks(query.subjectId()), CacheTag.MARKS);
         }
+        return List.of(CacheTag.MARK_LISTS, CacheTag.MARKS);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,26 @@
+package idespring.lab3.service.markservice;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+public record MarkStats(long count, long sum, int min, int max) {
+    public static final MarkStats EMPTY = new MarkStats(0, 0, 0, 0);
+
+    /** Summarizes a value distribution as produced by {@link MarkService#countByValue}. */
+    public static MarkStats of(SortedMap<Integer, Long> distribution) {
+        if (distribution.isEmpty()) {
+            return EMPTY;
+        }
+        long count = 0;
+        long sum = 0;
+        for (Map.Entry<Integer, Long> entry : distribution.entrySet()) {
+            count += entry.getValue();
+            sum += (long) entry.getKey() * entry.getValue();
+        }
+        return new MarkStats(count, sum, distribution.firstKey(), distribution.lastKey());
+    }
+
+    public Double average() {
+        return count == 0 ? null : (double) sum / count;
+    }
+}
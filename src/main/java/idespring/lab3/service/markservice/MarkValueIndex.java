@@ -0,0 +1,379 @@
+package idespring.lab3.service.markservice;
+
+import idespring.lab3.config.TransactionHooks;
+import idespring.lab3.model.snapshot.MarkSnapshot;
+import idespring.lab3.repository.markrepo.MarkRepository;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Marks grouped by value, each group held as primitive columns of id, student and subject
+ * sorted by mark id. Marks take only a handful of values, so this answers "all marks with
+ * value N" and the value distribution without a query, and writes touch one group instead
+ * of invalidating cached lists.
+ *
+ * <p>Inserts and deletes by id are reported by the mark services after commit; removed
+ * students and subjects, and cascading deletes, arrive through {@link MarkChangeListener}.
+ * The index is reloaded at startup and periodically as a consistency check, from a
+ * snapshot that does not hold writers up (see {@link MarkChangeBuffer}), and until the
+ * first load finishes {@link #isReady()} is false and callers fall back to querying.
+ */
+@Component
+public class MarkValueIndex implements MarkChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(MarkValueIndex.class);
+    private static final long NONE = 0;
+
+    private final MarkRepository markRepository;
+    private final TransactionTemplate snapshotTransaction;
+    private final long checkIntervalMillis;
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "mark-value-index");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private volatile Groups groups = new Groups();
+    private volatile MarkChangeBuffer<Groups> pending;
+    private final ReloadState reloads = new ReloadState();
+
+    public MarkValueIndex(MarkRepository markRepository,
+                          MarkAggregateStore markAggregates,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${marks.valueIndex.checkIntervalMillis:600000}")
+                          long checkIntervalMillis) {
+        this.markRepository = markRepository;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.checkIntervalMillis = checkIntervalMillis;
+        markAggregates.addListener(this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.execute(this::rebuild);
+        if (checkIntervalMillis > 0) {
+            executor.scheduleWithFixedDelay(this::rebuild, checkIntervalMillis,
+                    checkIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isReady() {
+        return reloads.isCurrent();
+    }
+
+    public List<MarkSnapshot> marksWithValue(int value) {
+        ValueColumns columns = groups.byValue.get(value);
+        return columns != null ? columns.snapshots(value) : List.of();
+    }
+
+    /** Number of marks per value, in ascending value order, leaving out empty values. */
+    public SortedMap<Integer, Long> distribution() {
+        SortedMap<Integer, Long> counts = new TreeMap<>();
+        groups.byValue.forEach((value, columns) -> {
+            int size = columns.size();
+            if (size > 0) {
+                counts.put(value, (long) size);
+            }
+        });
+        return counts;
+    }
+
+    public long markCount() {
+        return groups.markCount();
+    }
+
+    public void recordAdded(Collection<MarkSnapshot> marks) {
+        TransactionHooks.afterCommit(() -> {
+            for (MarkSnapshot mark : marks) {
+                apply(mark.id(), true, target -> target.add(mark.id(), mark.value(),
+                        orNone(mark.studentId()), orNone(mark.subjectId())));
+            }
+        });
+    }
+
+    /** Removes marks that all had {@code value}, such as those one criteria delete took. */
+    public void recordRemoved(Collection<Long> ids, int value) {
+        TransactionHooks.afterCommit(() -> {
+            for (Long id : ids) {
+                apply(id, false, target -> target.remove(id, value));
+            }
+        });
+    }
+
+    @Override
+    public void onStudentRemoved(long studentId) {
+        update(target -> target.removeIf(columns -> index ->
+                columns.students[index] == studentId));
+    }
+
+    @Override
+    public void onSubjectRemoved(long subjectId) {
+        update(target -> target.removeIf(columns -> index ->
+                columns.subjects[index] == subjectId));
+    }
+
+    @Override
+    public void onRebuildRequested() {
+        if (reloads.requestReload()) {
+            executor.execute(this::rebuild);
+        }
+    }
+
+    /**
+     * Reloads every value group from one pass over the marks in id order, so each group
+     * is built by appending. The pass reads a repeatable-read snapshot without holding
+     * the update lock; writes committed meanwhile are applied to the current groups and
+     * buffered, and those the snapshot missed are replayed onto the new groups, the last
+     * few under the lock just before the swap.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        long request = reloads.starting();
+        MarkChangeBuffer<Groups> buffer = new MarkChangeBuffer<>();
+        pending = buffer;
+        try {
+            snapshotTransaction.executeWithoutResult(status -> {
+                Groups loaded = new Groups();
+                markRepository.forEachMark(false, (id, value, studentId, subjectId, groupId) ->
+                        loaded.byValue.computeIfAbsent(value, v -> new ValueColumns())
+                                .append(id, studentId, subjectId));
+                buffer.replayUnseen(loaded, markRepository);
+
+                updateLock.lock();
+                try {
+                    buffer.replayUnseen(loaded, markRepository);
+                    if (reloads.hasLoaded() && loaded.markCount() != markCount()) {
+                        logger.warn("Mark value index drifted from the database: {} indexed, "
+                                + "{} stored", markCount(), loaded.markCount());
+                    }
+                    groups = loaded;
+                    pending = null;
+                    reloads.loaded(request);
+                } finally {
+                    updateLock.unlock();
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Failed to rebuild the mark value index", e);
+        } finally {
+            pending = null;
+        }
+
+        long end = System.nanoTime();
+        logger.info("Mark value index holds {} marks across {} values",
+                markCount(), groups.byValue.size());
+        logger.info("Execution time for rebuild of mark value index: {} ms",
+                (end - start) / 1_000_000);
+    }
+
+    /** Applies a change to one mark and, while a reload runs, buffers it for the reload. */
+    private void apply(long markId, boolean added, Consumer<Groups> change) {
+        updateLock.lock();
+        try {
+            change.accept(groups);
+            MarkChangeBuffer<Groups> buffer = pending;
+            if (buffer == null) {
+                return;
+            }
+            if (added) {
+                buffer.markAdded(markId, change);
+            } else {
+                buffer.markRemoved(markId, change);
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private void update(Consumer<Groups> change) {
+        updateLock.lock();
+        try {
+            change.accept(groups);
+            MarkChangeBuffer<Groups> buffer = pending;
+            if (buffer != null) {
+                buffer.other(change);
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private static long orNone(Long id) {
+        return id != null ? id : NONE;
+    }
+
+    private static Long fromNone(long id) {
+        return id != NONE ? id : null;
+    }
+
+    @FunctionalInterface
+    private interface RowFilter {
+        boolean test(int index);
+    }
+
+    /** The value groups, swapped as a whole on rebuild. */
+    private static final class Groups {
+        private final Map<Integer, ValueColumns> byValue = new ConcurrentHashMap<>();
+
+        long markCount() {
+            long count = 0;
+            for (ValueColumns columns : byValue.values()) {
+                count += columns.size();
+            }
+            return count;
+        }
+
+        void add(long id, int value, long studentId, long subjectId) {
+            byValue.computeIfAbsent(value, v -> new ValueColumns()).add(id, studentId, subjectId);
+        }
+
+        void remove(long id, int value) {
+            ValueColumns columns = byValue.get(value);
+            if (columns != null) {
+                columns.remove(id);
+            }
+        }
+
+        void removeIf(Function<ValueColumns, RowFilter> filter) {
+            for (ValueColumns columns : byValue.values()) {
+                columns.removeIf(filter.apply(columns));
+            }
+        }
+    }
+
+    /**
+     * The marks sharing one value as parallel arrays sorted by id. Writers are already
+     * serialized by the index's update lock; the read-write lock only keeps readers from
+     * seeing an array mid-shift.
+     */
+    private static final class ValueColumns {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private long[] ids = new long[16];
+        private long[] students = new long[16];
+        private long[] subjects = new long[16];
+        private int size;
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return size;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        List<MarkSnapshot> snapshots(int value) {
+            lock.readLock().lock();
+            try {
+                List<MarkSnapshot> marks = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    marks.add(new MarkSnapshot(ids[i], value, fromNone(students[i]),
+                            fromNone(subjects[i])));
+                }
+                return marks;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /** Loader path: rows arrive in id order, so they go on the end unlocked. */
+        void append(long id, long studentId, long subjectId) {
+            grow();
+            ids[size] = id;
+            students[size] = studentId;
+            subjects[size] = subjectId;
+            size++;
+        }
+
+        void add(long id, long studentId, long subjectId) {
+            lock.writeLock().lock();
+            try {
+                int index = Arrays.binarySearch(ids, 0, size, id);
+                if (index >= 0) {
+                    return;
+                }
+                int at = -index - 1;
+                grow();
+                System.arraycopy(ids, at, ids, at + 1, size - at);
+                System.arraycopy(students, at, students, at + 1, size - at);
+                System.arraycopy(subjects, at, subjects, at + 1, size - at);
+                ids[at] = id;
+                students[at] = studentId;
+                subjects[at] = subjectId;
+                size++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(long id) {
+            lock.writeLock().lock();
+            try {
+                int at = Arrays.binarySearch(ids, 0, size, id);
+                if (at < 0) {
+                    return;
+                }
+                int tail = size - at - 1;
+                System.arraycopy(ids, at + 1, ids, at, tail);
+                System.arraycopy(students, at + 1, students, at, tail);
+                System.arraycopy(subjects, at + 1, subjects, at, tail);
+                size--;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void removeIf(RowFilter filter) {
+            lock.writeLock().lock();
+            try {
+                int kept = 0;
+                for (int i = 0; i < size; i++) {
+                    if (filter.test(i)) {
+                        continue;
+                    }
+                    ids[kept] = ids[i];
+                    students[kept] = students[i];
+                    subjects[kept] = subjects[i];
+                    kept++;
+                }
+                size = kept;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void grow() {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                students = Arrays.copyOf(students, capacity);
+                subjects = Arrays.copyOf(subjects, capacity);
+            }
+        }
+    }
+}
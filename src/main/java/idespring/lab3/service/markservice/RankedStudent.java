@@ -0,0 +1,23 @@
+package idespring.lab3.service.markservice;
+
+/**
+ * A leaderboard position: higher average first, then more marks, then lower student id,
+ * so the order is total and stable.
+ */
+public record RankedStudent(long studentId, long sum, long count)
+        implements Comparable<RankedStudent> {
+    public double average() {
+        return count > 0 ? (double) sum / count : 0;
+    }
+
+    @Override
+    public int compareTo(RankedStudent other) {
+        // sum / count vs other.sum / other.count without rounding
+        int byAverage = Long.compare(other.sum * count, sum * other.count);
+        if (byAverage != 0) {
+            return byAverage;
+        }
+        int byCount = Long.compare(other.count, count);
+        return byCount != 0 ? byCount : Long.compare(studentId, other.studentId);
+    }
+}
@@ -0,0 +1,41 @@
+package idespring.lab3.service.markservice;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Whether an in-memory view of the marks still matches the database. A request to reload,
+ * such as another node reporting that it wrote marks, makes the view stale until a reload
+ * that started after the request has finished, so readers fall back to querying rather
+ * than serve what the view missed. Requests made while a reload is already queued share
+ * that reload.
+ */
+final class ReloadState {
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicBoolean queued = new AtomicBoolean();
+    private volatile long loaded = -1;
+
+    boolean isCurrent() {
+        return loaded == requested.get();
+    }
+
+    boolean hasLoaded() {
+        return loaded >= 0;
+    }
+
+    /** Marks the view stale; true if the caller should queue a reload, false if one is. */
+    boolean requestReload() {
+        requested.incrementAndGet();
+        return queued.compareAndSet(false, true);
+    }
+
+    /** Called as a reload starts; returns the request it will satisfy. */
+    long starting() {
+        queued.set(false);
+        return requested.get();
+    }
+
+    void loaded(long request) {
+        loaded = request;
+    }
+}
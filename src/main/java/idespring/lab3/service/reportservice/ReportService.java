@@ -0,0 +1,11 @@
+package idespring.lab3.service.reportservice;
+
+import idespring.lab3.dto.GroupReportDto;
+import java.util.List;
+
+public interface ReportService {
+    GroupReportDto getGroupReport(long groupId);
+
+    /** Reports for every group that has students or marks, ordered by group id. */
+    List<GroupReportDto> getGroupReports();
+}
@@ -0,0 +1,163 @@
+package idespring.lab3.service.reportservice;
+
+import idespring.lab3.config.CacheConfig;
+import idespring.lab3.config.CacheRegion;
+import idespring.lab3.config.CacheTag;
+import idespring.lab3.dto.GroupReportDto;
+import idespring.lab3.dto.SubjectReportDto;
+import idespring.lab3.repository.grouprepo.GroupRepository;
+import idespring.lab3.repository.markrepo.MarkRepository;
+import idespring.lab3.repository.studentrepo.StudentRepository;
+import idespring.lab3.service.markservice.MarkColumnStore;
+import idespring.lab3.service.markservice.MarkHistogram;
+import jakarta.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Per-group mark reports. The marks of every group are counted per subject and value in
+ * one parallel scan of {@link MarkColumnStore}, or in one GROUP BY query while the store
+ * loads, and student counts come from one more query; each group's report is then built
+ * from those histograms in parallel. Reports are cached per group and dropped only when
+ * that group, its students or their marks change, or when one of its subjects goes away.
+ * Writers report a change to the store before invalidating those tags, both after commit,
+ * so a report reloaded on a miss already sees the change.
+ */
+@Service
+public class ReportServiceImpl implements ReportService {
+    private final MarkRepository markRepository;
+    private final StudentRepository studentRepository;
+    private final GroupRepository groupRepository;
+    private final MarkColumnStore columnStore;
+    private final CacheRegion<Long, GroupReportDto> reportCache;
+    private final int failingBelow;
+    private static final Logger logger = LoggerFactory.getLogger(ReportServiceImpl.class);
+
+    @Autowired
+    public ReportServiceImpl(MarkRepository markRepository,
+                             StudentRepository studentRepository,
+                             GroupRepository groupRepository,
+                             MarkColumnStore columnStore,
+                             CacheConfig<String, Object> cache,
+                             @Value("${reports.failingBelow:4}") int failingBelow) {
+        this.markRepository = markRepository;
+        this.studentRepository = studentRepository;
+        this.groupRepository = groupRepository;
+        this.columnStore = columnStore;
+        this.failingBelow = failingBelow;
+        this.reportCache = cache.region("reports.groups", ReportServiceImpl::reportTags);
+    }
+
+    @Override
+    public GroupReportDto getGroupReport(long groupId) {
+        long start = System.nanoTime();
+        GroupReportDto report = reportCache.getOrLoad(groupId, this::loadReport);
+        long end = System.nanoTime();
+        logger.info("Execution time for getGroupReport: {} ms", (end - start) / 1_000_000);
+        return report;
+    }
+
+    @Override
+    public List<GroupReportDto> getGroupReports() {
+        long start = System.nanoTime();
+        List<GroupReportDto> reports = new ArrayList<>(buildReports(null).values());
+        reports.sort(Comparator.comparingLong(GroupReportDto::groupId));
+        for (GroupReportDto report : reports) {
+            reportCache.put(report.groupId(), report);
+        }
+        long end = System.nanoTime();
+        logger.info("Execution time for getGroupReports: {} ms", (end - start) / 1_000_000);
+        return reports;
+    }
+
+    private GroupReportDto loadReport(long groupId) {
+        if (!groupRepository.existsById(groupId)) {
+            throw new EntityNotFoundException("Group not found with id: " + groupId);
+        }
+        GroupReportDto report = buildReports(groupId).get(groupId);
+        return report != null ? report : new GroupReportDto(groupId, 0, 0, null, List.of());
+    }
+
+    private Map<Long, GroupReportDto> buildReports(Long groupId) {
+        logger.info("Building mark reports for group: {}", groupId != null ? groupId : "all");
+        Map<Long, Long> students = new HashMap<>();
+        for (Object[] row : studentRepository.countByGroup(groupId)) {
+            students.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        Map<Long, Map<Long, MarkHistogram>> histograms = columnStore.isReady()
+                ? columnStore.histogramsByGroupAndSubject(groupId)
+                : histograms(markRepository.countByGroupSubjectAndValue(groupId));
+
+        Set<Long> groupIds = new HashSet<>(students.keySet());
+        groupIds.addAll(histograms.keySet());
+        return groupIds.parallelStream()
+                .map(id -> report(id, students.getOrDefault(id, 0L),
+                        histograms.getOrDefault(id, Map.of())))
+                .collect(Collectors.toMap(GroupReportDto::groupId, report -> report));
+    }
+
+    private GroupReportDto report(long groupId, long students,
+                                  Map<Long, MarkHistogram> bySubject) {
+        List<SubjectReportDto> subjects = new ArrayList<>(bySubject.size());
+        long marks = 0;
+        long failing = 0;
+        for (Map.Entry<Long, MarkHistogram> entry : new TreeMap<>(bySubject).entrySet()) {
+            MarkHistogram histogram = entry.getValue();
+            long count = histogram.count();
+            long below = histogram.countBelow(failingBelow);
+            subjects.add(new SubjectReportDto(entry.getKey(), count, histogram.mean(),
+                    histogram.median(), histogram.stddev(), share(below, count)));
+            marks += count;
+            failing += below;
+        }
+        return new GroupReportDto(groupId, students, marks, share(failing, marks), subjects);
+    }
+
+    private static Double share(long part, long total) {
+        return total == 0 ? null : (double) part / total;
+    }
+
+    /** Folds (group, subject, value, count) rows into histograms over one value range. */
+    private static Map<Long, Map<Long, MarkHistogram>> histograms(List<Object[]> rows) {
+        int minValue = Integer.MAX_VALUE;
+        int maxValue = Integer.MIN_VALUE;
+        for (Object[] row : rows) {
+            minValue = Math.min(minValue, ((Number) row[2]).intValue());
+            maxValue = Math.max(maxValue, ((Number) row[2]).intValue());
+        }
+        int width = maxValue - minValue + 1;
+        int base = minValue;
+        Map<Long, Map<Long, MarkHistogram>> histograms = new HashMap<>();
+        for (Object[] row : rows) {
+            MarkHistogram histogram = histograms
+                    .computeIfAbsent(((Number) row[0]).longValue(), key -> new HashMap<>())
+                    .computeIfAbsent(((Number) row[1]).longValue(),
+                            key -> new MarkHistogram(base, new long[width]));
+            histogram.counts()[((Number) row[2]).intValue() - base] +=
+                    ((Number) row[3]).longValue();
+        }
+        return histograms;
+    }
+
+    private static List<CacheTag> reportTags(Long groupId, GroupReportDto report) {
+        List<CacheTag> tags = new ArrayList<>();
+        tags.add(CacheTag.group(groupId));
+        tags.add(CacheTag.groupMarks(groupId));
+        for (SubjectReportDto subject : report.subjects()) {
+            tags.add(CacheTag.subject(subject.subjectId()));
+        }
+        return tags;
+    }
+}
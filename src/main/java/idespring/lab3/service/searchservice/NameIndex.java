@@ -0,0 +1,199 @@
+package idespring.lab3.service.searchservice;
+
+import idespring.lab3.service.studentsubjserv.LongSetMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trigram index over the names of one entity. Names are lower-cased with words separated
+ * by two spaces and two leading spaces, so the trigrams that start a word ("  i", " iv")
+ * let one- and two-letter queries match word prefixes, while longer queries match
+ * anywhere. A lookup intersects the posting lists of the query's trigrams, starting from
+ * the shortest, and checks only the names that survive.
+ */
+final class NameIndex {
+    private static final Comparator<Candidate> WORST_FIRST = Comparator
+            .comparingInt(Candidate::rank)
+            .thenComparingInt(candidate -> candidate.name().length())
+            .thenComparing(Candidate::name)
+            .thenComparingLong(Candidate::id)
+            .reversed();
+
+    private final LongSetMap postings;
+    private final Map<Long, String> names;
+
+    private record Candidate(int rank, String name, long id) {}
+
+    private NameIndex(LongSetMap postings, Map<Long, String> names) {
+        this.postings = postings;
+        this.names = names;
+    }
+
+    int size() {
+        return names.size();
+    }
+
+    long estimatedBytes() {
+        return postings.estimatedBytes();
+    }
+
+    /** Adds or renames; callers serialize writes. */
+    void put(long id, String name) {
+        remove(id);
+        if (name == null) {
+            return;
+        }
+        names.put(id, name);
+        for (long gram : grams(indexed(name))) {
+            postings.add(gram, id);
+        }
+    }
+
+    void remove(long id) {
+        String name = names.remove(id);
+        if (name != null) {
+            for (long gram : grams(indexed(name))) {
+                postings.remove(gram, id);
+            }
+        }
+    }
+
+    /**
+     * Best matches first: the whole name, then a name starting with the query, then a word
+     * starting with it, then any other substring; ties go to the shorter name, then by
+     * name and id.
+     */
+    List<NameMatch> search(String query, int limit) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        boolean prefixOnly = normalized.length() < 3;
+        long[] grams = prefixOnly
+                ? new long[] {gram(indexed(normalized), normalized.length() - 1)}
+                : grams(normalized);
+
+        long[][] lists = new long[grams.length][];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = postings.get(grams[i]);
+            if (lists[i] == null) {
+                return List.of();
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.length));
+
+        PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        for (long id : lists[0]) {
+            if (!inAll(lists, id)) {
+                continue;
+            }
+            String name = names.get(id);
+            int rank = name != null ? rank(normalize(name), normalized) : -1;
+            if (rank < 0 || prefixOnly && rank > 2) {
+                continue;
+            }
+            best.add(new Candidate(rank, name, id));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<NameMatch> matches = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            Candidate candidate = best.poll();
+            matches.add(new NameMatch(candidate.id(), candidate.name()));
+        }
+        Collections.reverse(matches);
+        return matches;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    private static boolean inAll(long[][] lists, long id) {
+        for (int i = 1; i < lists.length; i++) {
+            if (Arrays.binarySearch(lists[i], id) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int rank(String name, String query) {
+        if (name.equals(query)) {
+            return 0;
+        }
+        if (name.startsWith(query)) {
+            return 1;
+        }
+        if (!name.contains(query)) {
+            return -1;
+        }
+        return name.indexOf("  " + query) >= 0 ? 2 : 3;
+    }
+
+    static String normalize(String name) {
+        return String.join("  ", name.trim().toLowerCase(Locale.ROOT).split("\\s+"));
+    }
+
+    private static String indexed(String name) {
+        return "  " + normalize(name);
+    }
+
+    /** The distinct trigrams of {@code text}, each packed as three 16-bit chars. */
+    private static long[] grams(String text) {
+        long[] grams = new long[Math.max(0, text.length() - 2)];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = gram(text, i);
+        }
+        return Arrays.stream(grams).distinct().toArray();
+    }
+
+    private static long gram(String text, int at) {
+        return (long) text.charAt(at) << 32 | (long) text.charAt(at + 1) << 16
+                | text.charAt(at + 2);
+    }
+
+    /**
+     * Builds an index from names arriving in id order, so every posting list is appended
+     * to and comes out sorted without a sort.
+     */
+    static final class Builder {
+        private final Map<Long, String> names = new ConcurrentHashMap<>();
+        private final Map<Long, long[]> lists = new HashMap<>();
+        private final Map<Long, Integer> lengths = new HashMap<>();
+
+        void add(long id, String name) {
+            if (name == null) {
+                return;
+            }
+            names.put(id, name);
+            for (long gram : grams(indexed(name))) {
+                int length = lengths.getOrDefault(gram, 0);
+                long[] list = lists.get(gram);
+                if (list == null || length == list.length) {
+                    list = list == null ? new long[4] : Arrays.copyOf(list, length * 2);
+                    lists.put(gram, list);
+                }
+                list[length] = id;
+                lengths.put(gram, length + 1);
+            }
+        }
+
+        NameIndex build() {
+            LongSetMap postings = new LongSetMap(lists.size());
+            lists.forEach((gram, list) ->
+                    postings.putSorted(gram, Arrays.copyOf(list, lengths.get(gram))));
+            return new NameIndex(postings, names);
+        }
+    }
+}
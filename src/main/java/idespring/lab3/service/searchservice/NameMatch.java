@@ -0,0 +1,3 @@
+package idespring.lab3.service.searchservice;
+
+public record NameMatch(long id, String name) {}
@@ -0,0 +1,202 @@
+package idespring.lab3.service.searchservice;
+
+import idespring.lab3.config.TransactionHooks;
+import idespring.lab3.repository.NameVisitor;
+import idespring.lab3.repository.grouprepo.GroupRepository;
+import idespring.lab3.repository.studentrepo.StudentRepository;
+import idespring.lab3.repository.subjectrepo.SubjectRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * In-memory name search over students, groups and subjects, one {@link NameIndex} each.
+ * Writes are applied once their transaction commits, and the indexes are reloaded at
+ * startup and periodically as a consistency check. Until the first load finishes
+ * {@link #isReady()} is false and callers fall back to querying.
+ */
+@Component
+public class NameSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(NameSearchIndex.class);
+
+    private final StudentRepository studentRepository;
+    private final GroupRepository groupRepository;
+    private final SubjectRepository subjectRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long checkIntervalMillis;
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "name-search");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private volatile NameIndex students = NameIndex.builder().build();
+    private volatile NameIndex groups = NameIndex.builder().build();
+    private volatile NameIndex subjects = NameIndex.builder().build();
+    private volatile boolean ready;
+    /** Updates made while a rebuild loads; guarded by the update lock. */
+    private List<Change> pending;
+
+    public NameSearchIndex(StudentRepository studentRepository,
+                           GroupRepository groupRepository,
+                           SubjectRepository subjectRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${search.checkIntervalMillis:600000}")
+                           long checkIntervalMillis) {
+        this.studentRepository = studentRepository;
+        this.groupRepository = groupRepository;
+        this.subjectRepository = subjectRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.checkIntervalMillis = checkIntervalMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.execute(this::rebuild);
+        if (checkIntervalMillis > 0) {
+            executor.scheduleWithFixedDelay(this::rebuild, checkIntervalMillis,
+                    checkIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<NameMatch> searchStudents(String query, int limit) {
+        return students.search(query, limit);
+    }
+
+    public List<NameMatch> searchGroups(String query, int limit) {
+        return groups.search(query, limit);
+    }
+
+    public List<NameMatch> searchSubjects(String query, int limit) {
+        return subjects.search(query, limit);
+    }
+
+    public void recordStudent(long id, String name) {
+        TransactionHooks.afterCommit(() ->
+                update((students, groups, subjects) -> students.put(id, name)));
+    }
+
+    public void recordStudentRemoved(long id) {
+        TransactionHooks.afterCommit(() ->
+                update((students, groups, subjects) -> students.remove(id)));
+    }
+
+    public void recordGroup(long id, String name) {
+        TransactionHooks.afterCommit(() ->
+                update((students, groups, subjects) -> groups.put(id, name)));
+    }
+
+    public void recordSubject(long id, String name) {
+        TransactionHooks.afterCommit(() ->
+                update((students, groups, subjects) -> subjects.put(id, name)));
+    }
+
+    public void recordSubjectRemoved(long id) {
+        TransactionHooks.afterCommit(() ->
+                update((students, groups, subjects) -> subjects.remove(id)));
+    }
+
+    /** For writes that do not return ids, such as bulk imports and cascading deletes. */
+    public void rebuildAfterCommit() {
+        TransactionHooks.afterCommit(() -> executor.execute(this::rebuild));
+    }
+
+    /**
+     * Reloads all three indexes, each from one pass over its table in id order. The loads
+     * run without the update lock; updates keep going to the current indexes and are also
+     * buffered, then replayed in order onto the new ones before the swap. They are
+     * idempotent, so one already visible to the reload query does no harm.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        List<Change> buffered = new ArrayList<>();
+        updateLock.lock();
+        try {
+            pending = buffered;
+        } finally {
+            updateLock.unlock();
+        }
+
+        try {
+            NameIndex loadedStudents = load(studentRepository::forEachName);
+            NameIndex loadedGroups = load(groupRepository::forEachName);
+            NameIndex loadedSubjects = load(subjectRepository::forEachName);
+            updateLock.lock();
+            try {
+                for (Change change : buffered) {
+                    change.apply(loadedStudents, loadedGroups, loadedSubjects);
+                }
+                if (ready && loadedStudents.size() != students.size()) {
+                    logger.warn("Student name index drifted from the database: {} indexed, "
+                            + "{} stored", students.size(), loadedStudents.size());
+                }
+                students = loadedStudents;
+                groups = loadedGroups;
+                subjects = loadedSubjects;
+                ready = true;
+            } finally {
+                pending = null;
+                updateLock.unlock();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to rebuild the name search index", e);
+            updateLock.lock();
+            try {
+                pending = null;
+            } finally {
+                updateLock.unlock();
+            }
+        }
+
+        long end = System.nanoTime();
+        logger.info("Name search index holds {} students, {} groups and {} subjects "
+                + "in about {} KB", students.size(), groups.size(), subjects.size(),
+                (students.estimatedBytes() + groups.estimatedBytes()
+                        + subjects.estimatedBytes()) / 1024);
+        logger.info("Execution time for rebuild of name search index: {} ms",
+                (end - start) / 1_000_000);
+    }
+
+    private NameIndex load(Consumer<NameVisitor> source) {
+        NameIndex.Builder builder = NameIndex.builder();
+        readOnlyTransaction.executeWithoutResult(status -> source.accept(builder::add));
+        return builder.build();
+    }
+
+    private void update(Change change) {
+        updateLock.lock();
+        try {
+            change.apply(students, groups, subjects);
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /** An update to one of the indexes, kept so a rebuild can replay it. */
+    @FunctionalInterface
+    private interface Change {
+        void apply(NameIndex students, NameIndex groups, NameIndex subjects);
+    }
+}
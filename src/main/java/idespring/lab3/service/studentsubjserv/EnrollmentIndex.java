@@ -0,0 +1,265 @@
+package idespring.lab3.service.studentsubjserv;
+
+import idespring.lab3.config.TransactionHooks;
+import idespring.lab3.repository.studentrepo.StudentRepository;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The student_subject table held in memory in both directions, student to subjects and
+ * subject to students, as primitive sorted id arrays. An enrollment check is a hash probe
+ * and a binary search over a handful of longs, with no locking on the read path.
+ *
+ * <p>Like {@link idespring.lab3.service.markservice.MarkAggregateStore}, writes are applied
+ * once their transaction commits, and the index is reloaded at startup and periodically as
+ * a consistency check. Until the first load finishes {@link #isReady()} is false and
+ * callers fall back to querying. Enrollment changes made on other nodes only show up at
+ * the next reload, so the index answers reads; writes that depend on an enrollment check
+ * it against the database.
+ */
+@Component
+public class EnrollmentIndex {
+    private static final Logger logger = LoggerFactory.getLogger(EnrollmentIndex.class);
+    private static final long[] NONE = new long[0];
+
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long checkIntervalMillis;
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "enrollment-index");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private volatile LongSetMap subjectsByStudent = new LongSetMap(0);
+    private volatile LongSetMap studentsBySubject = new LongSetMap(0);
+    private volatile boolean ready;
+    /** Updates made while a rebuild loads; guarded by the update lock. */
+    private List<Change> pending;
+
+    public EnrollmentIndex(StudentRepository studentRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${enrollments.index.checkIntervalMillis:600000}")
+                           long checkIntervalMillis) {
+        this.studentRepository = studentRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.checkIntervalMillis = checkIntervalMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.execute(this::rebuild);
+        if (checkIntervalMillis > 0) {
+            executor.scheduleWithFixedDelay(this::rebuild, checkIntervalMillis,
+                    checkIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean isEnrolled(long studentId, long subjectId) {
+        return subjectsByStudent.contains(studentId, subjectId);
+    }
+
+    public long[] subjectsOf(long studentId) {
+        long[] subjects = subjectsByStudent.get(studentId);
+        return subjects != null ? subjects.clone() : NONE;
+    }
+
+    public long[] studentsOf(long subjectId) {
+        long[] students = studentsBySubject.get(subjectId);
+        return students != null ? students.clone() : NONE;
+    }
+
+    public long enrollmentCount() {
+        return subjectsByStudent.valueCount();
+    }
+
+    public long estimatedBytes() {
+        return subjectsByStudent.estimatedBytes() + studentsBySubject.estimatedBytes();
+    }
+
+    public void recordEnrolled(long studentId, long subjectId) {
+        TransactionHooks.afterCommit(() -> update((byStudent, bySubject) ->
+                enroll(byStudent, bySubject, studentId, subjectId)));
+    }
+
+    public void recordEnrolled(Collection<long[]> enrollments) {
+        TransactionHooks.afterCommit(() -> update((byStudent, bySubject) -> {
+            for (long[] enrollment : enrollments) {
+                enroll(byStudent, bySubject, enrollment[0], enrollment[1]);
+            }
+        }));
+    }
+
+    public void recordUnenrolled(long studentId, long subjectId) {
+        TransactionHooks.afterCommit(() -> update((byStudent, bySubject) -> {
+            byStudent.remove(studentId, subjectId);
+            bySubject.remove(subjectId, studentId);
+        }));
+    }
+
+    public void recordStudentRemoved(long studentId) {
+        TransactionHooks.afterCommit(() -> update((byStudent, bySubject) -> {
+            long[] subjects = byStudent.removeAll(studentId);
+            for (long subjectId : subjects != null ? subjects : NONE) {
+                bySubject.remove(subjectId, studentId);
+            }
+        }));
+    }
+
+    public void recordSubjectRemoved(long subjectId) {
+        TransactionHooks.afterCommit(() -> update((byStudent, bySubject) -> {
+            long[] students = bySubject.removeAll(subjectId);
+            for (long studentId : students != null ? students : NONE) {
+                byStudent.remove(studentId, subjectId);
+            }
+        }));
+    }
+
+    /** For deletes that cascade to enrollments, such as dropping a group's students. */
+    public void rebuildAfterCommit() {
+        TransactionHooks.afterCommit(() -> executor.execute(this::rebuild));
+    }
+
+    /**
+     * Reloads both directions, each from one pass over student_subject ordered by its key,
+     * so every id array is built already sorted. The loads run without the update lock;
+     * updates keep going to the current maps and are also buffered, then replayed in order
+     * onto the new maps before the swap. They are idempotent, so one already visible to
+     * the reload query does no harm.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        List<Change> buffered = new ArrayList<>();
+        updateLock.lock();
+        try {
+            pending = buffered;
+        } finally {
+            updateLock.unlock();
+        }
+
+        try {
+            LongSetMap students = load(false, subjectsByStudent.keyCount());
+            LongSetMap subjects = load(true, studentsBySubject.keyCount());
+            updateLock.lock();
+            try {
+                for (Change change : buffered) {
+                    change.apply(students, subjects);
+                }
+                if (ready && students.valueCount() != subjectsByStudent.valueCount()) {
+                    logger.warn("Enrollment index drifted from the database: {} indexed, "
+                            + "{} stored", subjectsByStudent.valueCount(), students.valueCount());
+                }
+                subjectsByStudent = students;
+                studentsBySubject = subjects;
+                ready = true;
+            } finally {
+                pending = null;
+                updateLock.unlock();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to rebuild the enrollment index", e);
+            updateLock.lock();
+            try {
+                pending = null;
+            } finally {
+                updateLock.unlock();
+            }
+        }
+
+        long end = System.nanoTime();
+        logger.info("Enrollment index holds {} enrollments in about {} KB",
+                enrollmentCount(), estimatedBytes() / 1024);
+        logger.info("Execution time for rebuild of enrollment index: {} ms",
+                (end - start) / 1_000_000);
+    }
+
+    private LongSetMap load(boolean bySubject, int expectedKeys) {
+        LongSetMap map = new LongSetMap(expectedKeys);
+        RunCollector run = new RunCollector(map);
+        readOnlyTransaction.executeWithoutResult(status ->
+                studentRepository.forEachEnrollment(bySubject, (studentId, subjectId) -> {
+                    if (bySubject) {
+                        run.accept(subjectId, studentId);
+                    } else {
+                        run.accept(studentId, subjectId);
+                    }
+                }));
+        run.flush();
+        return map;
+    }
+
+    private static void enroll(LongSetMap byStudent, LongSetMap bySubject, long studentId,
+                               long subjectId) {
+        byStudent.add(studentId, subjectId);
+        bySubject.add(subjectId, studentId);
+    }
+
+    private void update(Change change) {
+        updateLock.lock();
+        try {
+            change.apply(subjectsByStudent, studentsBySubject);
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /** An update to both directions, kept so a rebuild can replay it. */
+    @FunctionalInterface
+    private interface Change {
+        void apply(LongSetMap subjectsByStudent, LongSetMap studentsBySubject);
+    }
+
+    /** Gathers consecutive rows sharing a key into one sorted array. */
+    private static final class RunCollector {
+        private final LongSetMap map;
+        private long key;
+        private long[] values = new long[16];
+        private int length;
+
+        RunCollector(LongSetMap map) {
+            this.map = map;
+        }
+
+        void accept(long runKey, long value) {
+            if (length > 0 && runKey != key) {
+                flush();
+            }
+            key = runKey;
+            if (length == values.length) {
+                values = Arrays.copyOf(values, length * 2);
+            }
+            values[length++] = value;
+        }
+
+        void flush() {
+            if (length > 0) {
+                map.putSorted(key, Arrays.copyOf(values, length));
+                length = 0;
+            }
+        }
+    }
+}
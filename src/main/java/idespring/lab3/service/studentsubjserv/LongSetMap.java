@@ -0,0 +1,241 @@
+package idespring.lab3.service.studentsubjserv;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Open-addressing map from a positive long key to a sorted {@code long[]} set, with no
+ * boxing on either side. Sets are never modified in place: a write replaces the array, so
+ * readers run under an optimistic {@link StampedLock} stamp and only take the read lock
+ * when a write raced them.
+ */
+public final class LongSetMap {
+    private static final long EMPTY_KEY = 0;
+
+    private final StampedLock lock = new StampedLock();
+    private long[] keys;
+    private long[][] sets;
+    private int size;
+    private long values;
+
+    public LongSetMap(int expectedKeys) {
+        int capacity = Integer.highestOneBit(Math.max(expectedKeys, 8) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.sets = new long[capacity][];
+    }
+
+    public boolean contains(long key, long value) {
+        long[] set = get(key);
+        return set != null && Arrays.binarySearch(set, value) >= 0;
+    }
+
+    /** Returns the shared set for {@code key}; callers must not modify it. */
+    public long[] get(long key) {
+        long stamp = lock.tryOptimisticRead();
+        long[] set = find(keys, sets, key);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                set = find(keys, sets, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return set;
+    }
+
+    public boolean add(long key, long value) {
+        long stamp = lock.writeLock();
+        try {
+            long[] set = find(keys, sets, key);
+            if (set == null) {
+                put(key, new long[] {value});
+                return true;
+            }
+            int position = Arrays.binarySearch(set, value);
+            if (position >= 0) {
+                return false;
+            }
+            int insertAt = -position - 1;
+            long[] grown = new long[set.length + 1];
+            System.arraycopy(set, 0, grown, 0, insertAt);
+            grown[insertAt] = value;
+            System.arraycopy(set, insertAt, grown, insertAt + 1, set.length - insertAt);
+            put(key, grown);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean remove(long key, long value) {
+        long stamp = lock.writeLock();
+        try {
+            long[] set = find(keys, sets, key);
+            int position = set != null ? Arrays.binarySearch(set, value) : -1;
+            if (position < 0) {
+                return false;
+            }
+            if (set.length == 1) {
+                removeKey(key);
+                return true;
+            }
+            long[] shrunk = new long[set.length - 1];
+            System.arraycopy(set, 0, shrunk, 0, position);
+            System.arraycopy(set, position + 1, shrunk, position, set.length - position - 1);
+            put(key, shrunk);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Removes {@code key} and returns the set it held, or null. */
+    public long[] removeAll(long key) {
+        long stamp = lock.writeLock();
+        try {
+            return removeKey(key);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Stores a set that is already sorted and free of duplicates. */
+    public void putSorted(long key, long[] set) {
+        long stamp = lock.writeLock();
+        try {
+            put(key, set);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int keyCount() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long valueCount() {
+        long stamp = lock.readLock();
+        try {
+            return values;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Approximate retained size assuming compressed references: the two tables plus one
+     * array header and eight bytes per stored value.
+     */
+    public long estimatedBytes() {
+        long stamp = lock.readLock();
+        try {
+            long tables = 2L * 16 + 12L * keys.length;
+            return tables + 16L * size + 8L * values;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void put(long key, long[] set) {
+        int slot = slot(keys, key);
+        if (keys[slot] == key) {
+            values += set.length - sets[slot].length;
+            sets[slot] = set;
+            return;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+            slot = slot(keys, key);
+        }
+        keys[slot] = key;
+        sets[slot] = set;
+        size++;
+        values += set.length;
+    }
+
+    private long[] removeKey(long key) {
+        int slot = slot(keys, key);
+        if (keys[slot] != key) {
+            return null;
+        }
+        long[] removed = sets[slot];
+        size--;
+        values -= removed.length;
+
+        // Backward-shift deletion keeps probe chains intact without tombstones.
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY_KEY) {
+            int home = home(keys[next], mask);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                sets[gap] = sets[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY_KEY;
+        sets[gap] = null;
+        return removed;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[][] oldSets = sets;
+        long[] newKeys = new long[oldKeys.length * 2];
+        long[][] newSets = new long[newKeys.length][];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY_KEY) {
+                int slot = slot(newKeys, oldKeys[i]);
+                newKeys[slot] = oldKeys[i];
+                newSets[slot] = oldSets[i];
+            }
+        }
+        keys = newKeys;
+        sets = newSets;
+    }
+
+    /**
+     * Probes for {@code key} without assuming the arrays are consistent, since optimistic
+     * readers may see a resize half-published; such a read is discarded on validation.
+     */
+    private static long[] find(long[] keys, long[][] sets, long key) {
+        if (keys.length != sets.length) {
+            return null;
+        }
+        int mask = keys.length - 1;
+        int slot = home(key, mask);
+        for (int probes = 0; probes <= mask; probes++) {
+            long current = keys[slot];
+            if (current == key) {
+                return sets[slot];
+            }
+            if (current == EMPTY_KEY) {
+                return null;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private static int slot(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int slot = home(key, mask);
+        while (keys[slot] != EMPTY_KEY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int home(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
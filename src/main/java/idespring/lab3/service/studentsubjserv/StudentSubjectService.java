@@ -1,20 +1,21 @@
 package idespring.lab3.service.studentsubjserv;
 
-import idespring.lab3.model.Student;
-import idespring.lab3.model.Subject;
+import idespring.lab3.model.snapshot.StudentSnapshot;
+import idespring.lab3.model.snapshot.StudentSubjectsSnapshot;
+import idespring.lab3.model.snapshot.SubjectSnapshot;
+import idespring.lab3.model.snapshot.SubjectStudentsSnapshot;
 import java.util.List;
-import java.util.Set;
 
 public interface StudentSubjectService {
     void addSubjectToStudent(Long studentId, Long subjectId);
 
     void removeSubjectFromStudent(Long studentId, Long subjectId);
 
-    List<Subject> getSubjectsByStudent(Long studentId);
+    List<SubjectSnapshot> getSubjectsByStudent(Long studentId);
 
-    Set<Student> getStudentsBySubject(Long subjectId);
+    List<StudentSnapshot> getStudentsBySubject(Long subjectId);
 
-    Student findStudentWithSubjects(Long studentId);
+    StudentSubjectsSnapshot findStudentWithSubjects(Long studentId);
 
-    Subject findSubjectWithStudents(Long subjectId);
+    SubjectStudentsSnapshot findSubjectWithStudents(Long subjectId);
 }
\ No newline at end of file
@@ -1,14 +1,19 @@
 package idespring.lab3.service.studentsubjserv;
 
 import idespring.lab3.config.CacheConfig;
-import idespring.lab3.model.Student;
-import idespring.lab3.model.Subject;
+import idespring.lab3.config.CacheRegion;
+import idespring.lab3.config.CacheTag;
+import idespring.lab3.model.snapshot.StudentSnapshot;
+import idespring.lab3.model.snapshot.StudentSubjectsSnapshot;
+import idespring.lab3.model.snapshot.SubjectSnapshot;
+import idespring.lab3.model.snapshot.SubjectStudentsSnapshot;
 import idespring.lab3.repository.studentrepo.StudentRepository;
 import idespring.lab3.repository.subjectrepo.SubjectRepository;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,7 +23,12 @@ import org.springframework.stereotype.Service;
 public class StudentSubjectServiceImpl implements StudentSubjectService {
     private final StudentRepository studentRepository;
     private final SubjectRepository subjectRepository;
+    private final EnrollmentIndex enrollmentIndex;
     private final CacheConfig<String, Object> cache;
+    private final CacheRegion<Long, List<SubjectSnapshot>> studentSubjectsCache;
+    private final CacheRegion<Long, List<StudentSnapshot>> subjectStudentsCache;
+    private final CacheRegion<Long, StudentSubjectsSnapshot> studentWithSubjectsCache;
+    private final CacheRegion<Long, SubjectStudentsSnapshot> subjectWithStudentsCache;
     private static final String STUDENT_ERR = "Student not found";
     private static final String SUBJECT_ERR = "Subject not found";
     private static final Logger logger = LoggerFactory.getLogger(StudentSubjectServiceImpl.class);
@@ -26,18 +36,35 @@ public class StudentSubjectServiceImpl implements StudentSubjectService {
     @Autowired
     public StudentSubjectServiceImpl(StudentRepository studentRepository,
                                      SubjectRepository subjectRepository,
+                                     EnrollmentIndex enrollmentIndex,
                                      CacheConfig<String, Object> cache) {
         this.studentRepository = studentRepository;
         this.subjectRepository = subjectRepository;
+        this.enrollmentIndex = enrollmentIndex;
         this.cache = cache;
+        this.studentSubjectsCache = cache.region("subjects.byStudent",
+                (studentId, subjects) -> enrollmentTags(CacheTag.student(studentId), subjects));
+        this.subjectStudentsCache = cache.region("students.bySubject",
+                (subjectId, students) -> List.of(CacheTag.subject(subjectId), CacheTag.STUDENTS));
+        this.studentWithSubjectsCache = cache.region("students.withSubjects",
+                (studentId, student) -> enrollmentTags(CacheTag.student(studentId),
+                        student.subjects()));
+        this.subjectWithStudentsCache = cache.region("subjects.withStudents",
+                (subjectId, subject) -> List.of(CacheTag.subject(subjectId), CacheTag.STUDENTS));
     }
 
-    private void clearCaches(Long studentId, Long subjectId) {
-        cache.remove("subjects-" + studentId);
-        cache.remove("students-" + subjectId);
+    private static List<CacheTag> enrollmentTags(CacheTag owner,
+                                                 Collection<SubjectSnapshot> subjects) {
+        List<CacheTag> tags = new ArrayList<>(subjects.size() + 1);
+        tags.add(owner);
+        for (SubjectSnapshot subject : subjects) {
+            tags.add(CacheTag.subject(subject.id()));
+        }
+        return tags;
+    }
 
-        cache.remove("student-with-subjects-" + studentId);
-        cache.remove("subject-with-students-" + subjectId);
+    private void clearCaches(Long studentId, Long subjectId) {
+        cache.invalidate(CacheTag.student(studentId), CacheTag.subject(subjectId));
 
         logger.debug("Cleared caches for student {} and subject {}", studentId, subjectId);
     }
@@ -53,6 +80,7 @@ public class StudentSubjectServiceImpl implements StudentSubjectService {
                 .orElseThrow(() -> new EntityNotFoundException(SUBJECT_ERR));
 
         studentRepository.addSubject(studentId, subjectId);
+        enrollmentIndex.recordEnrolled(studentId, subjectId);
         clearCaches(studentId, subjectId);
         logger.info("Subject {} added to student {}", subjectId, studentId);
     }
@@ -68,21 +96,19 @@ public class StudentSubjectServiceImpl implements StudentSubjectService {
                 .orElseThrow(() -> new EntityNotFoundException(SUBJECT_ERR));
 
         studentRepository.removeSubject(studentId, subjectId);
+        enrollmentIndex.recordUnenrolled(studentId, subjectId);
         clearCaches(studentId, subjectId);
         logger.info("Subject {} removed from student {}", subjectId, studentId);
     }
 
     @Override
-    public List<Subject> getSubjectsByStudent(Long studentId) {
+    public List<SubjectSnapshot> getSubjectsByStudent(Long studentId) {
         long start = System.nanoTime();
         logger.info("Fetching subjects for student {}", studentId);
 
-        @SuppressWarnings("unchecked")
-        List<Subject> subjects = (List<Subject>) cache.get("subjects-" + studentId);
-        if (subjects == null) {
-            subjects = subjectRepository.findByStudentId(studentId);
-            cache.put("subjects-" + studentId, subjects);
-        }
+        List<SubjectSnapshot> subjects = studentSubjectsCache.getOrLoad(studentId,
+                key -> subjectRepository.findByStudentId(key).stream()
+                        .map(SubjectSnapshot::of).toList());
 
         long end = System.nanoTime();
         logger.info("Execution time for getSubjectsByStudent: {} ms", (end - start) / 1_000_000);
@@ -90,18 +116,14 @@ public class StudentSubjectServiceImpl implements StudentSubjectService {
     }
 
     @Override
-    public Set<Student> getStudentsBySubject(Long subjectId) {
+    public List<StudentSnapshot> getStudentsBySubject(Long subjectId) {
         long start = System.nanoTime();
         logger.info("Fetching students for subject {}", subjectId);
 
-        @SuppressWarnings("unchecked")
-        Set<Student> students = (Set<Student>) cache.get("students-" + subjectId);
-        if (students == null) {
-            Subject subject = subjectRepository.findByIdWithStudents(subjectId)
-                    .orElseThrow(() -> new EntityNotFoundException(SUBJECT_ERR));
-            students = subject.getStudents();
-            cache.put("students-" + subjectId, students);
-        }
+        List<StudentSnapshot> students = subjectStudentsCache.getOrLoad(subjectId,
+                key -> subjectRepository.findByIdWithStudents(key)
+                        .orElseThrow(() -> new EntityNotFoundException(SUBJECT_ERR))
+                        .getStudents().stream().map(StudentSnapshot::of).toList());
 
         long end = System.nanoTime();
         logger.info("Execution time for getStudentsBySubject: {} ms", (end - start) / 1_000_000);
@@ -109,16 +131,14 @@ public class StudentSubjectServiceImpl implements StudentSubjectService {
     }
 
     @Override
-    public Student findStudentWithSubjects(Long studentId) {
+    public StudentSubjectsSnapshot findStudentWithSubjects(Long studentId) {
         long start = System.nanoTime();
         logger.info("Fetching student with subjects for ID: {}", studentId);
 
-        Student student = (Student) cache.get("student-with-subjects-" + studentId);
-        if (student == null) {
-            student = studentRepository.findByIdWithSubjects(studentId)
-                    .orElseThrow(() -> new EntityNotFoundException(STUDENT_ERR));
-            cache.put("student-with-subjects-" + studentId, student);
-        }
+        StudentSubjectsSnapshot student = studentWithSubjectsCache.getOrLoad(studentId,
+                key -> studentRepository.findByIdWithSubjects(key)
+                        .map(StudentSubjectsSnapshot::of)
+                        .orElseThrow(() -> new EntityNotFoundException(STUDENT_ERR)));
 
         long end = System.nanoTime();
         logger.info("Execution time for findStudentWithSubjects: {} ms", (end - start) / 1_000_000);
@@ -126,16 +146,14 @@ public class StudentSubjectServiceImpl implements StudentSubjectService {
     }
 
     @Override
-    public Subject findSubjectWithStudents(Long subjectId) {
+    public SubjectStudentsSnapshot findSubjectWithStudents(Long subjectId) {
         long start = System.nanoTime();
         logger.info("Fetching subject with students for ID: {}", subjectId);
 
-        Subject subject = (Subject) cache.get("subject-with-students-" + subjectId);
-        if (subject == null) {
-            subject = subjectRepository.findByIdWithStudents(subjectId)
-                    .orElseThrow(() -> new EntityNotFoundException(SUBJECT_ERR));
-            cache.put("subject-with-students-" + subjectId, subject);
-        }
+        SubjectStudentsSnapshot subject = subjectWithStudentsCache.getOrLoad(subjectId,
+                key -> subjectRepository.findByIdWithStudents(key)
+                        .map(SubjectStudentsSnapshot::of)
+                        .orElseThrow(() -> new EntityNotFoundException(SUBJECT_ERR)));
 
         long end = System.nanoTime();
         logger.info("Execution time for findSubjectWithStudents: {} ms", (end - start) / 1_000_000);
@@ -0,0 +1,267 @@
+package idespring.lab3.service.studservice;
+
+import idespring.lab3.config.TransactionHooks;
+import idespring.lab3.model.snapshot.KeysetPage;
+import idespring.lab3.model.snapshot.PageCursor;
+import idespring.lab3.model.snapshot.StudentSnapshot;
+import idespring.lab3.repository.studentrepo.StudentRepository;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Every student, ordered by (age, name, id): one skip list per age, sorted by name and id,
+ * under a skip list of ages. A page for an age range seeks past the cursor in each age's
+ * list and merges them by name, so it walks about {@code limit} nodes per age in range
+ * whatever the number of students, in either direction and without a query.
+ *
+ * <p>Writes are applied once their transaction commits, and the index is reloaded at
+ * startup and periodically as a consistency check. Until the first load finishes
+ * {@link #isReady()} is false and callers fall back to querying.
+ */
+@Component
+public class StudentAgeIndex {
+    private static final Logger logger = LoggerFactory.getLogger(StudentAgeIndex.class);
+    /**
+     * Names in code point order, nulls last: the order Postgres gives
+     * {@code name COLLATE "C"}, which the query fallback uses.
+     */
+    private static final Comparator<StudentSnapshot> BY_NAME = Comparator
+            .comparing(StudentSnapshot::name,
+                    Comparator.nullsLast(StudentAgeIndex::compareCodePoints))
+            .thenComparingLong(StudentSnapshot::id);
+
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long checkIntervalMillis;
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "student-age-index");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private volatile Entries entries = new Entries();
+    private volatile boolean ready;
+    /** Updates made while a rebuild loads; guarded by the update lock. */
+    private List<Consumer<Entries>> pending;
+
+    /** The next student of one age's list in a page merge, and the rest of that list. */
+    private record Head(StudentSnapshot student, Iterator<StudentSnapshot> rest) {}
+
+    /** The students by id and by age; replaced as a whole on rebuild. */
+    private static final class Entries {
+        private final Map<Long, StudentSnapshot> byId = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListMap<Integer, NavigableSet<StudentSnapshot>> byAge =
+                new ConcurrentSkipListMap<>();
+
+        void put(StudentSnapshot student) {
+            remove(student.id());
+            byId.put(student.id(), student);
+            byAge.computeIfAbsent(student.age(), age -> new ConcurrentSkipListSet<>(BY_NAME))
+                    .add(student);
+        }
+
+        void remove(long id) {
+            StudentSnapshot previous = byId.remove(id);
+            if (previous != null) {
+                NavigableSet<StudentSnapshot> students = byAge.get(previous.age());
+                students.remove(previous);
+                if (students.isEmpty()) {
+                    byAge.remove(previous.age(), students);
+                }
+            }
+        }
+    }
+
+    public StudentAgeIndex(StudentRepository studentRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${students.ageIndex.checkIntervalMillis:600000}")
+                           long checkIntervalMillis) {
+        this.studentRepository = studentRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.checkIntervalMillis = checkIntervalMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.execute(this::rebuild);
+        if (checkIntervalMillis > 0) {
+            executor.scheduleWithFixedDelay(this::rebuild, checkIntervalMillis,
+                    checkIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * One page of students aged {@code minAge} to {@code maxAge} (either bound optional),
+     * ordered by (name, id) and starting after {@code after}.
+     */
+    public KeysetPage<StudentSnapshot> page(Integer minAge, Integer maxAge, boolean descending,
+                                            PageCursor after, int limit) {
+        Comparator<StudentSnapshot> order = descending ? BY_NAME.reversed() : BY_NAME;
+        StudentSnapshot from = after != null
+                ? new StudentSnapshot(after.id(), after.name(), 0, null) : null;
+
+        PriorityQueue<Head> heads = new PriorityQueue<>(
+                (left, right) -> order.compare(left.student(), right.student()));
+        for (NavigableSet<StudentSnapshot> students : ages(minAge, maxAge)) {
+            NavigableSet<StudentSnapshot> rest = descending
+                    ? (from != null ? students.headSet(from, false) : students).descendingSet()
+                    : from != null ? students.tailSet(from, false) : students;
+            Iterator<StudentSnapshot> iterator = rest.iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Head(iterator.next(), iterator));
+            }
+        }
+
+        List<StudentSnapshot> rows = new ArrayList<>(limit + 1);
+        while (rows.size() <= limit && !heads.isEmpty()) {
+            Head head = heads.poll();
+            rows.add(head.student());
+            if (head.rest().hasNext()) {
+                heads.add(new Head(head.rest().next(), head.rest()));
+            }
+        }
+        return KeysetPage.of(rows, limit, student -> new PageCursor(student.name(), student.id()));
+    }
+
+    private Collection<NavigableSet<StudentSnapshot>> ages(Integer minAge, Integer maxAge) {
+        ConcurrentSkipListMap<Integer, NavigableSet<StudentSnapshot>> byAge = entries.byAge;
+        if (minAge != null && maxAge != null) {
+            return byAge.subMap(minAge, true, maxAge, true).values();
+        }
+        if (minAge != null) {
+            return byAge.tailMap(minAge, true).values();
+        }
+        return maxAge != null ? byAge.headMap(maxAge, true).values() : byAge.values();
+    }
+
+    public void recordStudent(StudentSnapshot student) {
+        TransactionHooks.afterCommit(() -> update(current -> current.put(student)));
+    }
+
+    public void recordStudentRemoved(long id) {
+        TransactionHooks.afterCommit(() -> update(current -> current.remove(id)));
+    }
+
+    public void recordGroupAssigned(Collection<Long> studentIds, long groupId) {
+        TransactionHooks.afterCommit(() -> update(current -> {
+            for (Long id : studentIds) {
+                StudentSnapshot student = current.byId.get(id);
+                if (student != null) {
+                    current.put(new StudentSnapshot(id, student.name(), student.age(), groupId));
+                }
+            }
+        }));
+    }
+
+    /** For writes that do not return ids, such as bulk imports and cascading deletes. */
+    public void rebuildAfterCommit() {
+        TransactionHooks.afterCommit(() -> executor.execute(this::rebuild));
+    }
+
+    /**
+     * Reloads the index from one pass over the students table. The load runs without the
+     * update lock; updates keep going to the current entries and are also buffered, then
+     * replayed in order onto the new entries before the swap. They are idempotent, so one
+     * already visible to the reload query does no harm.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        List<Consumer<Entries>> buffered = new ArrayList<>();
+        updateLock.lock();
+        try {
+            pending = buffered;
+        } finally {
+            updateLock.unlock();
+        }
+
+        try {
+            Entries loaded = new Entries();
+            readOnlyTransaction.executeWithoutResult(status ->
+                    studentRepository.forEachStudent(loaded::put));
+            updateLock.lock();
+            try {
+                buffered.forEach(change -> change.accept(loaded));
+                if (ready && loaded.byId.size() != entries.byId.size()) {
+                    logger.warn("Student age index drifted from the database: {} indexed, "
+                            + "{} stored", entries.byId.size(), loaded.byId.size());
+                }
+                entries = loaded;
+                ready = true;
+            } finally {
+                pending = null;
+                updateLock.unlock();
+            }
+            logger.info("Student age index holds {} students over {} ages",
+                    loaded.byId.size(), loaded.byAge.size());
+        } catch (RuntimeException e) {
+            logger.warn("Failed to rebuild the student age index", e);
+            updateLock.lock();
+            try {
+                pending = null;
+            } finally {
+                updateLock.unlock();
+            }
+        }
+
+        long end = System.nanoTime();
+        logger.info("Execution time for rebuild of student age index: {} ms",
+                (end - start) / 1_000_000);
+    }
+
+    private void update(Consumer<Entries> change) {
+        updateLock.lock();
+        try {
+            change.accept(entries);
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /** Unlike {@link String#compareTo}, orders surrogate pairs after all other chars. */
+    private static int compareCodePoints(String left, String right) {
+        int i = 0;
+        int j = 0;
+        while (i < left.length() && j < right.length()) {
+            int a = left.codePointAt(i);
+            int b = right.codePointAt(j);
+            if (a != b) {
+                return Integer.compare(a, b);
+            }
+            i += Character.charCount(a);
+            j += Character.charCount(b);
+        }
+        return Boolean.compare(i < left.length(), j < right.length());
+    }
+}
@@ -1,16 +1,27 @@
 package idespring.lab3.service.studservice;
 
 import idespring.lab3.model.Student;
+import idespring.lab3.model.snapshot.KeysetPage;
+import idespring.lab3.model.snapshot.PageCursor;
+import idespring.lab3.model.snapshot.StudentSnapshot;
+import idespring.lab3.service.searchservice.NameMatch;
+import java.util.Collection;
 import java.util.List;
 
 public interface StudentServ {
-    List<Student> readStudents(Integer age, String sort, Long id);
+    KeysetPage<StudentSnapshot> readStudents(Integer age, Integer minAge, Integer maxAge,
+                                             String sort, Long id, PageCursor after,
+                                             int limit);
 
-    List<Student> findByGroupId(Long groupId);
+    KeysetPage<StudentSnapshot> findByGroupId(Long groupId, PageCursor after, int limit);
 
-    Student findById(Long id);
+    StudentSnapshot findById(Long id);
 
-    Student addStudent(Student student);
+    List<StudentSnapshot> findAllByIds(Collection<Long> ids);
+
+    List<NameMatch> searchByName(String query, int limit);
+
+    StudentSnapshot addStudent(Student student);
 
     void updateStudent(String name, int age, long id);
 
@@ -1,10 +1,24 @@
 package idespring.lab3.service.studservice;
 
 import idespring.lab3.config.CacheConfig;
+import idespring.lab3.config.CacheRegion;
+import idespring.lab3.config.CacheTag;
+import idespring.lab3.config.TransactionHooks;
 import idespring.lab3.model.Mark;
 import idespring.lab3.model.Student;
 import idespring.lab3.model.Subject;
+import idespring.lab3.model.snapshot.KeysetPage;
+import idespring.lab3.model.snapshot.MarkSnapshot;
+import idespring.lab3.model.snapshot.PageCursor;
+import idespring.lab3.model.snapshot.StudentSnapshot;
 import idespring.lab3.repository.studentrepo.StudentRepository;
+import idespring.lab3.service.markservice.LeaderboardStore;
+import idespring.lab3.service.markservice.MarkAggregateStore;
+import idespring.lab3.service.markservice.MarkColumnStore;
+import idespring.lab3.service.markservice.MarkValueIndex;
+import idespring.lab3.service.searchservice.NameMatch;
+import idespring.lab3.service.searchservice.NameSearchIndex;
+import idespring.lab3.service.studentsubjserv.EnrollmentIndex;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import java.util.*;
@@ -17,41 +31,79 @@ import org.springframework.stereotype.Service;
 @Service
 public class StudentServiceImpl implements StudentServ {
     private final StudentRepository studentRepository;
+    private final MarkAggregateStore markAggregates;
+    private final EnrollmentIndex enrollmentIndex;
+    private final LeaderboardStore leaderboards;
+    private final MarkValueIndex valueIndex;
+    private final MarkColumnStore columnStore;
+    private final NameSearchIndex nameSearch;
+    private final StudentAgeIndex ageIndex;
     private final CacheConfig<String, Object> cache;
+    private final CacheRegion<Long, StudentSnapshot> studentCache;
+    private final CacheRegion<GroupPageQuery, KeysetPage<StudentSnapshot>> groupPageCache;
     private static final String NOTFOUND = "Student not found with id: ";
     private static final Logger logger = LoggerFactory.getLogger(StudentServiceImpl.class);
 
+    private record GroupPageQuery(Long groupId, PageCursor after, int limit) {}
+
     @Autowired
     public StudentServiceImpl(StudentRepository studentRepository,
+                              MarkAggregateStore markAggregates,
+                              EnrollmentIndex enrollmentIndex,
+                              LeaderboardStore leaderboards,
+                              MarkValueIndex valueIndex,
+                              MarkColumnStore columnStore,
+                              NameSearchIndex nameSearch,
+                              StudentAgeIndex ageIndex,
                               CacheConfig<String, Object> cache) {
         this.studentRepository = studentRepository;
+        this.markAggregates = markAggregates;
+        this.enrollmentIndex = enrollmentIndex;
+        this.leaderboards = leaderboards;
+        this.valueIndex = valueIndex;
+        this.columnStore = columnStore;
+        this.nameSearch = nameSearch;
+        this.ageIndex = ageIndex;
         this.cache = cache;
+        this.studentCache = cache.region("students", StudentServiceImpl::studentTags);
+        this.groupPageCache = cache.refreshingRegion("students.byGroup",
+                StudentServiceImpl::groupPageTags);
     }
 
+    /**
+     * Pages through students in an age range (or of one {@code age}) by name. Pages come
+     * from {@link StudentAgeIndex} rather than a cache, so no student is copied into an
+     * entry per (range, sort, cursor) combination; until the index loads they are queried.
+     */
     @Override
-    public List<Student> readStudents(Integer age, String sort, Long id) {
+    public KeysetPage<StudentSnapshot> readStudents(Integer age, Integer minAge,
+                                                    Integer maxAge, String sort, Long id,
+                                                    PageCursor after, int limit) {
         long start = System.nanoTime();
-        String cacheKey = age + "-" + sort + "-" + id;
-        logger.info("Fetching students with age: {}, sort: {}, id: {}", age, sort, id);
-
-        @SuppressWarnings("unchecked")
-        List<Student> students = (List<Student>) cache.get(cacheKey);
-        if (students == null) {
-            if (id != null) {
-                students = Collections.singletonList(
-                        studentRepository.findById(id)
-                                .orElseThrow(() -> new EntityNotFoundException(NOTFOUND + id))
-                );
-            } else if (age != null && sort != null) {
-                students = studentRepository.findByAgeAndSortByName(age, sort);
-            } else if (age != null) {
-                students = studentRepository.findByAge(age).stream().toList();
-            } else if (sort != null) {
-                students = studentRepository.sortByName(sort);
-            } else {
-                students = studentRepository.findAll();
-            }
-            cache.put(cacheKey, students);
+        logger.info("Fetching students with age: {}, minAge: {}, maxAge: {}, sort: {}, "
+                + "id: {}, limit: {}", age, minAge, maxAge, sort, id, limit);
+
+        if (id != null && (age != null || minAge != null || maxAge != null)) {
+            throw new IllegalArgumentException("id cannot be combined with age, minAge or maxAge");
+        }
+        if (age != null && (minAge != null || maxAge != null)) {
+            throw new IllegalArgumentException("age cannot be combined with minAge or maxAge");
+        }
+        if (minAge != null && maxAge != null && minAge > maxAge) {
+            throw new IllegalArgumentException("minAge must not be greater than maxAge");
+        }
+        Integer from = age != null ? age : minAge;
+        Integer to = age != null ? age : maxAge;
+        boolean descending = "desc".equalsIgnoreCase(sort);
+
+        KeysetPage<StudentSnapshot> students;
+        if (id != null) {
+            students = KeysetPage.single(findById(id));
+        } else if (ageIndex.isReady()) {
+            students = ageIndex.page(from, to, descending, after, limit);
+        } else {
+            students = KeysetPage.of(studentRepository.findPage(from, to, null, descending,
+                    after, limit), limit, student -> new PageCursor(student.name(), student.id()));
         }
 
         long end = System.nanoTime();
@@ -60,38 +112,74 @@ public class StudentServiceImpl implements StudentServ {
     }
 
     @Override
-    public List<Student> findByGroupId(Long groupId) {
+    public KeysetPage<StudentSnapshot> findByGroupId(Long groupId, PageCursor after,
+                                                     int limit) {
         logger.info("Fetching students from group ID: {}", groupId);
-        String cacheKey = "group-" + groupId;
+        return groupPageCache.getOrLoad(new GroupPageQuery(groupId, after, limit),
+                this::loadGroupPage);
+    }
 
-        @SuppressWarnings("unchecked")
-        List<Student> students = (List<Student>) cache.get(cacheKey);
-        if (students == null) {
-            students = studentRepository.findByGroupId(groupId).stream().toList();
-            cache.put(cacheKey, students);
-        }
-        return students;
+    private KeysetPage<StudentSnapshot> loadGroupPage(GroupPageQuery query) {
+        List<StudentSnapshot> rows = studentRepository.findPage(null, null, query.groupId(),
+                false, query.after(), query.limit());
+        return KeysetPage.of(rows, query.limit(),
+                student -> new PageCursor(student.name(), student.id()));
     }
 
     @Override
-    public Student findById(Long id) {
+    public StudentSnapshot findById(Long id) {
         long start = System.nanoTime();
         logger.info("Fetching student from database with id: {}", id);
 
-        Student student = (Student) cache.get(id.toString());
-        if (student == null) {
-            student = studentRepository.findById(id)
-                    .orElseThrow(() -> new EntityNotFoundException(NOTFOUND + id));
-            cache.put(id.toString(), student);
-        }
+        StudentSnapshot student = studentCache.getOrLoad(id,
+                key -> studentRepository.findById(key)
+                        .map(StudentSnapshot::of)
+                        .orElseThrow(() -> new EntityNotFoundException(NOTFOUND + key)));
 
         long end = System.nanoTime();
         logger.info("Execution time for findById: {} ms", (end - start) / 1_000_000);
         return student;
     }
 
+    /**
+     * Students with the given ids, in the order asked for; unknown ids are skipped.
+     * Cached students are served from the cache and the rest come from one IN query.
+     */
+    @Override
+    public List<StudentSnapshot> findAllByIds(Collection<Long> ids) {
+        long start = System.nanoTime();
+        logger.info("Fetching {} students by id", ids.size());
+
+        List<StudentSnapshot> students = new ArrayList<>(studentCache.getAllOrLoad(ids,
+                misses -> studentRepository.findAllById(misses).stream()
+                        .map(StudentSnapshot::of)
+                        .collect(Collectors.toMap(StudentSnapshot::id, student -> student)))
+                .values());
+
+        long end = System.nanoTime();
+        logger.info("Execution time for findAllByIds: {} ms", (end - start) / 1_000_000);
+        return students;
+    }
+
     @Override
-    public Student addStudent(Student student) {
+    public List<NameMatch> searchByName(String query, int limit) {
+        long start = System.nanoTime();
+        logger.info("Searching students by name: {}, limit: {}", query, limit);
+
+        List<NameMatch> matches = nameSearch.isReady()
+                ? nameSearch.searchStudents(query, limit)
+                : studentRepository.searchByName(query.trim(), limit).stream()
+                        .map(row -> new NameMatch(((Number) row[0]).longValue(),
+                                (String) row[1]))
+                        .toList();
+
+        long end = System.nanoTime();
+        logger.info("Execution time for searchByName: {} ms", (end - start) / 1_000_000);
+        return matches;
+    }
+
+    @Override
+    public StudentSnapshot addStudent(Student student) {
         final long start = System.nanoTime();
         logger.info("Saving student: {}", student.getName());
 
@@ -106,25 +194,51 @@ public class StudentServiceImpl implements StudentServ {
 
         student.setSubjects(new HashSet<>());
         Student savedStudent = studentRepository.save(student);
-        cache.put(savedStudent.getId().toString(), savedStudent);
 
         for (Long subjectId : subjectIds) {
             studentRepository.addSubject(savedStudent.getId(), subjectId);
+            enrollmentIndex.recordEnrolled(savedStudent.getId(), subjectId);
+        }
+        List<MarkSnapshot> savedMarks = new ArrayList<>();
+        for (Mark mark : savedStudent.getMarks()) {
+            savedMarks.add(MarkSnapshot.of(mark));
+        }
+        if (!savedMarks.isEmpty()) {
+            markAggregates.recordAdded(savedMarks);
+            valueIndex.recordAdded(savedMarks);
+            columnStore.recordAdded(savedMarks, Collections.singletonMap(savedStudent.getId(),
+                    savedStudent.getGroup() != null ? savedStudent.getGroup().getId() : null));
         }
 
-        clearRelatedCaches(savedStudent);
+        StudentSnapshot snapshot = StudentSnapshot.of(savedStudent);
+        if (snapshot.groupId() != null) {
+            leaderboards.recordGroupAssigned(List.of(snapshot.id()), snapshot.groupId());
+        }
+        nameSearch.recordStudent(snapshot.id(), snapshot.name());
+        ageIndex.recordStudent(snapshot);
+        if (savedMarks.isEmpty()) {
+            clearRelatedCaches(snapshot);
+        } else if (snapshot.groupId() != null) {
+            clearRelatedCaches(snapshot, CacheTag.studentMarks(snapshot.id()),
+                    CacheTag.groupMarks(snapshot.groupId()), CacheTag.MARK_LISTS);
+        } else {
+            clearRelatedCaches(snapshot, CacheTag.studentMarks(snapshot.id()),
+                    CacheTag.MARK_LISTS);
+        }
+        TransactionHooks.afterCommit(() -> studentCache.put(snapshot.id(), snapshot));
 
         long end = System.nanoTime();
         logger.info("Execution time for addStudent: {} ms", (end - start) / 1_000_000);
-        return savedStudent;
+        return snapshot;
     }
 
     @Override
     public void updateStudent(String name, int age, long id) {
         logger.info("Updating student with id: {}", id);
-        Student student = findById(id);
+        StudentSnapshot student = findById(id);
         studentRepository.update(name, age, id);
-        clearStudentCache(id);
+        nameSearch.recordStudent(id, name);
+        ageIndex.recordStudent(new StudentSnapshot(id, name, age, student.groupId()));
         clearRelatedCaches(student);
         logger.info("Student with id {} updated", id);
     }
@@ -134,86 +248,44 @@ public class StudentServiceImpl implements StudentServ {
     public void deleteStudent(long id) {
         logger.info("Deleting student with id: {}", id);
         Student student = studentRepository.findById(id).orElseThrow();
-        final Long groupId = student.getGroup() != null ? student.getGroup().getId() : null;
-        final int age = student.getAge();
 
         student.getSubjects().clear();
         studentRepository.saveAndFlush(student);
         studentRepository.delete(student);
 
-        clearStudentCache(id);
-        clearCachesByAge(age);
-        if (groupId != null) {
-            clearGroupCache(groupId);
-        }
-        clearListCaches();
+        markAggregates.recordStudentRemoved(id);
+        enrollmentIndex.recordStudentRemoved(id);
+        nameSearch.recordStudentRemoved(id);
+        ageIndex.recordStudentRemoved(id);
+        clearRelatedCaches(StudentSnapshot.of(student), CacheTag.MARKS);
 
         logger.info("Student with id {} deleted", id);
     }
 
-    public void clearStudentCache(long id) {
-        cache.remove(String.valueOf(id));
-        logger.info("Cleared cache for student id: {}", id);
-    }
-
-    public void clearGroupCache(Long groupId) {
-        String groupCacheKey = "group-" + groupId;
-        cache.remove(groupCacheKey);
-        cache.remove("students-in-group-" + groupId);
-        logger.info("Cleared cache for group id: {}", groupId);
-    }
-
-
-    public void clearCachesByAge(int age) {
-        List<String> keysToRemove = new ArrayList<>();
-
-        for (int i = 0; i < cache.size(); i++) {
-            String key = age + "-null-null";
-            keysToRemove.add(key);
-
-            key = age + "-asc-null";
-            keysToRemove.add(key);
-
-            key = age + "-desc-null";
-            keysToRemove.add(key);
+    private void clearRelatedCaches(StudentSnapshot student, CacheTag... extraTags) {
+        if (student == null) {
+            return;
         }
 
-        for (String key : keysToRemove) {
-            cache.remove(key);
-        }
+        List<CacheTag> tags = new ArrayList<>(studentTags(student.id(), student));
+        tags.add(CacheTag.STUDENTS);
+        tags.addAll(Arrays.asList(extraTags));
+        cache.invalidate(tags.toArray(new CacheTag[0]));
 
-        logger.info("Cleared caches for age: {}", age);
+        logger.info("Cleared all related caches for student: {}", student.id());
     }
 
-    public void clearListCaches() {
-        List<String> keysToRemove = new ArrayList<>();
-
-        keysToRemove.add("null-null-null");
-        keysToRemove.add("null-asc-null");
-        keysToRemove.add("null-desc-null");
-
-        for (String key : keysToRemove) {
-            cache.remove(key);
+    private static List<CacheTag> studentTags(Long id, StudentSnapshot student) {
+        List<CacheTag> tags = new ArrayList<>(2);
+        tags.add(CacheTag.student(id));
+        if (student.groupId() != null) {
+            tags.add(CacheTag.group(student.groupId()));
         }
-
-        logger.info("Cleared list caches");
+        return tags;
     }
 
-    private void clearRelatedCaches(Student student) {
-        if (student == null) {
-            return;
-        }
-
-        int age = student.getAge();
-        Long groupId = student.getGroup() != null ? student.getGroup().getId() : null;
-
-        clearCachesByAge(age);
-        if (groupId != null) {
-            clearGroupCache(groupId);
-        }
-        clearListCaches();
-
-        logger.info("Cleared all related caches for student: {}", student.getId());
+    private static List<CacheTag> groupPageTags(GroupPageQuery query,
+                                                KeysetPage<StudentSnapshot> page) {
+        return List.of(CacheTag.group(query.groupId()), CacheTag.STUDENTS);
     }
 }
-
@@ -1,16 +1,26 @@
 package idespring.lab3.service.subjectservice;
 
 import idespring.lab3.model.Subject;
+import idespring.lab3.model.snapshot.KeysetPage;
+import idespring.lab3.model.snapshot.PageCursor;
+import idespring.lab3.model.snapshot.SubjectSnapshot;
+import idespring.lab3.service.searchservice.NameMatch;
+import java.util.Collection;
 import java.util.List;
 
 public interface SubjectService {
-    List<Subject> readSubjects(String namePattern, String sort);
+    KeysetPage<SubjectSnapshot> readSubjects(String namePattern, String sort,
+                                             PageCursor after, int limit);
 
-    Subject findById(Long id);
+    List<NameMatch> searchByName(String query, int limit);
 
-    Subject findByName(String name);
+    SubjectSnapshot findById(Long id);
 
-    Subject addSubject(Subject subject);
+    List<SubjectSnapshot> findAllByIds(Collection<Long> ids);
+
+    SubjectSnapshot findByName(String name);
+
+    SubjectSnapshot addSubject(Subject subject);
 
     void deleteSubject(Long id);
 
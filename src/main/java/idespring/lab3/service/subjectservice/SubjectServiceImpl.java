@@ -1,13 +1,22 @@
 package idespring.lab3.service.subjectservice;
 
 import idespring.lab3.config.CacheConfig;
-import idespring.lab3.model.Mark;
+import idespring.lab3.config.CacheRegion;
+import idespring.lab3.config.CacheTag;
+import idespring.lab3.config.TransactionHooks;
 import idespring.lab3.model.Subject;
-import idespring.lab3.repository.markrepo.MarkRepository;
+import idespring.lab3.model.snapshot.KeysetPage;
+import idespring.lab3.model.snapshot.PageCursor;
+import idespring.lab3.model.snapshot.SubjectSnapshot;
 import idespring.lab3.repository.subjectrepo.SubjectRepository;
+import idespring.lab3.service.markservice.MarkAggregateStore;
+import idespring.lab3.service.searchservice.NameMatch;
+import idespring.lab3.service.searchservice.NameSearchIndex;
+import idespring.lab3.service.studentsubjserv.EnrollmentIndex;
 import jakarta.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,72 +27,115 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class SubjectServiceImpl implements SubjectService {
     private final SubjectRepository subjectRepository;
-    private final MarkRepository markRepository;
+    private final MarkAggregateStore markAggregates;
+    private final EnrollmentIndex enrollmentIndex;
+    private final NameSearchIndex nameSearch;
     private final CacheConfig<String, Object> cache;
+    private final CacheRegion<Long, SubjectSnapshot> subjectCache;
+    private final CacheRegion<String, SubjectSnapshot> subjectNameCache;
+    private final CacheRegion<SubjectPageQuery, KeysetPage<SubjectSnapshot>> subjectPageCache;
     private static final String NOTFOUND = "Subject not found with id: ";
     private static final Logger logger = LoggerFactory.getLogger(SubjectServiceImpl.class);
 
+    private record SubjectPageQuery(String namePattern, boolean descending, PageCursor after,
+                                    int limit) {}
+
     @Autowired
     public SubjectServiceImpl(SubjectRepository subjectRepository,
-                              MarkRepository markRepository,
+                              MarkAggregateStore markAggregates,
+                              EnrollmentIndex enrollmentIndex,
+                              NameSearchIndex nameSearch,
                               CacheConfig<String, Object> cache) {
         this.subjectRepository = subjectRepository;
-        this.markRepository = markRepository;
+        this.markAggregates = markAggregates;
+        this.enrollmentIndex = enrollmentIndex;
+        this.nameSearch = nameSearch;
         this.cache = cache;
+        this.subjectCache = cache.region("subjects",
+                (id, subject) -> List.of(CacheTag.subject(id)));
+        this.subjectNameCache = cache.region("subjects.byName",
+                (name, subject) -> List.of(CacheTag.subject(subject.id())));
+        this.subjectPageCache = cache.refreshingRegion("subjects.pages",
+                (query, page) -> List.of(CacheTag.SUBJECTS));
     }
 
     @Override
-    public List<Subject> readSubjects(String namePattern, String sort) {
-        String cacheKey = namePattern + "-" + (sort != null ? sort : "default");
-        if (cache.get(cacheKey) != null) {
-            return (List<Subject>) cache.get(cacheKey);
-        }
+    public KeysetPage<SubjectSnapshot> readSubjects(String namePattern, String sort,
+                                                    PageCursor after, int limit) {
+        return subjectPageCache.getOrLoad(new SubjectPageQuery(namePattern,
+                "desc".equalsIgnoreCase(sort), after, limit), this::loadSubjects);
+    }
 
+    private KeysetPage<SubjectSnapshot> loadSubjects(SubjectPageQuery query) {
         final long start = System.nanoTime();
-        logger.info("Fetching subjects from database for namePattern: {}, sort: {}",
-                namePattern, sort);
-
-        List<Subject> subjects;
-        if (namePattern != null) {
-            subjects = subjectRepository.findByNameContaining(namePattern);
-        } else if ("asc".equalsIgnoreCase(sort)) {
-            subjects = subjectRepository.findAllByOrderByNameAsc();
-        } else {
-            subjects = subjectRepository.findAll();
-        }
-
-        cache.put(cacheKey, subjects);
+        logger.info("Fetching subjects with namePattern: {}, descending: {}, limit: {}",
+                query.namePattern(), query.descending(), query.limit());
+
+        List<SubjectSnapshot> rows = subjectRepository.findPage(query.namePattern(),
+                query.descending(), query.after(), query.limit());
+
         long end = System.nanoTime();
         logger.info("Execution time for readSubjects: {} ms", (end - start) / 1_000_000);
-        return subjects;
+        return KeysetPage.of(rows, query.limit(),
+                subject -> new PageCursor(subject.name(), subject.id()));
+    }
+
+    @Override
+    public List<NameMatch> searchByName(String query, int limit) {
+        long start = System.nanoTime();
+        logger.info("Searching subjects by name: {}, limit: {}", query, limit);
+
+        List<NameMatch> matches = nameSearch.isReady()
+                ? nameSearch.searchSubjects(query, limit)
+                : subjectRepository.findPage(query.trim(), false, null, limit).stream()
+                        .map(subject -> new NameMatch(subject.id(), subject.name()))
+                        .toList();
+
+        long end = System.nanoTime();
+        logger.info("Execution time for searchByName: {} ms", (end - start) / 1_000_000);
+        return matches;
+    }
+
+    @Override
+    public SubjectSnapshot findById(Long id) {
+        return subjectCache.getOrLoad(id, this::loadById);
     }
 
+    /** Subjects with the given ids in the order asked for, misses loaded in one query. */
     @Override
-    public Subject findById(Long id) {
-        String cacheKey = "subject-" + id;
-        if (cache.get(cacheKey) != null) {
-            return (Subject) cache.get(cacheKey);
-        }
+    public List<SubjectSnapshot> findAllByIds(Collection<Long> ids) {
+        long start = System.nanoTime();
+        logger.info("Fetching {} subjects by id", ids.size());
+
+        List<SubjectSnapshot> subjects = new ArrayList<>(subjectCache.getAllOrLoad(ids,
+                misses -> subjectRepository.findAllById(misses).stream()
+                        .map(SubjectSnapshot::of)
+                        .collect(Collectors.toMap(SubjectSnapshot::id, subject -> subject)))
+                .values());
+
+        long end = System.nanoTime();
+        logger.info("Execution time for findAllByIds: {} ms", (end - start) / 1_000_000);
+        return subjects;
+    }
 
+    private SubjectSnapshot loadById(Long id) {
         long start = System.nanoTime();
         logger.info("Fetching subject from database for id: {}", id);
 
         Subject subject = subjectRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(NOTFOUND + id));
 
-        cache.put(cacheKey, subject);
         long end = System.nanoTime();
         logger.info("Execution time for findById: {} ms", (end - start) / 1_000_000);
-        return subject;
+        return SubjectSnapshot.of(subject);
     }
 
     @Override
-    public Subject findByName(String name) {
-        String cacheKey = "subject-" + name;
-        if (cache.get(cacheKey) != null) {
-            return (Subject) cache.get(cacheKey);
-        }
+    public SubjectSnapshot findByName(String name) {
+        return subjectNameCache.getOrLoad(name, this::loadByName);
+    }
 
+    private SubjectSnapshot loadByName(String name) {
         long start = System.nanoTime();
         logger.info("Fetching subject from database for name: {}", name);
 
@@ -91,20 +143,23 @@ public class SubjectServiceImpl implements SubjectService {
                 .orElseThrow(() -> new
                         EntityNotFoundException("Subject not found with name: " + name));
 
-        cache.put(cacheKey, subject);
         long end = System.nanoTime();
         logger.info("Execution time for findByName: {} ms", (end - start) / 1_000_000);
-        return subject;
+        return SubjectSnapshot.of(subject);
     }
 
     @Override
-    public Subject addSubject(Subject subject) {
+    public SubjectSnapshot addSubject(Subject subject) {
         final long start = System.nanoTime();
         logger.info("Saving subject: {}", subject.getName());
 
-        Subject savedSubject = subjectRepository.save(subject);
-        cache.put("subject-" + savedSubject.getId(), savedSubject);
-        cache.put("subject-" + savedSubject.getName(), savedSubject);
+        SubjectSnapshot savedSubject = SubjectSnapshot.of(subjectRepository.save(subject));
+        nameSearch.recordSubject(savedSubject.id(), savedSubject.name());
+        cache.invalidate(CacheTag.SUBJECTS);
+        TransactionHooks.afterCommit(() -> {
+            subjectCache.put(savedSubject.id(), savedSubject);
+            subjectNameCache.put(savedSubject.name(), savedSubject);
+        });
 
         long end = System.nanoTime();
         logger.info("Execution time for addSubject: {} ms", (end - start) / 1_000_000);
@@ -145,27 +200,10 @@ public class SubjectServiceImpl implements SubjectService {
     }
 
     private void clearCacheForSubject(Subject subject) {
-        Long subjectId = subject.getId();
-
-        cache.remove("subject-" + subjectId);
-        cache.remove("subject-" + subject.getName());
-
-        cache.remove("avg-subject-" + subjectId);
-
-        List<Mark> subjectMarks = markRepository.findBySubjectId(subjectId);
-
-        Set<Long> affectedStudentIds = subjectMarks.stream()
-                .map(mark -> mark.getStudent().getId())
-                .collect(Collectors.toSet());
-
-        for (Long studentId : affectedStudentIds) {
-            cache.remove("marks-" + studentId + "-" + subjectId);
-            cache.remove("avg-student-" + studentId);
-        }
-
-        for (Mark mark : subjectMarks) {
-            cache.remove("mark-" + mark.getId());
-        }
+        markAggregates.recordSubjectRemoved(subject.getId());
+        enrollmentIndex.recordSubjectRemoved(subject.getId());
+        nameSearch.recordSubjectRemoved(subject.getId());
+        cache.invalidate(CacheTag.subject(subject.getId()), CacheTag.SUBJECTS, CacheTag.MARKS);
     }
 }
 
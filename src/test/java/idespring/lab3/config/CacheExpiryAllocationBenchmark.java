@@ -0,0 +1,77 @@
+package idespring.lab3.config;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Allocation, GC and retained heap of a write-heavy run against a region with a short
+ * maxAge. Expiry used to schedule one future per put; now entries expire from the
+ * write-order list during later puts, so bytes per put and retained heap should not
+ * depend on how many writes went in. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class CacheExpiryAllocationBenchmark {
+    private static final long MAX_AGE_MILLIS = 50;
+    private static final int MAX_SIZE = 100_000;
+    private static final int[] WRITES = {100_000, 1_000_000, 10_000_000};
+
+    @Test
+    void expiryCostStaysFlatAsTheWriteRateGrows() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+
+        System.out.printf("%n%-12s %12s %14s %10s %12s %14s %10s%n", "writes", "millis",
+                "bytes per put", "GC count", "GC millis", "retained KB", "entries");
+        for (int writes : WRITES) {
+            CacheRegion<Long, Long> region =
+                    new CacheRegion<>("bench", MAX_AGE_MILLIS, MAX_SIZE);
+            long heapBefore = usedHeapAfterGc();
+            long gcCountBefore = gcCount();
+            long gcTimeBefore = gcMillis();
+            long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+
+            for (long key = 0; key < writes; key++) {
+                region.put(key % (MAX_SIZE * 4L), key);
+            }
+
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+            long gcCount = gcCount() - gcCountBefore;
+            long gcTime = gcMillis() - gcTimeBefore;
+            long retained = usedHeapAfterGc() - heapBefore;
+
+            assertTrue(region.size() <= MAX_SIZE);
+            System.out.printf("%-12d %12d %14.1f %10d %12d %14d %10d%n", writes,
+                    elapsedMillis, (double) allocated / writes, gcCount, gcTime,
+                    retained / 1024, region.size());
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+}
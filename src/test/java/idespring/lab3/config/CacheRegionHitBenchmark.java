@@ -0,0 +1,77 @@
+package idespring.lab3.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Hit latency of {@link CacheRegion} against cache size, with every CPU reading at once.
+ * The old LinkedList LRU grew linearly with size and serialised all readers; the striped
+ * segments should stay flat. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class CacheRegionHitBenchmark {
+    private static final int[] SIZES = {1_000, 10_000, 100_000, 1_000_000};
+    private static final int WARMUP_READS = 2_000_000;
+    private static final int MEASURED_READS = 5_000_000;
+
+    @Test
+    void hitLatencyStaysFlatAsTheCacheGrows() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%n%-10s %8s %14s %16s%n", "size", "threads", "ns per hit",
+                "hits per second");
+        for (int size : SIZES) {
+            CacheRegion<Long, String> region = new CacheRegion<>("bench", 600_000, size);
+            for (long key = 0; key < size; key++) {
+                region.put(key, "value-" + key);
+            }
+
+            readConcurrently(region, size, threads, WARMUP_READS);
+            long start = System.nanoTime();
+            long hits = readConcurrently(region, size, threads, MEASURED_READS);
+            long elapsed = System.nanoTime() - start;
+
+            assertEquals((long) threads * MEASURED_READS, hits);
+            System.out.printf("%-10d %8d %14.1f %,16.0f%n", size, threads,
+                    (double) elapsed * threads / hits, hits * 1e9 / elapsed);
+        }
+    }
+
+    private static long readConcurrently(CacheRegion<Long, String> region, int size,
+                                         int threads, int readsPerThread) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    go.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long hits = 0;
+                    for (int i = 0; i < readsPerThread; i++) {
+                        if (region.get(random.nextLong(size)) != null) {
+                            hits++;
+                        }
+                    }
+                    return hits;
+                }));
+            }
+            go.countDown();
+            long hits = 0;
+            for (Future<Long> result : results) {
+                hits += result.get();
+            }
+            return hits;
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
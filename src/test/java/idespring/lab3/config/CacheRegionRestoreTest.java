@@ -0,0 +1,34 @@
+package idespring.lab3.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Restored entries keep their original creation time, so they can be older than entries
+ * already in the region. Expiry pops the head of each segment's expiry list and stops at
+ * the first live entry, which only works if restored entries are linked in by expiry.
+ */
+class CacheRegionRestoreTest {
+    private static final long MAX_AGE_MILLIS = 1_000;
+    private static final int ENTRIES = 1_000;
+
+    @Test
+    void restoredEntriesExpireBehindNewerPuts() throws InterruptedException {
+        CacheRegion<Integer, String> region =
+                new CacheRegion<>("restore", MAX_AGE_MILLIS, ENTRIES * 4);
+        long now = System.currentTimeMillis();
+        for (int key = 0; key < ENTRIES; key++) {
+            region.put(key, "fresh");
+        }
+        for (int key = ENTRIES; key < 2 * ENTRIES; key++) {
+            region.restore(key, "restored", now - MAX_AGE_MILLIS + 50 - key % 20);
+        }
+        assertEquals(2 * ENTRIES, region.size());
+
+        Thread.sleep(100);
+        region.cleanExpiredEntries();
+
+        assertEquals(ENTRIES, region.size());
+    }
+}
@@ -0,0 +1,62 @@
+package idespring.lab3.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import idespring.lab3.model.snapshot.KeysetPage;
+import idespring.lab3.model.snapshot.PageCursor;
+import idespring.lab3.model.snapshot.StudentSnapshot;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Records round-trip through the codec only if they are on its allowlist, and a snapshot
+ * naming any other class is refused before that class is loaded.
+ */
+class CacheSnapshotCodecTest {
+    private record Unlisted(long id) {}
+
+    @Test
+    void everyAllowedTypeIsARecord() throws ClassNotFoundException {
+        for (String name : CacheSnapshotCodec.RECORD_TYPES) {
+            assertTrue(Class.forName(name, false, getClass().getClassLoader()).isRecord(),
+                    name);
+        }
+    }
+
+    @Test
+    void allowedRecordsRoundTrip() throws IOException {
+        KeysetPage<StudentSnapshot> page = new KeysetPage<>(
+                List.of(new StudentSnapshot(1, "Ann", 20, null),
+                        new StudentSnapshot(2, "Bob", 21, 7L)),
+                new PageCursor("Bob", 2));
+
+        assertEquals(page, CacheSnapshotCodec.read(ByteBuffer.wrap(encode(page))));
+    }
+
+    @Test
+    void unlistedRecordsAreRefused() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> encode(new Unlisted(1)));
+
+        ByteArrayOutputStream forged = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(forged);
+        out.writeByte(8);
+        CacheSnapshotCodec.writeString(out, Unlisted.class.getName());
+        out.writeShort(1);
+        CacheSnapshotCodec.write(out, 1L);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> CacheSnapshotCodec.read(ByteBuffer.wrap(forged.toByteArray())));
+    }
+
+    private static byte[] encode(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CacheSnapshotCodec.write(new DataOutputStream(bytes), value);
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,127 @@
+package idespring.lab3.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import idespring.lab3.model.snapshot.StudentSnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.mock.env.MockEnvironment;
+
+/**
+ * Time for a freshly started node to serve its hot students from cache, starting cold
+ * (one query per first read) against restoring a {@link CacheSnapshotStore} file and then
+ * reading. Runs on in-memory H2, with a stand-in for {@code pg_stat_user_tables}, so the
+ * cold queries cost far less than a round trip to Postgres and the speedup is a floor.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class CacheSnapshotWarmBenchmark {
+    private static final int STUDENTS = 50_000;
+    private static final String SELECT_SQL =
+            "SELECT id, name, age, groupid FROM studentmanagement.students WHERE id = ?";
+
+    @TempDir
+    Path dir;
+
+    private JdbcTemplate jdbcTemplate;
+    private CacheConfig<String, Object> cold;
+    private CacheConfig<String, Object> restored;
+
+    @BeforeEach
+    void createStudents() {
+        jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(
+                "jdbc:h2:mem:warm;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE", true));
+        jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS studentmanagement");
+        jdbcTemplate.execute("CREATE TABLE studentmanagement.students (id BIGINT PRIMARY KEY, "
+                + "name VARCHAR(255), age INT, groupid BIGINT)");
+        jdbcTemplate.execute("CREATE TABLE pg_stat_user_tables (schemaname VARCHAR(64), "
+                + "relname VARCHAR(64), n_tup_ins BIGINT, n_tup_upd BIGINT, n_tup_del BIGINT)");
+        jdbcTemplate.update("INSERT INTO pg_stat_user_tables VALUES "
+                + "('studentmanagement', 'students', ?, 0, 0), "
+                + "('studentmanagement', 'student_subject', 0, 0, 0)", STUDENTS);
+        jdbcTemplate.batchUpdate("INSERT INTO studentmanagement.students VALUES (?, ?, ?, ?)",
+                LongStream.rangeClosed(1, STUDENTS)
+                        .mapToObj(id -> new Object[] {id, "Student " + id, 18 + id % 10,
+                            1 + id % 100})
+                        .toList());
+        cold = newCache();
+        restored = newCache();
+    }
+
+    @AfterEach
+    void dropStudents() {
+        cold.shutdown();
+        restored.shutdown();
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void restoringBeatsStartingCold() throws IOException {
+        CacheRegion<Long, StudentSnapshot> coldStudents = students(cold);
+        long coldStart = System.nanoTime();
+        readAll(coldStudents, this::query);
+        long coldNanos = System.nanoTime() - coldStart;
+
+        Path file = dir.resolve("cache-snapshot.bin");
+        snapshotStore(cold, file).write();
+
+        CacheRegion<Long, StudentSnapshot> restoredStudents = students(restored);
+        long restoreStart = System.nanoTime();
+        snapshotStore(restored, file).load();
+        long loadNanos = System.nanoTime() - restoreStart;
+        readAll(restoredStudents, id -> {
+            throw new AssertionError("Student " + id + " was not restored");
+        });
+        long restoreNanos = System.nanoTime() - restoreStart;
+
+        assertEquals(STUDENTS, restoredStudents.size());
+        System.out.printf("%n%d students, snapshot of %d KB%n", STUDENTS,
+                Files.size(file) / 1024);
+        System.out.printf("%-10s %10s%n", "warm-up", "ms");
+        System.out.printf("%-10s %10d%n", "cold", coldNanos / 1_000_000);
+        System.out.printf("%-10s %10d (%d loading the file)%n", "restored",
+                restoreNanos / 1_000_000, loadNanos / 1_000_000);
+        System.out.printf("speedup: %.1fx%n", (double) coldNanos / restoreNanos);
+    }
+
+    private CacheConfig<String, Object> newCache() {
+        return new CacheConfig<>(600_000, 1_000_000, 512L * 1024 * 1024, 128, 1, 16, 60_000,
+                new MockEnvironment(),
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class),
+                new InProcessInvalidationTransport());
+    }
+
+    private static CacheRegion<Long, StudentSnapshot> students(CacheConfig<?, ?> cache) {
+        return cache.region("students", (id, student) -> List.of(CacheTag.student(id)));
+    }
+
+    private CacheSnapshotStore snapshotStore(CacheConfig<?, ?> cache, Path file) {
+        return new CacheSnapshotStore(cache, jdbcTemplate, file.toString(), 300_000, STUDENTS);
+    }
+
+    private StudentSnapshot query(long id) {
+        return jdbcTemplate.queryForObject(SELECT_SQL, (rs, row) -> new StudentSnapshot(
+                rs.getLong("id"), rs.getString("name"), rs.getInt("age"),
+                rs.getObject("groupid", Long.class)), id);
+    }
+
+    private static void readAll(CacheRegion<Long, StudentSnapshot> region,
+                                LongFunction<StudentSnapshot> loader) {
+        for (long id = 1; id <= STUDENTS; id++) {
+            region.getOrLoad(id, loader::apply);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package idespring.lab3.config;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import idespring.lab3.model.snapshot.StudentSnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.env.MockEnvironment;
+
+/**
+ * Fills two regions with a mix of single students and whole student lists, about ten
+ * times more than their byte budgets allow, and checks that both the weighed size and
+ * the heap the cache actually retains stay within the budgets.
+ */
+class CacheWeightBudgetTest {
+    private static final long BUDGET_PER_REGION = 4L * 1024 * 1024;
+    private static final long ENTITY_BYTES = 160;
+    private static final int LIST_LENGTH = 2_000;
+
+    private CacheConfig<String, Object> cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new CacheConfig<>(600_000, 1_000_000, BUDGET_PER_REGION, ENTITY_BYTES, 1, 16,
+                60_000, new MockEnvironment(),
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class),
+                new InProcessInvalidationTransport());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void mixedEntriesStayWithinTheByteBudget() {
+        CacheRegion<Long, StudentSnapshot> students = cache.region("students");
+        CacheRegion<Integer, List<StudentSnapshot>> lists = cache.region("students.lists");
+        long heapBefore = usedHeapAfterGc();
+
+        long id = 0;
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 5_000; i++, id++) {
+                students.put(id, student(id));
+            }
+            List<StudentSnapshot> list = new ArrayList<>(LIST_LENGTH);
+            for (int i = 0; i < LIST_LENGTH; i++, id++) {
+                list.add(student(id));
+            }
+            lists.put(round, list);
+        }
+
+        long retained = usedHeapAfterGc() - heapBefore;
+        long weighed = students.stats().estimatedBytes() + lists.stats().estimatedBytes();
+        long budget = 2 * BUDGET_PER_REGION;
+
+        assertTrue(students.stats().estimatedBytes() <= BUDGET_PER_REGION,
+                "students region weighs " + students.stats().estimatedBytes());
+        assertTrue(lists.stats().estimatedBytes() <= BUDGET_PER_REGION,
+                "lists region weighs " + lists.stats().estimatedBytes());
+        assertTrue(students.size() > 0 && lists.size() > 0, "both regions keep entries");
+        assertTrue(retained <= budget,
+                "cache retains " + retained + " bytes of heap for a " + budget
+                        + " byte budget (weighed " + weighed + ")");
+    }
+
+    private static StudentSnapshot student(long id) {
+        return new StudentSnapshot(id, "Student " + id, 18 + (int) (id % 10), id % 50);
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
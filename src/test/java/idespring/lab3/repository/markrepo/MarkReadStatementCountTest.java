@@ -0,0 +1,123 @@
+package idespring.lab3.repository.markrepo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import idespring.lab3.model.snapshot.MarkSnapshot;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Every mark listing reads flat rows with one statement. Mark loads its student and
+ * subject eagerly, and Student its group, so reading entities instead would add selects
+ * that grow with the number of distinct students in the result.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:mark-reads;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+            + "NON_KEYWORDS=VALUE;INIT=CREATE SCHEMA IF NOT EXISTS studentmanagement",
+    "spring.jpa.properties.hibernate.default_schema=studentmanagement",
+    "spring.flyway.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(MarkReadStatementCountTest.StatementCounting.class)
+class MarkReadStatementCountTest {
+    private static final AtomicInteger statements = new AtomicInteger();
+    private static final int VALUE = 5;
+    private static final long SUBJECT = 1;
+
+    @Autowired
+    private MarkRepository markRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 20, 500})
+    void eachListingIsOneStatement(int students) {
+        seed(students);
+
+        assertOneStatement(students, () -> markRepository.findByValue(VALUE));
+        assertOneStatement(students, () -> markRepository.findPage(null, null, null, students));
+        assertOneStatement(students,
+                () -> markRepository.findPage(null, SUBJECT, null, students));
+        assertOneStatement(1, () -> markRepository.findPage(1L, null, null, students));
+    }
+
+    private void seed(int students) {
+        jdbcTemplate.update("INSERT INTO studentmanagement.groups (id, name) VALUES (1, 'A')");
+        jdbcTemplate.update("INSERT INTO studentmanagement.subjects (id, name) VALUES (?, ?)",
+                SUBJECT, "Math");
+        for (long id = 1; id <= students; id++) {
+            jdbcTemplate.update("INSERT INTO studentmanagement.students (id, name, age, groupid) "
+                    + "VALUES (?, ?, 20, 1)", id, "Student " + id);
+            jdbcTemplate.update("INSERT INTO studentmanagement.marks (value, studentid, subjectid) "
+                    + "VALUES (?, ?, ?)", VALUE, id, SUBJECT);
+        }
+    }
+
+    private static void assertOneStatement(int expectedRows,
+                                           Supplier<List<MarkSnapshot>> read) {
+        statements.set(0);
+        List<MarkSnapshot> marks = read.get();
+        assertEquals(expectedRows, marks.size());
+        assertEquals(1, statements.get());
+    }
+
+    /** Wraps the DataSource so every statement prepared on its connections is counted. */
+    @TestConfiguration
+    static class StatementCounting {
+        @Bean
+        static BeanPostProcessor countingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String name) {
+                    return bean instanceof DataSource dataSource ? counting(dataSource) : bean;
+                }
+            };
+        }
+
+        private static DataSource counting(DataSource target) {
+            return proxy(DataSource.class, target, (proxy, method, args) -> {
+                Object result = invoke(target, method, args);
+                return result instanceof Connection connection
+                        ? proxy(Connection.class, connection, (p, m, a) -> {
+                            if (m.getName().equals("prepareStatement")
+                                    || m.getName().equals("prepareCall")
+                                    || m.getName().equals("createStatement")) {
+                                statements.incrementAndGet();
+                            }
+                            return invoke(connection, m, a);
+                        })
+                        : result;
+            });
+        }
+
+        private static Object invoke(Object target, java.lang.reflect.Method method,
+                                     Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private static <T> T proxy(Class<T> type, T target,
+                                   java.lang.reflect.InvocationHandler handler) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(),
+                    new Class<?>[] {type}, handler));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package idespring.lab3.service.importservice;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import org.junit.jupiter.api.Test;
+
+class CsvReaderTest {
+    @Test
+    void readsQuotedFieldsThatSpanLines() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader(
+                "name,age\n\"Ann\nMarie \"\"Jr\"\"\",20\n\nBob,21\n"));
+
+        assertArrayEquals(new String[] {"name", "age"}, csv.next());
+
+        assertArrayEquals(new String[] {"Ann\nMarie \"Jr\"", "20"}, csv.next());
+        assertEquals(2, csv.lineNumber());
+        assertEquals(3, csv.linesRead());
+
+        assertArrayEquals(new String[] {"Bob", "21"}, csv.next());
+        assertEquals(5, csv.lineNumber());
+        assertEquals(5, csv.linesRead());
+
+        assertNull(csv.next());
+    }
+
+    @Test
+    void rejectsAnUnterminatedQuote() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("name,age\n\"Ann,20\nBob,21\n"));
+        csv.next();
+
+        IOException error = assertThrows(IOException.class, csv::next);
+        assertEquals("Unterminated quoted field in the record starting on line 2",
+                error.getMessage());
+    }
+}
@@ -0,0 +1,108 @@
+package idespring.lab3.service.markservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import idespring.lab3.dto.MarkBatchItem;
+import idespring.lab3.dto.MarkBatchResult;
+import idespring.lab3.model.Mark;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Throughput of adding 10k marks one {@link MarkService#addMark} call at a time against a
+ * single {@link MarkService#addMarks} batch, through the service layer and its caches and
+ * in-memory stores. Runs on in-memory H2 by default, so absolute numbers are optimistic;
+ * point {@code spring.datasource.*} at a Postgres with the schema to measure it there.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+    "spring.datasource.url=jdbc:h2:mem:marks;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+            + "NON_KEYWORDS=VALUE;INIT=CREATE SCHEMA IF NOT EXISTS studentmanagement",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.properties.hibernate.default_schema=studentmanagement",
+    "spring.flyway.enabled=false",
+    "cache.maxAge=600000",
+    "cache.maxSize=10000"
+})
+class MarkBatchBenchmark {
+    private static final int STUDENTS = 200;
+    private static final int SUBJECTS = 10;
+    private static final int MARKS = 10_000;
+    private static final int WARMUP_MARKS = 1_000;
+
+    @Autowired
+    private MarkService markService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void enrollEveryStudentInEverySubject() {
+        jdbcTemplate.update("DELETE FROM studentmanagement.marks");
+        jdbcTemplate.update("DELETE FROM studentmanagement.student_subject");
+        jdbcTemplate.update("DELETE FROM studentmanagement.students");
+        jdbcTemplate.update("DELETE FROM studentmanagement.subjects");
+        for (long id = 1; id <= SUBJECTS; id++) {
+            jdbcTemplate.update("INSERT INTO studentmanagement.subjects (id, name) VALUES (?, ?)",
+                    id, "Subject " + id);
+        }
+        for (long id = 1; id <= STUDENTS; id++) {
+            jdbcTemplate.update("INSERT INTO studentmanagement.students (id, name, age) "
+                    + "VALUES (?, ?, ?)", id, "Student " + id, 20);
+            for (long subject = 1; subject <= SUBJECTS; subject++) {
+                jdbcTemplate.update("INSERT INTO studentmanagement.student_subject "
+                        + "(studentid, subjectid) VALUES (?, ?)", id, subject);
+            }
+        }
+    }
+
+    @Test
+    void batchOutpacesSingleMarks() {
+        addOneByOne(WARMUP_MARKS);
+        addAsBatch(WARMUP_MARKS);
+
+        long singleStart = System.nanoTime();
+        addOneByOne(MARKS);
+        long singleNanos = System.nanoTime() - singleStart;
+
+        long batchStart = System.nanoTime();
+        MarkBatchResult result = addAsBatch(MARKS);
+        long batchNanos = System.nanoTime() - batchStart;
+
+        assertEquals(MARKS, result.inserted());
+        System.out.printf("%n%-10s %8s %12s %16s%n", "path", "marks", "millis",
+                "marks per second");
+        print("addMark", singleNanos);
+        print("addMarks", batchNanos);
+        System.out.printf("speedup: %.1fx%n", (double) singleNanos / batchNanos);
+    }
+
+    private void addOneByOne(int count) {
+        for (int i = 0; i < count; i++) {
+            Mark mark = new Mark(2 + i % 4);
+            mark.setStudentId(1L + i % STUDENTS);
+            mark.setSubjectId(1L + i / STUDENTS % SUBJECTS);
+            markService.addMark(mark);
+        }
+    }
+
+    private MarkBatchResult addAsBatch(int count) {
+        List<MarkBatchItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(new MarkBatchItem(1L + i % STUDENTS, 1L + i / STUDENTS % SUBJECTS,
+                    2 + i % 4));
+        }
+        return markService.addMarks(items);
+    }
+
+    private static void print(String path, long nanos) {
+        System.out.printf("%-10s %8d %12d %,16.0f%n", path, MARKS, nanos / 1_000_000,
+                MARKS * 1e9 / nanos);
+    }
+}
@@ -0,0 +1,63 @@
+package idespring.lab3.service.markservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import idespring.lab3.repository.markrepo.MarkRepository;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MarkChangeBufferTest {
+    private final MarkRepository markRepository = mock(MarkRepository.class);
+    private final MarkChangeBuffer<List<String>> buffer = new MarkChangeBuffer<>();
+
+    @Test
+    void replaysOnlyWhatTheSnapshotMissed() {
+        snapshotHolds(1L, 2L);
+        buffer.markAdded(1, log -> log.add("add 1"));
+        buffer.markAdded(3, log -> log.add("add 3"));
+        buffer.markRemoved(2, log -> log.add("remove 2"));
+        buffer.markRemoved(4, log -> log.add("remove 4"));
+        buffer.markAdded(4, log -> log.add("add 4"));
+        buffer.markRemoved(5, log -> log.add("remove 5"));
+        buffer.other(log -> log.add("student removed"));
+
+        List<String> replayed = new ArrayList<>();
+        buffer.replayUnseen(replayed, markRepository);
+
+        assertEquals(List.of("add 3", "remove 2", "student removed"), replayed);
+    }
+
+    @Test
+    void forgetsReplayedChanges() {
+        snapshotHolds();
+        buffer.markAdded(7, log -> log.add("add 7"));
+
+        List<String> replayed = new ArrayList<>();
+        buffer.replayUnseen(replayed, markRepository);
+        buffer.replayUnseen(replayed, markRepository);
+
+        assertEquals(List.of("add 7"), replayed);
+    }
+
+    @Test
+    void skipsTheLookupWhenNothingWasRecorded() {
+        buffer.replayUnseen(new ArrayList<>(), markRepository);
+
+        verify(markRepository, never()).findExistingIds(anyCollection());
+    }
+
+    private void snapshotHolds(Long... ids) {
+        List<Long> visible = List.of(ids);
+        when(markRepository.findExistingIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> asked = invocation.getArgument(0);
+            return asked.stream().filter(visible::contains).toList();
+        });
+    }
+}
@@ -0,0 +1,80 @@
+package idespring.lab3.service.markservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import idespring.lab3.repository.markrepo.MarkRepository;
+import idespring.lab3.repository.markrepo.MarkRepositoryCustom.MarkVisitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Throughput of full scans over {@link MarkColumnStore} loaded with 2M marks, unfiltered
+ * and grouped by subject, next to the memory a mark costs. The rebuild used to time a scan
+ * like this on every reload; it lives here so the periodic check does no extra work.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class MarkColumnScanBenchmark {
+    private static final int MARKS = 2_000_000;
+    private static final int STUDENTS = 20_000;
+    private static final int SUBJECTS = 20;
+    private static final int GROUPS = 200;
+    private static final int ROUNDS = 20;
+
+    private MarkColumnStore store;
+
+    @BeforeEach
+    void loadColumns() {
+        MarkRepository markRepository = mock(MarkRepository.class);
+        doAnswer(invocation -> {
+            MarkVisitor visitor = invocation.getArgument(1);
+            for (int i = 0; i < MARKS; i++) {
+                long student = 1 + i / 100 % STUDENTS;
+                visitor.visit(i + 1, 2 + i % 4, student, 1 + i % SUBJECTS,
+                        1 + student % GROUPS);
+            }
+            return null;
+        }).when(markRepository).forEachMark(anyBoolean(), any());
+
+        store = new MarkColumnStore(markRepository, mock(MarkAggregateStore.class),
+                mock(PlatformTransactionManager.class), 4, 65_536, 0);
+        store.rebuild();
+    }
+
+    @Test
+    void fullScans() {
+        assertEquals(MARKS, store.markCount());
+        for (int i = 0; i < ROUNDS; i++) {
+            store.distribution(null, null);
+            store.statsBy(MarkColumnStore.Dimension.SUBJECT, null, null);
+        }
+
+        long plainNanos = time(() -> store.distribution(null, null));
+        long bySubjectNanos = time(() -> store.statsBy(MarkColumnStore.Dimension.SUBJECT,
+                null, null));
+
+        System.out.printf("%n%d marks, %d bytes per mark%n", MARKS,
+                store.estimatedBytes() / MARKS);
+        System.out.printf("%-12s %10s %24s%n", "scan", "micros", "million marks per second");
+        print("all", plainNanos);
+        print("by subject", bySubjectNanos);
+    }
+
+    private static long time(Runnable scan) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            scan.run();
+        }
+        return (System.nanoTime() - start) / ROUNDS;
+    }
+
+    private static void print(String scan, long nanos) {
+        System.out.printf("%-12s %10d %24.0f%n", scan, nanos / 1_000, MARKS * 1e3 / nanos);
+    }
+}